@@ -0,0 +1,81 @@
+package com.hospital.demo.benchmark;
+
+import com.github.javafaker.Faker;
+import com.hospital.demo.DemoApplication;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.model.Patient;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Same shape of data as DataSeeder (faker names, UUID emails, appointments in the next 30 days),
+// but from a fixed seed so two runs measure the same thing.
+public final class BenchmarkData {
+
+    public static final int PATIENTS = 100_000;
+    public static final int APPOINTMENTS = 50_000;
+    private static final LocalDateTime BASE_TIME = LocalDateTime.of(2030, 1, 1, 8, 0);
+
+    private BenchmarkData() {
+    }
+
+    // Boots the app on the in-memory 'test' profile and fills it with PATIENTS/APPOINTMENTS rows.
+    public static ConfigurableApplicationContext startSeededContext(String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DemoApplication.class)
+            .profiles("test")
+            .properties("server.port=0", "logging.level.root=WARN")
+            .properties(properties)
+            .run();
+
+        List<Patient> patients = patients(PATIENTS);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.batchUpdate("INSERT INTO patients (id, first_name, last_name, email) VALUES (?, ?, ?, ?)",
+            patients.stream()
+                .map(p -> new Object[] {p.getId(), p.getFirstName(), p.getLastName(), p.getEmail()})
+                .toList());
+        jdbc.batchUpdate("INSERT INTO appointments (id, patient_id, appointment_time, notes) VALUES (?, ?, ?, ?)",
+            appointments(APPOINTMENTS, patients).stream()
+                .map(a -> new Object[] {a.getId(), a.getPatientId(), Timestamp.valueOf(a.getAppointmentTime()), a.getNotes()})
+                .toList());
+        return context;
+    }
+
+    public static List<Patient> patients(int count) {
+        Faker faker = new Faker(new Random(42));
+        List<Patient> patients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID id = uuid(faker.random());
+            patients.add(Patient.builder()
+                .id(id)
+                .firstName(faker.name().firstName())
+                .lastName(faker.name().lastName())
+                .email(id + "@hospital.com")
+                .build());
+        }
+        return patients;
+    }
+
+    public static List<Appointment> appointments(int count, List<Patient> patients) {
+        Faker faker = new Faker(new Random(7));
+        List<Appointment> appointments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            appointments.add(Appointment.builder()
+                .id(uuid(faker.random()))
+                .patientId(patients.get(faker.random().nextInt(0, patients.size() - 1)).getId())
+                .appointmentTime(BASE_TIME.plusMinutes(faker.random().nextInt(0, 30 * 24 * 60)))
+                .notes(faker.lorem().sentence(10))
+                .build());
+        }
+        return appointments;
+    }
+
+    private static UUID uuid(com.github.javafaker.service.RandomService random) {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+}
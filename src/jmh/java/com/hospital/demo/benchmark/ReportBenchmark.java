@@ -0,0 +1,78 @@
+package com.hospital.demo.benchmark;
+
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.dto.PatientResponse;
+import com.hospital.demo.service.AppointmentService;
+import com.hospital.demo.service.PatientService;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// End-to-end report paths against the seeded in-memory database.
+// patientCacheSize=0 effectively disables the patient cache, so findAllByIdsMap pays for the IN query every time.
+// fetchChunkSize=1000 splits that lookup into parallel IN queries (ChunkedLoader), 1000000 sends the one big IN list.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ReportBenchmark {
+
+    @Param({"200000", "0"})
+    String patientCacheSize;
+
+    @Param({"1000", "1000000"})
+    String fetchChunkSize;
+
+    ConfigurableApplicationContext context;
+    AppointmentService appointmentService;
+    PatientService patientService;
+    List<UUID> patientIds;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkData.startSeededContext("hospital.cache.patients.max-size=" + patientCacheSize,
+            "hospital.report.fetch-chunk-size=" + fetchChunkSize);
+        appointmentService = context.getBean(AppointmentService.class);
+        patientService = context.getBean(PatientService.class);
+        patientIds = context.getBean(JdbcTemplate.class)
+            .queryForList("SELECT DISTINCT patient_id FROM appointments", UUID.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<AppointmentResponse> batchReport() {
+        return appointmentService.getAllWithDetailsBatched();
+    }
+
+    @Benchmark
+    public List<AppointmentResponse> projectionReport() {
+        return appointmentService.getAllWithDetails();
+    }
+
+    @Benchmark
+    public Map<UUID, PatientResponse> findAllByIdsMap() {
+        return patientService.findAllByIdsMap(patientIds);
+    }
+}
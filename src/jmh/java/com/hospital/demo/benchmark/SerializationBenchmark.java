@@ -0,0 +1,98 @@
+package com.hospital.demo.benchmark;
+
+import com.hospital.demo.dto.ApiEnvelope;
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.metrics.MethodTimers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.hospital.demo.json.HospitalJsonModule;
+import com.hospital.demo.json.StreamingJsonWriter;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.model.Patient;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+// Cost of turning the report into bytes, the same way the /api/v1/appointments controller returns it.
+// serializers=bean is plain Jackson reflection over the Lombok getters; handwritten adds HospitalJsonModule.
+// Run with -prof gc to compare allocation per op.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1000", "50000"})
+    int rows;
+
+    @Param({"bean", "handwritten"})
+    String serializers;
+
+    JsonMapper mapper;
+    StreamingJsonWriter streamingWriter;
+    ApiEnvelope<List<AppointmentResponse>> envelope;
+    List<List<AppointmentResponse>> chunks;
+
+    @Setup
+    public void setUp() {
+        JsonMapper.Builder builder = JsonMapper.builder();
+        if (serializers.equals("handwritten")) {
+            builder.addModule(new HospitalJsonModule());
+        }
+        mapper = builder.build();
+        streamingWriter = new StreamingJsonWriter(mapper, CBORMapper.builder().build(), SmileMapper.builder().build(),
+            new MethodTimers(new SimpleMeterRegistry()));
+
+        List<Patient> patients = BenchmarkData.patients(rows);
+        Map<java.util.UUID, Patient> byId = patients.stream().collect(Collectors.toMap(Patient::getId, Function.identity()));
+        List<AppointmentResponse> report = BenchmarkData.appointments(rows, patients).stream()
+            .map(a -> toResponse(a, byId.get(a.getPatientId())))
+            .toList();
+        envelope = ApiEnvelope.success(report, "Report generated").getBody();
+        chunks = new ArrayList<>();
+        for (int i = 0; i < report.size(); i += 500) {
+            chunks.add(report.subList(i, Math.min(i + 500, report.size())));
+        }
+    }
+
+    @Benchmark
+    public byte[] envelopeToBytes() {
+        return mapper.writeValueAsBytes(envelope);
+    }
+
+    @Benchmark
+    public void envelopeToStream() {
+        mapper.writeValue(OutputStream.nullOutputStream(), envelope);
+    }
+
+    // What listAll does now: header, then the rows chunk by chunk through one SequenceWriter.
+    @Benchmark
+    public void envelopeStreamedInChunks() {
+        streamingWriter.writeEnvelope(OutputStream.nullOutputStream(), "Report generated", AppointmentResponse.class,
+            sink -> chunks.forEach(sink));
+    }
+
+    private static AppointmentResponse toResponse(Appointment appt, Patient p) {
+        return new AppointmentResponse(appt.getId(), p.getFirstName() + " " + p.getLastName(),
+            appt.getAppointmentTime(), appt.getNotes());
+    }
+}
@@ -0,0 +1,121 @@
+package com.hospital.demo.benchmark;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.json.HospitalJsonModule;
+import com.hospital.demo.json.StreamingJsonWriter;
+import com.hospital.demo.json.WireFormat;
+import com.hospital.demo.metrics.MethodTimers;
+import com.hospital.demo.model.Patient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+// Bytes on the wire and encode CPU for the appointment report per body format and Content-Encoding, through the
+// same StreamingJsonWriter path listAll/listAllBinary use. Time per op is the CPU side; the payload size for each
+// combination is printed once at setup (it doesn't change between iterations).
+// gzip runs at the JDK default level (what Tomcat uses), zstd at level 3 (hospital.compression.zstd.level).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"50000"})
+    int rows;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    WireFormat format;
+
+    @Param({"identity", "gzip", "zstd"})
+    String encoding;
+
+    StreamingJsonWriter writer;
+    List<List<AppointmentResponse>> chunks;
+
+    @Setup
+    public void setUp() {
+        HospitalJsonModule module = new HospitalJsonModule();
+        writer = new StreamingJsonWriter(JsonMapper.builder().addModule(module).build(),
+            CBORMapper.builder().addModule(module).build(), SmileMapper.builder().addModule(module).build(),
+            new MethodTimers(new SimpleMeterRegistry()));
+
+        List<Patient> patients = BenchmarkData.patients(rows);
+        Map<UUID, Patient> byId = patients.stream().collect(Collectors.toMap(Patient::getId, Function.identity()));
+        List<AppointmentResponse> report = BenchmarkData.appointments(rows, patients).stream()
+            .map(a -> {
+                Patient p = byId.get(a.getPatientId());
+                return new AppointmentResponse(a.getId(), p.getFirstName() + " " + p.getLastName(),
+                    a.getAppointmentTime(), a.getNotes());
+            })
+            .toList();
+        chunks = new ArrayList<>();
+        for (int i = 0; i < report.size(); i += 500) {
+            chunks.add(report.subList(i, Math.min(i + 500, report.size())));
+        }
+
+        long bytes = encode();
+        System.out.printf("%n%s + %s, %d rows: %,d bytes on the wire (%.1f bytes/row)%n",
+            format, encoding, rows, bytes, (double) bytes / rows);
+    }
+
+    @Benchmark
+    public long encode() {
+        CountingOutputStream counter = new CountingOutputStream();
+        try (OutputStream out = wrap(counter)) {
+            writer.writeEnvelope(out, format, "Report generated", AppointmentResponse.class,
+                sink -> chunks.forEach(sink));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return counter.count;
+    }
+
+    private OutputStream wrap(OutputStream out) throws IOException {
+        return switch (encoding) {
+            case "gzip" -> new GZIPOutputStream(out, 8192, true);
+            case "zstd" -> new ZstdOutputStream(out, 3);
+            default -> out;
+        };
+    }
+
+    static final class CountingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.hospital.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Bulk insert of `rows` patient-shaped rows (uuid primary key + unique email that embeds the id, like the seeder)
+// into an empty table, with the old random v4 ids vs the time-ordered v7 ones. One op = the whole load, through
+// BulkLoader (COPY on Postgres, JDBC batches elsewhere).
+// Runs against its own scratch table, key_order_bench, never the app's. The default url is an in-memory H2, which
+// only gives the time. Point it at Postgres for the rest:
+//   -Djmh.args="KeyOrderBenchmark -p url=jdbc:postgresql://localhost:5432/hospital_db?user=user&password=password"
+// After each load it prints the size of the table's indexes, the index buffer hit ratio during the load
+// (pg_statio_user_indexes) and the WAL it generated. The hit ratio only drops below 100% once the indexes outgrow
+// shared_buffers (128MB by default), so go to 10M rows or shrink shared_buffers to see the cache effect.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class KeyOrderBenchmark {
+
+    static final String TABLE = "key_order_bench";
+
+    @Param({"jdbc:h2:mem:key_order;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"})
+    String url;
+
+    @Param({"1000000"})
+    long rows;
+
+    @Param({"random", "v7"})
+    String ids;
+
+    @Param({"1"})
+    int threads;
+
+    HikariDataSource dataSource;
+    BulkLoader loader;
+    boolean postgres;
+    long walBefore;
+
+    @Setup(Level.Iteration)
+    public void createTable() throws SQLException {
+        postgres = url.startsWith("jdbc:postgresql:");
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (id UUID PRIMARY KEY, first_name VARCHAR(255), "
+                + "last_name VARCHAR(255), email VARCHAR(255) NOT NULL UNIQUE)");
+            walBefore = postgres ? queryLong(statement, "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')") : 0;
+        }
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setMaximumPoolSize(threads);
+        loader = new BulkLoader(dataSource);
+    }
+
+    @Benchmark
+    public long load() {
+        long epochMillis = System.currentTimeMillis();
+        return loader.load(TABLE, DataSeeder.PATIENT_COLUMNS, rows, 10_000, threads, 42L, (i, random) -> {
+            UUID id = "v7".equals(ids)
+                ? DataSeeder.timeOrderedUuid(epochMillis, i, random)
+                : DataSeeder.randomUuid(random);
+            return new Object[] {id, "Ada", "Lovelace", id + "@hospital.com"};
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() throws SQLException {
+        // Closing the pool ends its backends, which is when Postgres flushes their I/O statistics.
+        dataSource.close();
+        if (!postgres) {
+            return;
+        }
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement()) {
+            long indexBytes = queryLong(statement, "SELECT COALESCE(SUM(pg_relation_size(indexrelid)), 0) "
+                + "FROM pg_index WHERE indrelid = '" + TABLE + "'::regclass");
+            long hits = queryLong(statement, "SELECT COALESCE(SUM(idx_blks_hit), 0) FROM pg_statio_user_indexes "
+                + "WHERE relname = '" + TABLE + "'");
+            long reads = queryLong(statement, "SELECT COALESCE(SUM(idx_blks_read), 0) FROM pg_statio_user_indexes "
+                + "WHERE relname = '" + TABLE + "'");
+            long walBytes = queryLong(statement, "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '0/0')") - walBefore;
+            System.out.printf("%n[%s ids] indexes %d MB, index cache hits %.2f%% (%d of %d blocks), WAL %d MB%n",
+                ids, indexBytes >> 20, 100.0 * hits / Math.max(1, hits + reads), hits, hits + reads, walBytes >> 20);
+            statement.execute("DROP TABLE " + TABLE);
+        }
+    }
+
+    private static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getBigDecimal(1).longValue();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.hospital.demo.search;
+
+import com.hospital.demo.benchmark.BenchmarkData;
+import com.hospital.demo.dto.PatientNameMatch;
+import com.hospital.demo.model.Patient;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Type-ahead against 100k patients from 8 threads at once. SampleTime reports p50/p99/p99.9 per query kind,
+// which is what the front desk feels while typing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class NameSearchBenchmark {
+
+    NameIndex index;
+    String[] firstNames;
+    String[] lastNames;
+
+    @Setup
+    public void setUp() {
+        List<Patient> patients = BenchmarkData.patients(BenchmarkData.PATIENTS);
+        index = new NameIndex();
+        patients.forEach(index::add);
+        firstNames = patients.stream().map(Patient::getFirstName).distinct().toArray(String[]::new);
+        lastNames = patients.stream().map(Patient::getLastName).distinct().toArray(String[]::new);
+    }
+
+    @Benchmark
+    public List<PatientNameMatch> oneLetter() {
+        return index.search(String.valueOf((char) ('a' + ThreadLocalRandom.current().nextInt(26))), 10);
+    }
+
+    @Benchmark
+    public List<PatientNameMatch> prefix() {
+        String name = randomLastName();
+        return index.search(name.substring(0, Math.min(3, name.length())), 10);
+    }
+
+    // "jo smi": two short prefixes, so candidates come from intersecting two large posting lists.
+    @Benchmark
+    public List<PatientNameMatch> twoWords() {
+        String first = firstNames[ThreadLocalRandom.current().nextInt(firstNames.length)];
+        String last = randomLastName();
+        return index.search(first.substring(0, Math.min(2, first.length())) + " "
+            + last.substring(0, Math.min(3, last.length())), 10);
+    }
+
+    // Swap two letters in the middle so there's no prefix hit and the trigram path has to do the work.
+    @Benchmark
+    public List<PatientNameMatch> typo() {
+        char[] name = randomLastName().toCharArray();
+        if (name.length > 3) {
+            char c = name[2];
+            name[2] = name[3];
+            name[3] = c;
+        }
+        return index.search(new String(name), 10);
+    }
+
+    private String randomLastName() {
+        return lastNames[ThreadLocalRandom.current().nextInt(lastNames.length)];
+    }
+}
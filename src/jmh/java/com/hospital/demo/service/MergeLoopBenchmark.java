@@ -0,0 +1,89 @@
+package com.hospital.demo.service;
+
+import com.hospital.demo.benchmark.BenchmarkData;
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.dto.PatientResponse;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.model.Patient;
+import com.hospital.demo.util.UuidMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// The in-memory half of the Scenario 3 report: distinct patient ids, then Appointment + Patient -> DTO.
+// No database involved, so this isolates the hashing/boxing/allocation cost of the merge itself.
+// join=hashMap is the previous code: Stream.distinct(), the HashMap PatientCache copied its hits into, and lookups
+// in that. join=uuidMap is what AppointmentService does now: one UuidMap for the dedupe, filled in with the cache
+// hits and used for the lookups. Compare gc.alloc.rate.norm (bytes/op) as well as the time.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergeLoopBenchmark {
+
+    @Param({"1000", "50000"})
+    int appointments;
+
+    @Param({"hashMap", "uuidMap"})
+    String join;
+
+    List<Appointment> rows;
+    // What the cache holds for the report: only the patients it needs (all hits).
+    Map<UUID, PatientResponse> fetched;
+
+    @Setup
+    public void setUp() {
+        List<Patient> patients = BenchmarkData.patients(BenchmarkData.PATIENTS);
+        rows = BenchmarkData.appointments(appointments, patients);
+        Map<UUID, Patient> all = patients.stream().collect(Collectors.toMap(Patient::getId, Function.identity()));
+        fetched = rows.stream()
+            .map(Appointment::getPatientId)
+            .distinct()
+            .collect(Collectors.toMap(Function.identity(), id -> PatientResponse.of(all.get(id))));
+    }
+
+    @Benchmark
+    public List<AppointmentResponse> merge(Blackhole bh) {
+        if (join.equals("hashMap")) {
+            bh.consume(rows.stream().map(Appointment::getPatientId).distinct().toList());
+            Map<UUID, PatientResponse> patientMap = new HashMap<>(fetched.size());
+            fetched.forEach(patientMap::put);
+            return toResponsesWithHashMap(rows, patientMap);
+        }
+        UuidMap<PatientResponse> patients = new UuidMap<>(rows.size() / 2);
+        bh.consume(AppointmentService.distinctPatientIds(rows, patients));
+        fetched.values().forEach(p -> patients.put(p.id(), p));
+        return AppointmentService.toResponses(rows, patients);
+    }
+
+    private static List<AppointmentResponse> toResponsesWithHashMap(List<Appointment> appointments,
+                                                                    Map<UUID, PatientResponse> patientMap) {
+        return appointments.stream().map(appt -> {
+            PatientResponse p = patientMap.get(appt.getPatientId());
+            return AppointmentResponse.builder()
+                .id(appt.getId())
+                .patientFullName(p.firstName() + " " + p.lastName())
+                .startTime(appt.getAppointmentTime())
+                .notes(appt.getNotes())
+                .build();
+        }).toList();
+    }
+}
@@ -0,0 +1,97 @@
+package com.hospital.demo.stats;
+
+import com.hospital.demo.benchmark.BenchmarkData;
+import com.hospital.demo.dto.AppointmentPage;
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.json.StreamingJsonWriter;
+import com.hospital.demo.service.AppointmentService;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// The report reads through AppointmentService, answered by the database (JPA projections) or by the columnar
+// AppointmentSnapshot: the full JSON export (written to a null stream, as the controller does), a one-day window
+// page and one patient's history. Compare gc.alloc.rate.norm (bytes/op) as well as the time. The snapshot's own
+// footprint is printed at setup; the database path holds nothing between requests.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SnapshotBenchmark {
+
+    @Param({"database", "snapshot"})
+    String source;
+
+    ConfigurableApplicationContext context;
+    AppointmentService appointmentService;
+    StreamingJsonWriter streamingJsonWriter;
+    List<UUID> patientIds;
+    LocalDateTime day;
+    int next;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkData.startSeededContext(
+            "hospital.report.snapshot.enabled=" + source.equals("snapshot"));
+        appointmentService = context.getBean(AppointmentService.class);
+        streamingJsonWriter = context.getBean(StreamingJsonWriter.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        patientIds = jdbc.queryForList("SELECT DISTINCT patient_id FROM appointments", UUID.class);
+        day = jdbc.queryForObject("SELECT min(appointment_time) FROM appointments", LocalDateTime.class)
+            .toLocalDate().plusDays(10).atStartOfDay();
+
+        AppointmentSnapshot snapshot = context.getBean(AppointmentSnapshot.class);
+        if (source.equals("snapshot")) {
+            // BenchmarkData inserts behind Hibernate's back, after the startup build.
+            snapshot.rebuild();
+            System.out.printf("Snapshot: %d rows, %.2f MB (%.0f bytes a row)%n", snapshot.size(),
+                snapshot.footprintBytes() / 1048576.0, (double) snapshot.footprintBytes() / snapshot.size());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public void export() {
+        if (appointmentService.reportsFromSnapshot()) {
+            streamingJsonWriter.writeEnvelope(OutputStream.nullOutputStream(), "Report generated",
+                AppointmentSnapshot.Row.class, appointmentService::streamSnapshot);
+        } else {
+            streamingJsonWriter.writeEnvelope(OutputStream.nullOutputStream(), "Report generated",
+                AppointmentResponse.class, appointmentService::streamReport);
+        }
+    }
+
+    @Benchmark
+    public AppointmentPage window() {
+        return appointmentService.getWindow(day, day.plusDays(1), null, AppointmentService.MAX_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public AppointmentPage patientHistory() {
+        UUID patientId = patientIds.get(next++ % patientIds.size());
+        return appointmentService.getByPatient(patientId, null, 100);
+    }
+}
@@ -0,0 +1,63 @@
+package com.hospital.demo.loadtest;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+
+// What a run writes to its JSON report. Latencies are in milliseconds; `latency` is measured from each request's
+// due time (coordinated-omission corrected), `serviceTime` from when it was actually sent.
+record LoadReport(
+    Instant startedAt,
+    String target,
+    String arrival,
+    double warmupSeconds,
+    double durationSeconds,
+    Map<String, Endpoint> endpoints,
+    List<SloResult> slos,
+    boolean passed) {
+
+    record Endpoint(
+        double targetRps,
+        double achievedRps,
+        long requests,
+        long failed,
+        long dropped,
+        Map<String, Long> failures,
+        Percentiles latency,
+        Percentiles serviceTime) {
+    }
+
+    record Percentiles(double p50, double p90, double p99, double p999, double max, double mean) {
+
+        static Percentiles of(Histogram micros) {
+            return new Percentiles(
+                millis(micros.getValueAtPercentile(50)),
+                millis(micros.getValueAtPercentile(90)),
+                millis(micros.getValueAtPercentile(99)),
+                millis(micros.getValueAtPercentile(99.9)),
+                millis(micros.getMaxValue()),
+                Math.round(micros.getMean()) / 1000.0);
+        }
+
+        double get(String percentile) {
+            return switch (percentile) {
+                case "p50" -> p50;
+                case "p90" -> p90;
+                case "p99" -> p99;
+                case "p999" -> p999;
+                case "max" -> max;
+                case "mean" -> mean;
+                default -> throw new IllegalArgumentException("Unknown percentile " + percentile
+                    + " (p50, p90, p99, p999, max or mean)");
+            };
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+
+    record SloResult(String endpoint, String percentile, double limitMs, double actualMs, boolean passed) {
+    }
+}
@@ -0,0 +1,311 @@
+package com.hospital.demo.loadtest;
+
+import com.hospital.demo.DemoApplication;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+// Open-model load test for GET /api/v1/patients/search and GET /api/v1/appointments.
+// By default it boots the app in this JVM on the in-memory 'test' database, seeded by DataSeeder, with LocalIssuer
+// standing in for Keycloak. No Docker, Keycloak or Python is needed, so it runs the same way on every change.
+// --base-url points it at a running app instead (then --token is required).
+// Each endpoint gets its own constant (or Poisson) arrival rate, see OpenLoop. The JSON report has throughput and
+// p50/p90/p99/p99.9 per endpoint, plus an HdrHistogram .hgrm file per endpoint for plotting. The process exits
+// with 1 when an --slo is missed, which fails the Maven build.
+// Usage: ./mvnw -Ploadtest -DskipTests verify -Dloadtest.args="--search-rps=500 --duration=60s --slo=search:p99:50ms"
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ConfigurableApplicationContext app = null;
+        LocalIssuer issuer = null;
+        boolean passed;
+        try {
+            String baseUrl = options.baseUrl;
+            List<String> tokens;
+            List<String> knownEmails = List.of();
+            if (baseUrl == null) {
+                issuer = LocalIssuer.start();
+                app = boot(options, issuer);
+                baseUrl = "http://localhost:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+                awaitSeeded(baseUrl);
+                tokens = issuer.tokens(options.users, options.warmup.plus(options.duration).plusHours(1));
+                knownEmails = app.getBean(JdbcTemplate.class)
+                    .queryForList("SELECT email FROM patients LIMIT " + options.searchKeys, String.class);
+            } else {
+                if (options.token == null) {
+                    throw new IllegalArgumentException("--base-url needs --token (a bearer token the app accepts)");
+                }
+                tokens = List.of(options.token);
+            }
+            LoadReport report = run(options, baseUrl, tokens, knownEmails);
+            write(options.report, report);
+            passed = report.passed();
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            if (issuer != null) {
+                issuer.close();
+            }
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext boot(Options options, LocalIssuer issuer) {
+        System.out.printf("Booting the app and seeding %d patients / %d appointments...%n",
+            options.patients, options.appointments);
+        List<String> args = new ArrayList<>(List.of(
+            "--server.port=0",
+            "--logging.level.root=WARN",
+            // Logs every search miss at ERROR; at these rates that's console I/O competing with the app.
+            "--logging.level.com.hospital.demo.service.PatientService=OFF",
+            "--spring.security.oauth2.resourceserver.jwt.jwk-set-uri=" + issuer.jwkSetUri(),
+            "--hospital.seed.enabled=true",
+            "--hospital.seed.patients=" + options.patients,
+            "--hospital.seed.appointments=" + options.appointments,
+            "--hospital.seed.gate-readiness=true",
+            // Keys fetched before the first request, like with Keycloak in the stack.
+            "--hospital.security.jwks.prefetch=true"));
+        options.properties.forEach(property -> args.add("--" + property));
+        // As command-line arguments, so they win over application.properties and the test profile.
+        return new SpringApplicationBuilder(DemoApplication.class)
+            .profiles("test")
+            .run(args.toArray(String[]::new));
+    }
+
+    // The readiness probe stays OUT_OF_SERVICE until the seeder and the warm-ups are done
+    // (hospital.seed.gate-readiness).
+    private static void awaitSeeded(String baseUrl) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/readiness")).build();
+        long deadline = System.nanoTime() + Duration.ofMinutes(30).toNanos();
+        while (client.send(readiness, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("App not ready after 30 minutes of seeding");
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    private static LoadReport run(Options options, String baseUrl, List<String> tokens, List<String> knownEmails)
+        throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        long start = System.nanoTime() + Duration.ofMillis(100).toNanos();
+        long measureFrom = start + options.warmup.toNanos();
+        long end = measureFrom + options.duration.toNanos();
+
+        Function<SplittableRandom, HttpRequest> search = random -> {
+            boolean hit = !knownEmails.isEmpty() && random.nextDouble() < options.searchHitRatio;
+            String email = hit ? knownEmails.get(random.nextInt(knownEmails.size())) : UUID.randomUUID() + "@hospital.com";
+            return request(baseUrl + "/api/v1/patients/search?email=" + URLEncoder.encode(email, StandardCharsets.UTF_8),
+                tokens, random, options.timeout);
+        };
+        Function<SplittableRandom, HttpRequest> appointments =
+            random -> request(baseUrl + "/api/v1/appointments", tokens, random, options.timeout);
+
+        // A miss is a 404 by design, not a failure.
+        List<OpenLoop> loops = List.of(
+            new OpenLoop("search", options.searchRps, options.poisson, search, Set.of(200, 404), client,
+                options.maxInFlight, start, measureFrom, end),
+            new OpenLoop("appointments", options.appointmentsRps, options.poisson, appointments, Set.of(200), client,
+                options.maxInFlight, start, measureFrom, end));
+
+        System.out.printf("Target %s: %s arrivals, search %.1f/s, appointments %.1f/s, %s warmup + %s measured%n",
+            baseUrl, options.poisson ? "poisson" : "constant", options.searchRps, options.appointmentsRps,
+            options.warmup, options.duration);
+        Instant startedAt = Instant.now();
+        List<Thread> dispatchers = new ArrayList<>();
+        for (OpenLoop loop : loops) {
+            // Platform threads: the schedule depends on waking up on time.
+            dispatchers.add(Thread.ofPlatform().name("load-" + loop.name).start(loop));
+        }
+        for (Thread dispatcher : dispatchers) {
+            dispatcher.join();
+        }
+        for (OpenLoop loop : loops) {
+            loop.awaitOutstanding();
+        }
+
+        double seconds = options.duration.toMillis() / 1000.0;
+        Map<String, LoadReport.Endpoint> endpoints = new LinkedHashMap<>();
+        for (OpenLoop loop : loops) {
+            if (loop.ratePerSecond <= 0) {
+                continue;
+            }
+            Map<String, Long> failures = loop.failureCounts();
+            long completed = loop.latency.getTotalCount();
+            endpoints.put(loop.name, new LoadReport.Endpoint(loop.ratePerSecond, Math.round(completed / seconds * 10) / 10.0,
+                completed, failures.values().stream().mapToLong(Long::longValue).sum(), loop.dropped.sum(), failures,
+                LoadReport.Percentiles.of(loop.latency), LoadReport.Percentiles.of(loop.serviceTime)));
+            writeHistogram(options.report, loop);
+        }
+
+        List<LoadReport.SloResult> slos = new ArrayList<>();
+        for (Slo slo : options.slos) {
+            LoadReport.Endpoint endpoint = endpoints.get(slo.endpoint);
+            if (endpoint == null) {
+                throw new IllegalArgumentException("--slo names " + slo.endpoint + ", which didn't run");
+            }
+            double actual = endpoint.latency().get(slo.percentile);
+            double limit = slo.limit.toNanos() / 1e6;
+            // Errors and drops break an SLO too: a fast 503 is not a pass.
+            boolean passed = actual <= limit && endpoint.failed() == 0 && endpoint.dropped() == 0;
+            slos.add(new LoadReport.SloResult(slo.endpoint, slo.percentile, limit, actual, passed));
+        }
+        LoadReport report = new LoadReport(startedAt, baseUrl, options.poisson ? "poisson" : "constant",
+            options.warmup.toMillis() / 1000.0, seconds, endpoints, slos,
+            slos.stream().allMatch(LoadReport.SloResult::passed));
+        print(report);
+        return report;
+    }
+
+    private static HttpRequest request(String uri, List<String> tokens, SplittableRandom random, Duration timeout) {
+        return HttpRequest.newBuilder(URI.create(uri))
+            .header("Authorization", "Bearer " + tokens.get(random.nextInt(tokens.size())))
+            .header("Accept", "application/json")
+            .timeout(timeout)
+            .GET()
+            .build();
+    }
+
+    private static void print(LoadReport report) {
+        System.out.printf("%n%-13s %9s %9s %8s %7s %9s %9s %9s %9s %9s%n",
+            "endpoint", "target/s", "actual/s", "requests", "failed", "p50 ms", "p99 ms", "p999 ms", "max ms", "svc p99");
+        report.endpoints().forEach((name, e) -> System.out.printf(
+            "%-13s %9.1f %9.1f %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+            name, e.targetRps(), e.achievedRps(), e.requests(), e.failed() + e.dropped(),
+            e.latency().p50(), e.latency().p99(), e.latency().p999(), e.latency().max(), e.serviceTime().p99()));
+        report.endpoints().forEach((name, e) -> {
+            if (!e.failures().isEmpty() || e.dropped() > 0) {
+                System.out.printf("%s failures: %s, dropped: %d%n", name, e.failures(), e.dropped());
+            }
+        });
+        for (LoadReport.SloResult slo : report.slos()) {
+            System.out.printf("SLO %s %s <= %.1f ms: %.2f ms %s%n", slo.endpoint(), slo.percentile(), slo.limitMs(),
+                slo.actualMs(), slo.passed() ? "PASS" : "FAIL");
+        }
+    }
+
+    private static void write(Path path, LoadReport report) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        JsonMapper.builder().build().writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+        System.out.println("Report: " + path.toAbsolutePath());
+    }
+
+    private static void writeHistogram(Path report, OpenLoop loop) {
+        Path file = report.resolveSibling(loop.name + ".hgrm");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+                // Microseconds in, milliseconds out.
+                loop.latency.outputPercentileDistribution(out, 1000.0);
+            }
+        } catch (IOException ex) {
+            System.err.println("Could not write " + file + ": " + ex);
+        }
+    }
+
+    record Slo(String endpoint, String percentile, Duration limit) {
+
+        // search:p99:50ms
+        static Slo parse(String value) {
+            String[] parts = value.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("--slo wants endpoint:percentile:limit, e.g. search:p99:50ms");
+            }
+            return new Slo(parts[0], parts[1], DurationStyle.detectAndParse(parts[2]));
+        }
+    }
+
+    static final class Options {
+
+        Duration duration = Duration.ofSeconds(30);
+        Duration warmup = Duration.ofSeconds(10);
+        Duration timeout = Duration.ofSeconds(30);
+        double searchRps = 200;
+        double appointmentsRps = 1;
+        double searchHitRatio = 0.5;
+        int searchKeys = 10_000;
+        boolean poisson;
+        int users = 100;
+        int maxInFlight = 2_000;
+        long patients = 100_000;
+        long appointments = 50_000;
+        Path report = Path.of("target", "loadtest", "report.json");
+        String baseUrl;
+        String token;
+        List<Slo> slos = new ArrayList<>();
+        List<String> properties = new ArrayList<>();
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                if (arg.isBlank()) {
+                    continue;
+                }
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                String value = arg.substring(eq + 1);
+                switch (arg.substring(2, eq)) {
+                    case "duration" -> options.duration = DurationStyle.detectAndParse(value);
+                    case "warmup" -> options.warmup = DurationStyle.detectAndParse(value);
+                    case "timeout" -> options.timeout = DurationStyle.detectAndParse(value);
+                    case "search-rps" -> options.searchRps = Double.parseDouble(value);
+                    case "appointments-rps" -> options.appointmentsRps = Double.parseDouble(value);
+                    case "search-hit-ratio" -> options.searchHitRatio = Double.parseDouble(value);
+                    case "search-keys" -> options.searchKeys = Integer.parseInt(value);
+                    case "arrival" -> options.poisson = switch (value) {
+                        case "constant" -> false;
+                        case "poisson" -> true;
+                        default -> throw new IllegalArgumentException("--arrival is constant or poisson");
+                    };
+                    case "users" -> options.users = Integer.parseInt(value);
+                    case "max-in-flight" -> options.maxInFlight = Integer.parseInt(value);
+                    case "patients" -> options.patients = Long.parseLong(value);
+                    case "appointments" -> options.appointments = Long.parseLong(value);
+                    case "report" -> options.report = Path.of(value);
+                    case "base-url" -> options.baseUrl = value;
+                    case "token" -> options.token = value;
+                    case "slo" -> options.slos.add(Slo.parse(value));
+                    // Passed to the in-process app, e.g. --property=hospital.limiter.max-concurrent=20
+                    case "property" -> options.properties.add(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            return options;
+        }
+    }
+}
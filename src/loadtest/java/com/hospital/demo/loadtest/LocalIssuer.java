@@ -0,0 +1,82 @@
+package com.hospital.demo.loadtest;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+// Stands in for Keycloak: an RSA key, its JWK set on a loopback HTTP port (what the app's jwk-set-uri points at),
+// and signed RS256 tokens for a handful of made-up users.
+final class LocalIssuer implements AutoCloseable {
+
+    private final RSAKey key;
+    private final HttpServer server;
+
+    private LocalIssuer(RSAKey key, HttpServer server) {
+        this.key = key;
+        this.server = server;
+    }
+
+    static LocalIssuer start() throws IOException, JOSEException {
+        RSAKey key = new RSAKeyGenerator(2048).keyID(UUID.randomUUID().toString()).generate();
+        byte[] jwks = new JWKSet(key.toPublicJWK()).toString().getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/certs", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, jwks.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(jwks);
+            }
+        });
+        server.start();
+        return new LocalIssuer(key, server);
+    }
+
+    String jwkSetUri() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/certs";
+    }
+
+    // One token per simulated user, valid for the whole run.
+    List<String> tokens(int users, Duration validFor) {
+        Instant now = Instant.now();
+        return IntStream.range(0, users).mapToObj(n -> sign(new JWTClaimsSet.Builder()
+            .issuer(jwkSetUri())
+            .subject("loadtest-" + n)
+            .claim("preferred_username", "loadtest-" + n)
+            .issueTime(Date.from(now))
+            .expirationTime(Date.from(now.plus(validFor)))
+            .build())).toList();
+    }
+
+    private String sign(JWTClaimsSet claims) {
+        try {
+            SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(), claims);
+            jwt.sign(new RSASSASigner(key));
+            return jwt.serialize();
+        } catch (JOSEException ex) {
+            throw new IllegalStateException("Could not sign a load-test token", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,134 @@
+package com.hospital.demo.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+// Sends one endpoint's requests at a fixed arrival rate, whether or not earlier ones have come back (open model).
+// A closed loop of N users waits for each answer before asking again, so when the app stalls it also stops
+// sending, and the stall shows up as one slow request instead of every request that should have gone out during
+// it (coordinated omission). Here request n is due at start + n/rate (or on a Poisson schedule), and its latency
+// is measured from that due time, not from when it was actually sent. A generator that falls behind therefore
+// still charges the wait to the app. Service time (from the actual send) is kept too, for comparison.
+// At most maxInFlight requests are outstanding. Arrivals past that are counted as dropped, not queued, so a dead
+// app can't make the generator run out of memory.
+final class OpenLoop implements Runnable {
+
+    // Up to an hour, to 3 significant digits, in microseconds.
+    private static final long HIGHEST_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    final String name;
+    final double ratePerSecond;
+    private final boolean poisson;
+    private final Function<SplittableRandom, HttpRequest> requests;
+    private final Set<Integer> expected;
+    private final HttpClient client;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final long startNanos;
+    private final long measureFromNanos;
+    private final long endNanos;
+
+    final Histogram latency = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+    final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+    final LongAdder sent = new LongAdder();
+    final LongAdder dropped = new LongAdder();
+    final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+    OpenLoop(String name, double ratePerSecond, boolean poisson, Function<SplittableRandom, HttpRequest> requests,
+             Set<Integer> expected, HttpClient client, int maxInFlight, long startNanos, long measureFromNanos,
+             long endNanos) {
+        this.name = name;
+        this.ratePerSecond = ratePerSecond;
+        this.poisson = poisson;
+        this.requests = requests;
+        this.expected = expected;
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.startNanos = startNanos;
+        this.measureFromNanos = measureFromNanos;
+        this.endNanos = endNanos;
+    }
+
+    @Override
+    public void run() {
+        if (ratePerSecond <= 0) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(name.hashCode());
+        double meanGapNanos = 1e9 / ratePerSecond;
+        double offset = 0;
+        for (long n = 0; ; n++) {
+            offset = poisson ? offset - Math.log(1 - random.nextDouble()) * meanGapNanos : n * meanGapNanos;
+            long due = startNanos + (long) offset;
+            if (due - endNanos >= 0) {
+                return;
+            }
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            fire(due, due - measureFromNanos >= 0, requests.apply(random));
+        }
+    }
+
+    private void fire(long due, boolean measured, HttpRequest request) {
+        if (!inFlight.tryAcquire()) {
+            if (measured) {
+                dropped.increment();
+            }
+            return;
+        }
+        if (measured) {
+            sent.increment();
+        }
+        long sentAt = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            long done = System.nanoTime();
+            try {
+                if (measured) {
+                    record(due, sentAt, done, response, error);
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void record(long due, long sentAt, long done, HttpResponse<?> response, Throwable error) {
+        latency.recordValue(Math.min(HIGHEST_MICROS, (done - due) / 1000));
+        serviceTime.recordValue(Math.min(HIGHEST_MICROS, (done - sentAt) / 1000));
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            failures.computeIfAbsent(cause.getClass().getSimpleName(), k -> new LongAdder()).increment();
+        } else if (!expected.contains(response.statusCode())) {
+            failures.computeIfAbsent(Integer.toString(response.statusCode()), k -> new LongAdder()).increment();
+        }
+    }
+
+    // Blocks until every request that went out has come back (or the client gave up on it).
+    void awaitOutstanding() throws InterruptedException {
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+    }
+
+    Map<String, Long> failureCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        failures.forEach((key, count) -> counts.put(key, count.sum()));
+        return counts;
+    }
+}
@@ -0,0 +1,153 @@
+package com.hospital.demo.cache;
+
+import com.hospital.demo.config.DataSeededEvent;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.model.Patient;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Data versions behind the ETags on our GET endpoints. A client that sends back an unchanged ETag gets a 304
+// before we run a query or serialize anything.
+// - Appointments: one table-wide counter, bumped on every committed appointment write and on patient
+//   updates/deletes (the report shows patient names). It's a LongAdder, so concurrent writers bump separate cells
+//   instead of fighting over one cache line. Its sum only ever grows, which is all an ETag needs.
+// - Patients: a fixed array of striped counters keyed by normalized email (the key /patients/search is read by).
+//   Two emails sharing a stripe only cost each other a spurious 200. Stripes sit a cache line apart.
+// Bumps happen after commit (Hibernate post-commit listeners), so an ETag never runs ahead of what readers can see
+// on the primary. A replica can still be behind it by any amount, so reads served under these tags go to the
+// primary (PrimaryReads), as do the cache fills behind patientTag.
+// Callers must take the tag *before* reading the data: a write in between then yields an older tag on newer data,
+// which only costs one extra 200 next time. The other way round could pin stale data behind a 304.
+// The epoch is per JVM start, so tags from before a restart (or from another instance) just miss.
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class DataVersions implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+    PostCommitDeleteEventListener, SmartInitializingSingleton {
+
+    static final int STRIPES = 1024;
+    // 8 longs = 64 bytes, one cache line per stripe.
+    static final int PADDING = 8;
+
+    EntityManagerFactory entityManagerFactory;
+    String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // Bumped when rows arrive behind Hibernate's back (the seeder). Invalidates every tag at once.
+    AtomicLong generation = new AtomicLong();
+    LongAdder appointments = new LongAdder();
+    AtomicLongArray patientStripes = new AtomicLongArray(STRIPES * PADDING);
+
+    // Registered after every other bean is up, so these listeners run after the in-memory views' ones
+    // (AppointmentRollup). The data has to change before its version does, or a reader could tag stale data as new.
+    @Override
+    public void afterSingletonsInstantiated() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    // Weak tags: the envelope's timestamp differs between two otherwise identical responses.
+    public String appointmentsTag(String variant) {
+        return "W/\"a-" + epoch + "-" + generation.get() + "-" + appointments.sum() + "-" + variant + "\"";
+    }
+
+    public String patientTag(String normalizedEmail) {
+        return "W/\"p-" + epoch + "-" + generation.get() + "-" + patientStripes.get(stripe(normalizedEmail)) + "\"";
+    }
+
+    public void bumpAppointments() {
+        appointments.increment();
+    }
+
+    public void bumpPatient(String normalizedEmail) {
+        if (normalizedEmail != null) {
+            patientStripes.incrementAndGet(stripe(normalizedEmail));
+        }
+    }
+
+    @EventListener(DataSeededEvent.class)
+    public void bumpAll() {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Appointment) {
+            bumpAppointments();
+        } else if (event.getEntity() instanceof Patient p) {
+            bumpPatient(p.getEmail());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Appointment) {
+            bumpAppointments();
+        } else if (event.getEntity() instanceof Patient p) {
+            bumpPatient(p.getEmail());
+            String[] names = event.getPersister().getPropertyNames();
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals("email") && event.getOldState() != null
+                    && !Objects.equals(event.getOldState()[i], p.getEmail())) {
+                    bumpPatient((String) event.getOldState()[i]);
+                }
+            }
+            bumpAppointments();
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Appointment) {
+            bumpAppointments();
+        } else if (event.getEntity() instanceof Patient p) {
+            bumpPatient(p.getEmail());
+            bumpAppointments();
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.getMappedClass() == Appointment.class || persister.getMappedClass() == Patient.class;
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    private static int stripe(String key) {
+        // Spread the hash so emails that differ only at the end don't cluster.
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return ((h * 0x9E3779B9) >>> 22) * PADDING;
+    }
+}
@@ -0,0 +1,118 @@
+package com.hospital.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hospital.demo.dto.PatientResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Read-through cache in front of PatientRepository, keyed by id and by normalized email.
+// Caffeine evicts with W-TinyLFU, so the flood of one-off emails from the load test can't push out the hot patients.
+// Misses are cached too (as Optional.empty()) with a shorter TTL so repeated 404 searches stop hitting Postgres.
+// Values are immutable PatientResponse copies, never entities: every reader shares the one cached instance.
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PatientCache {
+
+    Cache<UUID, Optional<PatientResponse>> byId;
+    Cache<String, Optional<PatientResponse>> byEmail;
+    DataVersions dataVersions;
+
+    public PatientCache(MeterRegistry meterRegistry,
+                        DataVersions dataVersions,
+                        @Value("${hospital.cache.patients.max-size:200000}") long maxSize,
+                        @Value("${hospital.cache.patients.ttl:10m}") Duration ttl,
+                        @Value("${hospital.cache.patients.negative-ttl:30s}") Duration negativeTtl) {
+        this.byId = build(maxSize, ttl, negativeTtl);
+        this.byEmail = build(maxSize, ttl, negativeTtl);
+        this.dataVersions = dataVersions;
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "patients.by-id");
+        CaffeineCacheMetrics.monitor(meterRegistry, byEmail, "patients.by-email");
+    }
+
+    public Optional<PatientResponse> getByEmail(String normalizedEmail,
+                                                Function<String, Optional<PatientResponse>> loader) {
+        return byEmail.get(normalizedEmail, loader);
+    }
+
+    public Optional<PatientResponse> getById(UUID id, Function<UUID, Optional<PatientResponse>> loader) {
+        return byId.get(id, loader);
+    }
+
+    // Only the keys we don't already hold go to the loader, in one call, so a report or batch lookup
+    // still costs a single IN query.
+    public Map<UUID, PatientResponse> getAllById(Collection<UUID> ids,
+                                                 Function<Set<UUID>, Map<UUID, PatientResponse>> loader) {
+        return getAll(byId, ids, loader);
+    }
+
+    // Same lookup, but the found patients go straight to `action` instead of into a fresh result map. The report
+    // joins 50k rows against these and keeps its own table, so the copy would only be garbage.
+    public void forEachById(Collection<UUID> ids, Function<Set<UUID>, Map<UUID, PatientResponse>> loader,
+                            BiConsumer<UUID, PatientResponse> action) {
+        lookup(byId, ids, loader).forEach((id, patient) -> patient.ifPresent(p -> action.accept(id, p)));
+    }
+
+    public Map<String, PatientResponse> getAllByEmail(Collection<String> normalizedEmails,
+                                                      Function<Set<String>, Map<String, PatientResponse>> loader) {
+        return getAll(byEmail, normalizedEmails, loader);
+    }
+
+    // Called after every write. Dropping both keys (rather than updating them) is what keeps a stale
+    // negative entry from hiding a patient that was just registered.
+    // The commit already bumped the patient's version, but a reader could have tagged the old cached entry with it
+    // before we got here, so we bump again once the entry is gone.
+    public void evict(UUID id, String normalizedEmail) {
+        if (id != null) {
+            byId.invalidate(id);
+        }
+        if (normalizedEmail != null) {
+            byEmail.invalidate(normalizedEmail);
+            dataVersions.bumpPatient(normalizedEmail);
+        }
+    }
+
+    private static <K> Map<K, PatientResponse> getAll(Cache<K, Optional<PatientResponse>> cache, Collection<K> keys,
+                                                      Function<Set<K>, Map<K, PatientResponse>> loader) {
+        Map<K, Optional<PatientResponse>> cached = lookup(cache, keys, loader);
+        Map<K, PatientResponse> result = new HashMap<>(cached.size());
+        cached.forEach((key, patient) -> patient.ifPresent(p -> result.put(key, p)));
+        return result;
+    }
+
+    private static <K> Map<K, Optional<PatientResponse>> lookup(Cache<K, Optional<PatientResponse>> cache,
+                                                                Collection<K> keys,
+                                                                Function<Set<K>, Map<K, PatientResponse>> loader) {
+        return cache.getAll(keys, missing -> {
+            Map<K, PatientResponse> found = loader.apply(Set.copyOf(missing));
+            Map<K, Optional<PatientResponse>> loaded = new HashMap<>(missing.size());
+            for (K key : missing) {
+                loaded.put(key, Optional.ofNullable(found.get(key)));
+            }
+            return loaded;
+        });
+    }
+
+    private static <K> Cache<K, Optional<PatientResponse>> build(long maxSize, Duration ttl, Duration negativeTtl) {
+        return Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(Expiry.<K, Optional<PatientResponse>>creating(
+                (key, value) -> value.isPresent() ? ttl : negativeTtl))
+            .recordStats()
+            .build();
+    }
+}
@@ -0,0 +1,20 @@
+package com.hospital.demo.config;
+
+import java.util.List;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tools.jackson.databind.JacksonModule;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+// Boot builds the CBORMapper for us (with every JacksonModule bean, like the JSON one) but has nothing for Smile,
+// so this is the Smile equivalent. Both are wired into MVC in WebMvcConfig.
+@Configuration
+public class BinaryFormatsConfig {
+
+    @Bean
+    public SmileMapper smileMapper(List<JacksonModule> modules) {
+        return SmileMapper.builder()
+            .addModules(modules)
+            .build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.hospital.demo.config;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.stereotype.Component;
+
+// Loads generated rows straight through JDBC, bypassing JPA entirely.
+// Rows are produced in independent slices on a fixed pool of threads, and each slice goes to the database on its
+// own connection: COPY FROM STDIN on Postgres, a plain JDBC batch anywhere else (H2 in tests).
+// Every slice commits on its own, so no single transaction ever holds millions of rows.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class BulkLoader {
+
+    DataSource dataSource;
+
+    // Builds row number `index` of the table. Each slice gets its own SplittableRandom, so generators need no locking.
+    @FunctionalInterface
+    public interface RowGenerator {
+        Object[] row(long index, SplittableRandom random);
+    }
+
+    public long load(String table, List<String> columns, long rows, int sliceSize, int parallelism,
+                     long seed, RowGenerator generator) {
+        long started = System.nanoTime();
+        AtomicLong written = new AtomicLong();
+        long slices = (rows + sliceSize - 1) / sliceSize;
+        long logEvery = Math.max(1, slices / 10);
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, namedThreads("bulk-" + table));
+        try {
+            List<Future<?>> pending = new ArrayList<>();
+            for (long slice = 0; slice < slices; slice++) {
+                long from = slice * sliceSize;
+                long to = Math.min(rows, from + sliceSize);
+                long sliceNo = slice;
+                pending.add(pool.submit(() -> {
+                    List<Object[]> batch = generate(from, to, new SplittableRandom(seed + sliceNo), generator);
+                    write(table, columns, batch);
+                    long done = written.addAndGet(batch.size());
+                    if ((sliceNo + 1) % logEvery == 0) {
+                        log.info("Loaded {}/{} {} ({} rows/s)", done, rows, table, rate(done, started));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : pending) {
+                f.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bulk load of " + table + " interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Bulk load of " + table + " failed", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        log.info("Loaded {} {} in {} ms ({} rows/s, {} threads)",
+            written.get(), table, (System.nanoTime() - started) / 1_000_000, rate(written.get(), started), parallelism);
+        return written.get();
+    }
+
+    private static List<Object[]> generate(long from, long to, SplittableRandom random, RowGenerator generator) {
+        List<Object[]> batch = new ArrayList<>((int) (to - from));
+        for (long i = from; i < to; i++) {
+            batch.add(generator.row(i, random));
+        }
+        return batch;
+    }
+
+    private void write(String table, List<String> columns, List<Object[]> batch) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                copy(connection.unwrap(PGConnection.class), table, columns, batch);
+            } else {
+                insert(connection, table, columns, batch);
+            }
+        }
+    }
+
+    private static void copy(PGConnection connection, String table, List<String> columns, List<Object[]> batch)
+        throws Exception {
+        StringBuilder csv = new StringBuilder(batch.size() * 96);
+        for (Object[] row : batch) {
+            for (int c = 0; c < row.length; c++) {
+                if (c > 0) {
+                    csv.append(',');
+                }
+                appendCsv(csv, row[c]);
+            }
+            csv.append('\n');
+        }
+        String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+        connection.getCopyAPI().copyIn(sql, new StringReader(csv.toString()));
+    }
+
+    private static void insert(Connection connection, String table, List<String> columns, List<Object[]> batch)
+        throws SQLException {
+        String placeholders = String.join(", ", columns.stream().map(c -> "?").toList());
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" + placeholders + ")";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (Object[] row : batch) {
+                for (int c = 0; c < row.length; c++) {
+                    ps.setObject(c + 1, row[c]);
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static void appendCsv(StringBuilder csv, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (value instanceof CharSequence) {
+            csv.append('"').append(text.replace("\"", "\"\"")).append('"');
+        } else {
+            csv.append(text);
+        }
+    }
+
+    private static long rate(long rows, long startedNanos) {
+        long elapsed = Math.max(1, System.nanoTime() - startedNanos);
+        return rows * 1_000_000_000L / elapsed;
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread t = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
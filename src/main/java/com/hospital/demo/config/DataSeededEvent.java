@@ -0,0 +1,6 @@
+package com.hospital.demo.config;
+
+// Published once DataSeeder has finished its COPY load. The rows went in behind Hibernate's back,
+// so anything that mirrors the tables in memory should rebuild on this.
+public record DataSeededEvent(long patients, long appointments) {
+}
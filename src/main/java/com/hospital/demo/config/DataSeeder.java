@@ -2,81 +2,178 @@ package com.hospital.demo.config;
 
 import com.github.javafaker.Faker;
 
-import com.hospital.demo.model.Appointment;
-import com.hospital.demo.model.Patient;
-import com.hospital.demo.repository.AppointmentRepository;
 import com.hospital.demo.repository.PatientRepository;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
 
 @Component
+@ConditionalOnProperty(name = "hospital.seed.enabled", havingValue = "true", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class DataSeeder implements CommandLineRunner {
 
+    static final List<String> PATIENT_COLUMNS = List.of("id", "first_name", "last_name", "email");
+    static final List<String> APPOINTMENT_COLUMNS = List.of("id", "patient_id", "appointment_time", "notes");
+    static final int MINUTES_IN_30_DAYS = 30 * 24 * 60;
+    // One row: written when a seed starts, completed = true once every slice is in. A database with rows but no
+    // marker predates it and counts as seeded.
+    static final String CREATE_MARKER =
+        "CREATE TABLE IF NOT EXISTS seed_marker (id INT PRIMARY KEY, completed BOOLEAN NOT NULL)";
+
     PatientRepository patientRepo;
-    AppointmentRepository apptRepo;
-    Faker faker = new Faker();
+    BulkLoader bulkLoader;
+    ApplicationEventPublisher eventPublisher;
+    SeedHealthIndicator seedHealth;
+    JdbcTemplate jdbc;
+
+    @NonFinal
+    @Value("${hospital.seed.patients:100000}")
+    long patients;
+
+    @NonFinal
+    @Value("${hospital.seed.appointments:50000}")
+    long appointments;
+
+    @NonFinal
+    @Value("${hospital.seed.slice-size:10000}")
+    int sliceSize;
+
+    // 0 = one thread per core, capped so seeding leaves connections in the Hikari pool for real traffic.
+    @NonFinal
+    @Value("${hospital.seed.parallelism:0}")
+    int parallelism;
 
     @Override
-    // Note: We do NOT use @Transactional on the whole method because
-    // 150,000 records in one transaction might overwhelm the Postgres Undo Log/WAL.
+    // Runs on its own thread so the app can start serving while millions of rows stream in. The readiness probe
+    // reports its progress through SeedHealthIndicator.
+    // Each COPY slice commits on its own, so we never hold one huge transaction open against the Postgres WAL.
     public void run(String... args) {
-        if (patientRepo.count() > 0) {
+        seedHealth.started();
+        Thread seeder = new Thread(() -> {
+            try {
+                if (seed()) {
+                    seedHealth.done();
+                } else {
+                    seedHealth.skipped();
+                }
+            } catch (RuntimeException ex) {
+                seedHealth.failed(ex);
+                log.error("Seeding failed", ex);
+            }
+        }, "data-seeder");
+        seeder.setDaemon(true);
+        seeder.start();
+    }
+
+    // False if the database already had data.
+    // A seed that was cut short (crash, redeploy) left its marker at completed = false. Its rows are thrown away
+    // and the seed starts over, rather than serving a half-filled database for good.
+    public boolean seed() {
+        jdbc.execute(CREATE_MARKER);
+        List<Boolean> marker = jdbc.queryForList("SELECT completed FROM seed_marker WHERE id = 1", Boolean.class);
+        if (marker.isEmpty() ? patientRepo.count() > 0 : marker.getFirst()) {
             log.info("Database already seeded. Skipping...");
-            return;
+            return false;
+        }
+        if (!marker.isEmpty()) {
+            log.warn("The last seed did not finish. Clearing its rows and seeding again...");
+            jdbc.execute("TRUNCATE TABLE appointments");
+            jdbc.execute("TRUNCATE TABLE patients");
+        } else {
+            jdbc.update("INSERT INTO seed_marker (id, completed) VALUES (1, FALSE)");
         }
 
-        seedPatients();
-        seedAppointments();
+        int threads = parallelism > 0 ? parallelism : Math.min(Runtime.getRuntime().availableProcessors(), 4);
+        SeedDictionary dictionary = SeedDictionary.build(new Faker());
+        // Patient ids are a pure function of (salt, epoch, row number), so appointments can point at a random
+        // patient without us keeping every generated id in memory.
+        long salt = ThreadLocalRandom.current().nextLong();
+        long epochMillis = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
 
-        log.info("System baseline established. 100k Patients, 50k Appointments.");
-    }
+        log.info("Seeding {} patients and {} appointments on {} threads...", patients, appointments, threads);
+        long started = System.nanoTime();
+
+        bulkLoader.load("patients", PATIENT_COLUMNS, patients, sliceSize, threads, salt, (i, random) -> {
+            UUID id = patientId(salt, epochMillis, i);
+            return new Object[] {id, dictionary.firstName(random), dictionary.lastName(random), id + "@hospital.com"};
+        });
 
-    private void seedPatients() {
-        log.info("Generating 100,000 patients in batches of 1,000...");
-        for (int i = 0; i < 100; i++) {
-            List<Patient> batch = IntStream.range(0, 1000).mapToObj(n ->
-                Patient.builder()
-                    .firstName(faker.name().firstName())
-                    .lastName(faker.name().lastName())
-                    .email(UUID.randomUUID() + "@hospital.com")
-                    .build()
-            ).toList();
-            patientRepo.saveAll(batch);
+        if (patients > 0) {
+            bulkLoader.load("appointments", APPOINTMENT_COLUMNS, appointments, sliceSize, threads, ~salt, (i, random) ->
+                new Object[] {
+                    timeOrderedUuid(epochMillis, i, random),
+                    patientId(salt, epochMillis, random.nextLong(patients)),
+                    now.plusDays(1).plusMinutes(random.nextInt(MINUTES_IN_30_DAYS)),
+                    dictionary.sentence(random)
+                });
         }
+
+        jdbc.update("UPDATE seed_marker SET completed = TRUE WHERE id = 1");
+        log.info("System baseline established. {} Patients, {} Appointments in {} s.",
+            patients, appointments, (System.nanoTime() - started) / 1_000_000_000L);
+        eventPublisher.publishEvent(new DataSeededEvent(patients, appointments));
+        return true;
     }
 
-    private void seedAppointments() {
-        log.info("Fetching patient IDs for appointment generation...");
-        List<UUID> patientIds = patientRepo.findAllIds();
+    static UUID patientId(long salt, long epochMillis, long index) {
+        return timeOrderedUuid(epochMillis, index, new SplittableRandom(salt ^ (index * 0x9E3779B97F4A7C15L)));
+    }
+
+    // Version 7 (RFC 9562), the same shape as the ids Hibernate generates for these entities: 48 bits of Unix
+    // millis, a 12-bit counter, then random bits. Row n gets millis epoch + n / 4096 and counter n % 4096, so ids
+    // rise with the row number and each loader slice appends at its own point of the index.
+    static UUID timeOrderedUuid(long epochMillis, long sequence, SplittableRandom random) {
+        long msb = ((epochMillis + (sequence >>> 12)) << 16) | 0x7000L | (sequence & 0xFFFL);
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
 
-        log.info("Generating 50,000 appointments...");
-        List<Appointment> batch = new ArrayList<>();
+    // Version 4 / IETF variant bits, the random ids these tables had before. Kept for KeyOrderBenchmark.
+    static UUID randomUuid(SplittableRandom random) {
+        long msb = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
 
-        for (int i = 1; i <= 50000; i++) {
-            batch.add(Appointment.builder()
-                .patientId(patientIds.get(faker.random().nextInt(0, 99999)))
-                .appointmentTime(LocalDateTime.now().plusDays(faker.random().nextInt(1, 30)))
-                .notes(faker.lorem().sentence(10))
-                .build());
+    // Faker is slow and not thread-safe, so we sample it once up front and let the loader threads pick from
+    // the samples. The data still looks like before, but generation costs a few array lookups per row.
+    record SeedDictionary(String[] firstNames, String[] lastNames, String[] sentences) {
 
-            if (i % 1000 == 0) {
-                apptRepo.saveAll(batch);
-                batch.clear();
-                log.info("Saved {} appointments...", i);
-            }
+        static SeedDictionary build(Faker faker) {
+            return new SeedDictionary(
+                IntStream.range(0, 2000).mapToObj(n -> faker.name().firstName()).toArray(String[]::new),
+                IntStream.range(0, 2000).mapToObj(n -> faker.name().lastName()).toArray(String[]::new),
+                IntStream.range(0, 5000).mapToObj(n -> faker.lorem().sentence(10)).toArray(String[]::new));
+        }
+
+        String firstName(SplittableRandom random) {
+            return firstNames[random.nextInt(firstNames.length)];
+        }
+
+        String lastName(SplittableRandom random) {
+            return lastNames[random.nextInt(lastNames.length)];
+        }
+
+        String sentence(SplittableRandom random) {
+            return sentences[random.nextInt(sentences.length)];
         }
     }
-}
\ No newline at end of file
+}
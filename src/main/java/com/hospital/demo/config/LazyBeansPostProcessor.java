@@ -0,0 +1,62 @@
+package com.hospital.demo.config;
+
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.MethodMetadata;
+import org.springframework.stereotype.Component;
+
+// Marks the beans of hospital.startup.lazy-packages lazy, so they're built on first use instead of at startup.
+// The default is springdoc: the OpenAPI model and its resources are only needed when someone opens /v3/api-docs or
+// the Swagger UI, and nobody does in production.
+// This is the targeted version of spring.main.lazy-initialization, which would also push the datasource, Hibernate
+// and the caches onto the first request and make it the slow one.
+// Beans the container has to create anyway (post-processors, MVC configurers) still start eagerly.
+@Slf4j
+@Component
+public class LazyBeansPostProcessor implements BeanFactoryPostProcessor, EnvironmentAware {
+
+    private List<String> packages = List.of();
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        packages = Binder.get(environment)
+            .bind("hospital.startup.lazy-packages", String[].class)
+            .map(List::of)
+            .orElse(List.of());
+    }
+
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+        if (packages.isEmpty()) {
+            return;
+        }
+        int marked = 0;
+        for (String name : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition definition = beanFactory.getBeanDefinition(name);
+            String declaredBy = declaringClass(definition);
+            if (declaredBy != null && packages.stream().anyMatch(p -> declaredBy.startsWith(p + "."))) {
+                definition.setLazyInit(true);
+                marked++;
+            }
+        }
+        log.debug("Marked {} beans from {} lazy", marked, packages);
+    }
+
+    // @Bean methods have no bean class name until they're resolved; the class declaring the method decides.
+    private static String declaringClass(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated) {
+            MethodMetadata factoryMethod = annotated.getFactoryMethodMetadata();
+            if (factoryMethod != null) {
+                return factoryMethod.getDeclaringClassName();
+            }
+        }
+        return definition.getBeanClassName();
+    }
+}
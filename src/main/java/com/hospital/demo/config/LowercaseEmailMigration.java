@@ -0,0 +1,70 @@
+package com.hospital.demo.config;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// PatientService stores and looks up emails lower-cased. Rows written before that keep the case the client sent,
+// and a lower-cased lookup would never find them, so they are lower-cased here once, before the seeder or any
+// request gets to the table. An address stored twice in different cases is left alone (lower-casing it would
+// break the unique constraint) and logged for someone to merge by hand.
+// On Postgres a unique index on lower(email) then keeps a second spelling of one address from being stored again,
+// whichever path writes it. H2 has no expression indexes, so tests go without.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LowercaseEmailMigration implements CommandLineRunner {
+
+    static final String COUNT_MIXED_CASE = "SELECT count(*) FROM patients WHERE email <> lower(email)";
+    static final String LOWERCASE = """
+        UPDATE patients SET email = lower(email)
+        WHERE email <> lower(email)
+          AND lower(email) IN (SELECT lower(email) FROM patients GROUP BY lower(email) HAVING count(*) = 1)""";
+    static final String UNIQUE_INDEX =
+        "CREATE UNIQUE INDEX IF NOT EXISTS uk_patient_email_lower ON patients (lower(email))";
+
+    JdbcTemplate jdbc;
+
+    @Override
+    public void run(String... args) {
+        migrate();
+    }
+
+    // Rows lower-cased.
+    public int migrate() {
+        int updated = 0;
+        long mixed = jdbc.queryForObject(COUNT_MIXED_CASE, Long.class);
+        if (mixed > 0) {
+            updated = jdbc.update(LOWERCASE);
+            log.info("Lower-cased {} stored patient emails", updated);
+            if (updated < mixed) {
+                log.warn("{} patient emails differ from another patient's only in case and were left as they are. "
+                    + "Those patients can't be found by email until they are merged", mixed - updated);
+                return updated;
+            }
+        }
+        if (isPostgres()) {
+            try {
+                jdbc.execute(UNIQUE_INDEX);
+            } catch (DataAccessException ex) {
+                log.warn("Could not create the unique index on lower(email)", ex);
+            }
+        }
+        return updated;
+    }
+
+    private boolean isPostgres() {
+        return "PostgreSQL".equals(jdbc.execute(
+            (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.hospital.demo.config;
+
+import java.sql.Connection;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Reads that must see every commit the primary has made, even with read replicas configured:
+// - cache fills (PatientCache). A replica behind a delete or update would put the old row straight back after the
+//   write evicted it, for the whole TTL.
+// - anything served under a DataVersions ETag. The tags count commits on the primary, so rows from a replica that
+//   hasn't replayed them yet would go out under a tag that says they're current, and then sit behind 304s.
+// With replicas each call gets a read-only transaction of its own, pinned to the primary (ReadReplicas.onPrimary).
+// Its own, because a transaction already reading from a replica would keep using that connection. Nested calls run
+// in the outer one's. Without replicas everything already reads the primary, and the call runs as it stands.
+// connectedTx() is for threads that must hold a primary connection before they take on work (ChunkedLoader's
+// helpers). The routing proxy only borrows a connection at the first statement, so it borrows one up front.
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PrimaryReads {
+
+    ObjectProvider<ReadReplicas> readReplicas;
+    DataSource dataSource;
+    TransactionTemplate ownTx;
+    TransactionOperations connectedTx = new TransactionOperations() {
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return connected(action);
+        }
+    };
+
+    public PrimaryReads(ObjectProvider<ReadReplicas> readReplicas, DataSource dataSource,
+                        PlatformTransactionManager transactionManager) {
+        this.readReplicas = readReplicas;
+        this.dataSource = dataSource;
+        this.ownTx = new TransactionTemplate(transactionManager);
+        this.ownTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ownTx.setReadOnly(true);
+    }
+
+    public <T> T get(Supplier<T> reads) {
+        ReadReplicas replicas = readReplicas.getIfAvailable();
+        if (replicas == null || replicas.pinned()) {
+            return reads.get();
+        }
+        return replicas.onPrimary(() -> ownTx.execute(status -> reads.get()));
+    }
+
+    public void run(Runnable reads) {
+        get(() -> {
+            reads.run();
+            return null;
+        });
+    }
+
+    // A read-only transaction of its own on the primary, with its connection already borrowed when `action` starts.
+    // Calls to get()/run() inside it join it.
+    public TransactionOperations connectedTx() {
+        return connectedTx;
+    }
+
+    private <T> T connected(TransactionCallback<T> action) {
+        TransactionCallback<T> borrowing = status -> {
+            borrowConnection();
+            return action.doInTransaction(status);
+        };
+        ReadReplicas replicas = readReplicas.getIfAvailable();
+        if (replicas == null) {
+            return ownTx.execute(borrowing);
+        }
+        return replicas.onPrimary(() -> ownTx.execute(borrowing));
+    }
+
+    // The transaction's connection, fetched through the lazy proxy if there is one. Blocks for as long as the pool
+    // keeps us waiting, and throws if it gives up or the thread is interrupted.
+    private void borrowConnection() {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            if (connection instanceof ConnectionProxy proxy) {
+                proxy.getTargetConnection();
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+}
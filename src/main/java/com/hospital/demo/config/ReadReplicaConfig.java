@@ -0,0 +1,73 @@
+package com.hospital.demo.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+// Read replicas, only when hospital.datasource.replica.urls is set (see ReadReplicas for the routing).
+// Defining a DataSource makes Boot's own back off, so the primary pool is built here the way Boot would, from
+// spring.datasource.* and spring.datasource.hikari.*. Replica pools get the primary's size and credentials unless
+// overridden, and a short connection timeout: a replica that can't hand out a connection quickly is skipped rather
+// than waited on.
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "hospital.datasource.replica.urls")
+public class ReadReplicaConfig {
+
+    // Zero when the replica has replayed everything it received (an idle primary isn't lag), and on a primary.
+    static final String POSTGRES_LAG_QUERY = "SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = "
+        + "pg_last_wal_replay_lsn() THEN 0 ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END, 0)";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadReplicas readReplicas(HikariDataSource primaryDataSource,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${hospital.datasource.replica.urls}") List<String> urls,
+                                     @Value("${hospital.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                     @Value("${hospital.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                     @Value("${hospital.datasource.replica.maximum-pool-size:0}") int poolSize,
+                                     @Value("${hospital.datasource.replica.connection-timeout:1s}") Duration connectionTimeout,
+                                     @Value("${hospital.datasource.replica.max-lag:1s}") Duration maxLag,
+                                     @Value("${hospital.datasource.replica.lag-query:" + POSTGRES_LAG_QUERY + "}") String lagQuery) {
+        List<HikariDataSource> pools = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + (pools.size() + 1));
+            config.setJdbcUrl(url.trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setDriverClassName(primaryDataSource.getDriverClassName());
+            config.setMaximumPoolSize(poolSize > 0 ? poolSize : primaryDataSource.getMaximumPoolSize());
+            config.setConnectionTimeout(connectionTimeout.toMillis());
+            config.setReadOnly(true);
+            // A replica that's down at startup just starts out of rotation.
+            config.setInitializationFailTimeout(-1);
+            // Not beans, so Boot's pool metrics don't see them: hikaricp_connections_* with pool="replica-N".
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.add(new HikariDataSource(config));
+        }
+        return new ReadReplicas(primaryDataSource, pools, maxLag, lagQuery, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicas readReplicas) {
+        return readReplicas.routing();
+    }
+}
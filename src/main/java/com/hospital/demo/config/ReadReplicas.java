@@ -0,0 +1,194 @@
+package com.hospital.demo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+// Sends read-only transactions to replicas. Everything else stays on the primary.
+// routing() is a LazyConnectionDataSourceProxy: the physical connection is only fetched at the first statement, by
+// which time the transaction manager has marked it read-only, so @Transactional(readOnly = true) (and Spring Data's
+// own read methods) pick readers() and everything else the primary.
+// readers() round-robins over the replicas that answered the last lag check within max-lag. A replica that is
+// behind, unreachable or out of connections is skipped until a later check clears it. With none left the read goes
+// to the primary, so losing every replica costs primary load, not errors.
+// Lag is measured every lag-check-interval with lag-query, in seconds. That is only how far behind a replica was at
+// the last check: by the time a read lands it may have fallen further behind, so "within max-lag" is a routing
+// hint, not a bound on staleness.
+// onPrimary() pins reads on the calling thread to the primary, for answers that must not be stale: cache fills and
+// anything served under an ETag (see PrimaryReads). It only takes effect for a connection fetched inside it.
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReadReplicas implements DisposableBean {
+
+    DataSource primary;
+    List<Replica> replicas;
+    double maxLagSeconds;
+    String lagQuery;
+    AtomicInteger next = new AtomicInteger();
+    ThreadLocal<Boolean> pinned = new ThreadLocal<>();
+    Counter fallbacks;
+    DataSource readers = new Readers();
+
+    public ReadReplicas(DataSource primary, List<HikariDataSource> replicas, Duration maxLag, String lagQuery,
+                        MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.lagQuery = lagQuery;
+        this.fallbacks = Counter.builder("datasource.replica.fallbacks")
+            .description("Read-only connections served by the primary because no replica was usable")
+            .register(meterRegistry);
+        for (Replica replica : this.replicas) {
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagSeconds)
+                .tag("replica", replica.name())
+                .description("Replication lag at the last check, NaN while unreachable")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        }
+    }
+
+    public DataSource routing() {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        proxy.setReadOnlyDataSource(readers);
+        // Stated up front so the proxy doesn't borrow a connection at startup to find out (Hikari's defaults).
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return proxy;
+    }
+
+    public DataSource readers() {
+        return readers;
+    }
+
+    public <T> T onPrimary(Supplier<T> reads) {
+        Boolean outer = pinned.get();
+        pinned.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (outer == null) {
+                pinned.remove();
+            }
+        }
+    }
+
+    // True inside onPrimary on this thread.
+    public boolean pinned() {
+        return pinned.get() != null;
+    }
+
+    @Scheduled(fixedDelayString = "${hospital.datasource.replica.lag-check-interval:1s}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            replica.check();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(r -> r.pool.close());
+    }
+
+    final class Readers extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return connect(DataSource::getConnection);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return connect(dataSource -> dataSource.getConnection(username, password));
+        }
+
+        private Connection connect(Connect connect) throws SQLException {
+            if (pinned.get() != null) {
+                return connect.to(primary);
+            }
+            int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (!replica.usable) {
+                    continue;
+                }
+                try {
+                    return connect.to(replica.pool);
+                } catch (SQLFeatureNotSupportedException ex) {
+                    // The pool can't do what was asked (Hikari and per-call credentials). That's not the replica's fault.
+                    throw ex;
+                } catch (SQLException ex) {
+                    replica.down(ex);
+                }
+            }
+            fallbacks.increment();
+            return connect.to(primary);
+        }
+    }
+
+    @FunctionalInterface
+    interface Connect {
+        Connection to(DataSource dataSource) throws SQLException;
+    }
+
+    final class Replica {
+
+        final HikariDataSource pool;
+        // Unusable until the first check says otherwise.
+        volatile boolean usable;
+        volatile double lagSeconds = Double.NaN;
+
+        Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        String name() {
+            return pool.getPoolName();
+        }
+
+        void check() {
+            try (Connection connection = pool.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout(Math.max(1, (int) Math.ceil(maxLagSeconds)));
+                try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                    rs.next();
+                    double lag = rs.getDouble(1);
+                    boolean wasUsable = usable;
+                    lagSeconds = lag;
+                    usable = lag <= maxLagSeconds;
+                    if (wasUsable != usable) {
+                        log.info("Replica {} {} ({}s behind, max {}s)", name(),
+                            usable ? "back in rotation" : "taken out of rotation", lag, maxLagSeconds);
+                    }
+                }
+            } catch (SQLException | RuntimeException ex) {
+                down(ex);
+            }
+        }
+
+        void down(Exception ex) {
+            lagSeconds = Double.NaN;
+            if (usable) {
+                usable = false;
+                log.warn("Replica {} taken out of rotation: {}", name(), ex.toString());
+            }
+        }
+    }
+}
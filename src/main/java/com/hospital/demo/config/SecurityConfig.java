@@ -1,6 +1,18 @@
 package com.hospital.demo.config;
 
+import com.hospital.demo.security.CachingJwtDecoder;
+import com.hospital.demo.security.RefreshingJwkSource;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.Customizer;
@@ -11,6 +23,7 @@ import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+@Slf4j
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
@@ -18,6 +31,9 @@ public class SecurityConfig {
     @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}")
     private String jwkSetUri;
 
+    @Value("${hospital.security.jwks.prefetch:true}")
+    private boolean prefetchJwks;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) {
         http
@@ -33,10 +49,41 @@ public class SecurityConfig {
     }
 
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JWKSource<SecurityContext> jwkSource(@Value("${hospital.security.jwks.ttl:15m}") Duration ttl,
+                                                @Value("${hospital.security.jwks.refresh-ahead:1m}") Duration refreshAhead,
+                                                @Value("${hospital.security.jwks.refresh-timeout:5s}") Duration refreshTimeout,
+                                                @Value("${hospital.security.jwks.outage-tolerance:1h}") Duration outageTolerance) {
+        return RefreshingJwkSource.create(this.jwkSetUri, ttl, refreshAhead, refreshTimeout, outageTolerance);
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${hospital.security.jwt-cache.max-size:10000}") long maxSize,
+                                 @Value("${hospital.security.jwt-cache.max-ttl:5m}") Duration maxTtl) {
         // We create a decoder that points to the internal Docker JWK URL
-        // By using NimbusJwtDecoder.withJwkSetUri(), we bypass the default
+        // By going through the JWK set (not the issuer), we bypass the default
         // Issuer validation that causes the 401 mismatch.
-        return NimbusJwtDecoder.withJwkSetUri(this.jwkSetUri).build();
+        return new CachingJwtDecoder(NimbusJwtDecoder.withJwkSource(jwkSource).build(),
+            meterRegistry, maxSize, maxTtl, Clock.systemUTC());
+    }
+
+    // Pull the keys once at startup so the first authenticated request doesn't wait on Keycloak.
+    // This runs in the background: if Keycloak isn't up yet, the first request fetches the keys instead.
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> jwksPrefetch(JWKSource<SecurityContext> jwkSource) {
+        return event -> {
+            if (!prefetchJwks) {
+                return;
+            }
+            Thread.ofVirtual().name("jwks-prefetch").start(() -> {
+                try {
+                    int keys = jwkSource.get(new JWKSelector(new JWKMatcher.Builder().build()), null).size();
+                    log.info("Prefetched {} signing keys from {}", keys, jwkSetUri);
+                } catch (Exception ex) {
+                    log.warn("JWK set prefetch failed, keys will be fetched on first request: {}", ex.getMessage());
+                }
+            });
+        };
     }
 }
@@ -0,0 +1,130 @@
+package com.hospital.demo.config;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.health.contributor.Health;
+import org.springframework.boot.health.contributor.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// The "seed" health contributor, part of the readiness group (/actuator/health/readiness).
+// Seeding runs in the background and the API answers while it does, so by default this only reports where the
+// seeder is. With hospital.seed.gate-readiness=true the probe reads OUT_OF_SERVICE until seeding is over, for load
+// tests that must not start against a half-filled database. A failed seed doesn't gate either way: the app still
+// works on whatever rows made it in, and the details say what went wrong.
+// It also reports the warm-ups: the in-memory views (name index, stats rollup, report snapshot) that are built from
+// the database once the app is ready. Each runs on a thread of its own (warmUp), so readiness doesn't wait on
+// their table scans. Until one is in, its reads are answered without it: an empty name search, zero counts, the
+// report from the database. gate-readiness holds the probe for them too.
+// Always defined, even with seeding off, because the readiness group names it.
+@Component
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class SeedHealthIndicator implements HealthIndicator {
+
+    enum State { DISABLED, RUNNING, SKIPPED, DONE, FAILED }
+
+    final boolean gateReadiness;
+    volatile State state = State.DISABLED;
+    volatile Instant startedAt;
+    volatile Instant finishedAt;
+    volatile String error;
+    // By name, sorted so the details read the same every time.
+    final Map<String, Warmup> warmups = new ConcurrentSkipListMap<>();
+
+    public SeedHealthIndicator(@Value("${hospital.seed.gate-readiness:false}") boolean gateReadiness) {
+        this.gateReadiness = gateReadiness;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void skipped() {
+        finished(State.SKIPPED);
+    }
+
+    void done() {
+        finished(State.DONE);
+    }
+
+    void failed(Exception ex) {
+        error = ex.toString();
+        finished(State.FAILED);
+    }
+
+    private void finished(State outcome) {
+        finishedAt = Instant.now();
+        state = outcome;
+    }
+
+    // Runs `work` on a daemon thread named warmup-<name> and reports it under details.warmups.<name>.
+    public void warmUp(String name, Runnable work) {
+        Warmup warmup = new Warmup();
+        warmups.put(name, warmup);
+        Thread thread = new Thread(() -> {
+            try {
+                work.run();
+                warmup.finished(State.DONE, null);
+            } catch (RuntimeException ex) {
+                warmup.finished(State.FAILED, ex);
+                log.error("Warm-up {} failed", name, ex);
+            }
+            if (warmups.values().stream().noneMatch(w -> w.state == State.RUNNING)) {
+                log.info("Warm-ups finished {} ms after JVM start",
+                    ManagementFactory.getRuntimeMXBean().getUptime());
+            }
+        }, "warmup-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public Health health() {
+        State current = state;
+        boolean running = current == State.RUNNING || warmups.values().stream().anyMatch(w -> w.state == State.RUNNING);
+        Health.Builder health = gateReadiness && running ? Health.outOfService() : Health.up();
+        health.withDetails(details(current, startedAt, finishedAt, error));
+        if (!warmups.isEmpty()) {
+            Map<String, Object> byName = new LinkedHashMap<>();
+            warmups.forEach((name, w) -> byName.put(name, details(w.state, w.startedAt, w.finishedAt, w.error)));
+            health.withDetail("warmups", byName);
+        }
+        return health.build();
+    }
+
+    private static Map<String, Object> details(State state, Instant started, Instant finished, String error) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("state", state.name().toLowerCase(Locale.ROOT));
+        if (started != null) {
+            details.put("elapsed", Duration.between(started, finished != null ? finished : Instant.now()).toString());
+        }
+        if (error != null) {
+            details.put("error", error);
+        }
+        return details;
+    }
+
+    static final class Warmup {
+
+        final Instant startedAt = Instant.now();
+        volatile State state = State.RUNNING;
+        volatile Instant finishedAt;
+        volatile String error;
+
+        void finished(State outcome, Exception ex) {
+            error = ex == null ? null : ex.toString();
+            finishedAt = Instant.now();
+            state = outcome;
+        }
+    }
+}
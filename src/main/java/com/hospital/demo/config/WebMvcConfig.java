@@ -0,0 +1,37 @@
+package com.hospital.demo.config;
+
+import com.hospital.demo.metrics.StatementCounter;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverters;
+import org.springframework.http.converter.cbor.JacksonCborHttpMessageConverter;
+import org.springframework.http.converter.smile.JacksonSmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+@Configuration
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    CBORMapper cborMapper;
+    SmileMapper smileMapper;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // StreamingResponseBody runs as a Callable, so this is how its queries get counted against the request.
+        configurer.registerCallableInterceptors(StatementCounter.callableInterceptor());
+    }
+
+    @Override
+    public void configureMessageConverters(HttpMessageConverters.ServerBuilder builder) {
+        // 'Accept: application/cbor' or 'application/x-jackson-smile' on any ApiEnvelope endpoint. Spring would
+        // register these on its own, but with bare mappers that skip HospitalJsonModule.
+        builder.withCborConverter(new JacksonCborHttpMessageConverter(cborMapper))
+            .withSmileConverter(new JacksonSmileHttpMessageConverter(smileMapper));
+    }
+}
@@ -1,20 +1,44 @@
 package com.hospital.demo.controller;
 
 import com.hospital.demo.dto.ApiEnvelope;
+import com.hospital.demo.dto.AppointmentPage;
+import com.hospital.demo.dto.AppointmentRequest;
 import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.dto.AppointmentStats;
+import com.hospital.demo.dto.PatientAppointmentStats;
+import com.hospital.demo.json.MillisClock;
+import com.hospital.demo.json.StreamingJsonWriter;
+import com.hospital.demo.json.WireFormat;
 import com.hospital.demo.service.AppointmentService;
+import com.hospital.demo.stats.AppointmentSnapshot;
+import com.hospital.demo.web.ConditionalGet;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import java.util.List;
+import jakarta.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.UUID;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/v1/appointments")
@@ -23,17 +47,226 @@ import org.springframework.web.bind.annotation.RestController;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class AppointmentController {
 
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     AppointmentService appointmentService;
+    StreamingJsonWriter streamingJsonWriter;
+
+    @Operation(summary = "Book an appointment",
+        description = "Group commit: the booking is validated and queued, and the 201 comes back once the batch it "
+            + "was written in has committed, normally within a few tens of milliseconds.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Booking stored, its id in data"),
+        @ApiResponse(responseCode = "400", description = "Invalid booking"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access"),
+        @ApiResponse(responseCode = "404", description = "Unknown patient"),
+        @ApiResponse(responseCode = "409", description = "Booking refused by the database"),
+        @ApiResponse(responseCode = "429", description = "Booking queue full or not written in time; nothing was "
+            + "stored, retry after the Retry-After delay")
+    })
+    @PostMapping
+    public ResponseEntity<ApiEnvelope<UUID>> book(@Valid @RequestBody AppointmentRequest request) {
+        UUID id = appointmentService.book(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(ApiEnvelope.<UUID>builder()
+            .status(HttpStatus.CREATED.value())
+            .message("Appointment booked")
+            .data(id)
+            .timestamp(MillisClock.now())
+            .build());
+    }
 
     @Operation(summary = "Fetch all appointments with patient names",
         description = "Performance Note: Demonstrates the N+1 Select problem in the orchestration layer.")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Successfully retrieved Appointment List"),
+        @ApiResponse(responseCode = "200", description = "Successfully retrieved Appointment List",
+            content = @Content(schema = @Schema(implementation = ApiEnvelope.class))),
+        @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
         @ApiResponse(responseCode = "401", description = "Unauthorized access"),
         @ApiResponse(responseCode = "500", description = "Internal system failure during processing")
     })
     @GetMapping
-    public ResponseEntity<ApiEnvelope<List<AppointmentResponse>>> listAll() {
-        return ApiEnvelope.success(appointmentService.getAllWithDetails(), "Report generated");
+    public ResponseEntity<StreamingResponseBody> listAll(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = appointmentService.versionTag("report");
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        // Same ApiEnvelope JSON as before, but written row by row as the report is read.
+        StreamingResponseBody body = appointmentService.reportsFromSnapshot()
+            ? out -> streamingJsonWriter.writeEnvelope(out, "Report generated",
+                AppointmentSnapshot.Row.class, appointmentService::streamSnapshot)
+            : out -> streamingJsonWriter.writeEnvelope(out, "Report generated",
+                AppointmentResponse.class, appointmentService::streamReport);
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(etag)
+            .cacheControl(ConditionalGet.REVALIDATE)
+            .varyBy(HttpHeaders.ACCEPT)
+            .body(body);
+    }
+
+    @Operation(summary = "Fetch all appointments as CBOR or Smile",
+        description = "Same envelope as listAll in a binary encoding, selected with 'Accept: application/cbor' or "
+            + "'Accept: " + WireFormat.SMILE_VALUE + "'. Smaller on the wire and cheaper to parse than JSON.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stream started"),
+        @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping(produces = {MediaType.APPLICATION_CBOR_VALUE, WireFormat.SMILE_VALUE})
+    public ResponseEntity<StreamingResponseBody> listAllBinary(
+        @RequestHeader(HttpHeaders.ACCEPT) String accept,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        WireFormat format = WireFormat.fromAccept(accept);
+        String etag = appointmentService.versionTag("report-" + format.name().toLowerCase(Locale.ROOT));
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        StreamingResponseBody body = appointmentService.reportsFromSnapshot()
+            ? out -> streamingJsonWriter.writeEnvelope(out, format, "Report generated",
+                AppointmentSnapshot.Row.class, appointmentService::streamSnapshot)
+            : out -> streamingJsonWriter.writeEnvelope(out, format, "Report generated",
+                AppointmentResponse.class, appointmentService::streamReport);
+        return ResponseEntity.ok()
+            .contentType(format.mediaType())
+            .eTag(etag)
+            .cacheControl(ConditionalGet.REVALIDATE)
+            .varyBy(HttpHeaders.ACCEPT)
+            .body(body);
+    }
+
+    @Operation(summary = "Stream all appointments as NDJSON",
+        description = "Same report as listAll, one JSON object per line, written as rows come off a DB cursor. "
+            + "Select it with 'Accept: application/x-ndjson'. Memory stays flat regardless of table size.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stream started"),
+        @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll(
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = appointmentService.versionTag("report-ndjson");
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        // Every chunk is flushed to the client right away so the first bytes don't wait for the whole report.
+        StreamingResponseBody body = appointmentService.reportsFromSnapshot()
+            ? out -> streamingJsonWriter.writeLines(out,
+                AppointmentSnapshot.Row.class, appointmentService::streamSnapshot)
+            : out -> streamingJsonWriter.writeLines(out,
+                AppointmentResponse.class, appointmentService::streamAllWithDetails);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+            .eTag(etag)
+            .cacheControl(ConditionalGet.REVALIDATE)
+            .varyBy(HttpHeaders.ACCEPT)
+            .body(body);
+    }
+
+    @Operation(summary = "Fetch one page of appointments",
+        description = "Keyset pagination on (appointmentTime, id). Pass the returned nextCursor to get the following page.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Page retrieved"),
+        @ApiResponse(responseCode = "400", description = "Malformed cursor"),
+        @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/page")
+    public ResponseEntity<ApiEnvelope<AppointmentPage>> page(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "100") int size,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = appointmentService.versionTag("page");
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        return ApiEnvelope.success(appointmentService.getPage(cursor, size), "Page generated", etag);
+    }
+
+    @Operation(summary = "Appointments in a time window",
+        description = "Appointments starting in [from, to), e.g. one day's schedule. "
+            + "Index range scan on (appointment_time, id), paged with the same keyset cursor as /page.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Page retrieved"),
+        @ApiResponse(responseCode = "400", description = "Malformed window or cursor"),
+        @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/window")
+    public ResponseEntity<ApiEnvelope<AppointmentPage>> window(
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "100") int size,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = appointmentService.versionTag("window");
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        return ApiEnvelope.success(appointmentService.getWindow(from, to, cursor, size), "Page generated", etag);
+    }
+
+    @Operation(summary = "A patient's appointments",
+        description = "Oldest first, served from the (patient_id, appointment_time, id) index "
+            + "and paged with a keyset cursor.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Page retrieved"),
+        @ApiResponse(responseCode = "400", description = "Malformed patient id or cursor"),
+        @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/patient/{patientId}")
+    public ResponseEntity<ApiEnvelope<AppointmentPage>> byPatient(
+        @PathVariable UUID patientId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(defaultValue = "100") int size,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = appointmentService.versionTag("patient");
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        return ApiEnvelope.success(appointmentService.getByPatient(patientId, cursor, size), "Page generated", etag);
+    }
+
+    @Operation(summary = "Appointment counts per hour or per day",
+        description = "Pre-aggregated in memory and kept current as appointments are written, so the cost is the "
+            + "number of buckets returned rather than a table scan. Optional [from, to) bounds are rounded out "
+            + "to whole buckets.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stats retrieved"),
+        @ApiResponse(responseCode = "400", description = "Unknown granularity or malformed window"),
+        @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/stats")
+    public ResponseEntity<ApiEnvelope<AppointmentStats>> stats(
+        @RequestParam(defaultValue = "day") String granularity,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = appointmentService.statsTag();
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        return ApiEnvelope.success(appointmentService.getStats(granularity, from, to), "Stats generated", etag);
+    }
+
+    @Operation(summary = "Appointment count for one patient", description = "Served from the same rollup as /stats.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stats retrieved"),
+        @ApiResponse(responseCode = "400", description = "Malformed patient id"),
+        @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/stats/patient/{patientId}")
+    public ResponseEntity<ApiEnvelope<PatientAppointmentStats>> patientStats(
+        @PathVariable UUID patientId,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = appointmentService.statsTag();
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        return ApiEnvelope.success(appointmentService.getPatientStats(patientId), "Stats generated", etag);
     }
 }
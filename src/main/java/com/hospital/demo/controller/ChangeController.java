@@ -0,0 +1,44 @@
+package com.hospital.demo.controller;
+
+import com.hospital.demo.events.ChangeStream;
+import com.hospital.demo.web.StreamingEndpoints;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Change Stream")
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ChangeController {
+
+    ChangeStream changeStream;
+
+    @Operation(summary = "Stream committed changes",
+        description = "Server-Sent Events: one 'changes' event per batch of committed patient and appointment "
+            + "writes, as a JSON array. A 'reset' event means changes were missed: fetch the full state again. "
+            + "Reconnect with Last-Event-ID to resume.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Event stream"),
+        @ApiResponse(responseCode = "400", description = "Unknown type"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    // Mapped by the full path the filters skip (StreamingEndpoints).
+    @GetMapping(value = StreamingEndpoints.CHANGE_STREAM, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+        @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+        @RequestParam(required = false) List<String> types) {
+        return changeStream.open(lastEventId, types);
+    }
+}
@@ -1,9 +1,14 @@
 package com.hospital.demo.controller;
 
 import com.hospital.demo.dto.ApiEnvelope;
+import com.hospital.demo.dto.BulkRegistrationResponse;
+import com.hospital.demo.dto.PatientBatchLookupRequest;
+import com.hospital.demo.dto.PatientBatchLookupResponse;
+import com.hospital.demo.dto.PatientNameMatch;
 import com.hospital.demo.dto.PatientRequest;
-import com.hospital.demo.model.Patient;
+import com.hospital.demo.dto.PatientResponse;
 import com.hospital.demo.service.PatientService;
+import com.hospital.demo.web.ConditionalGet;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -11,17 +16,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import java.util.List;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+// Bodies here are JSON by default; 'Accept' / 'Content-Type: application/cbor' or 'application/x-jackson-smile'
+// switch both directions to the binary formats (converters registered in WebMvcConfig).
 @RestController
 @RequestMapping("/api/v1/patients")
 @RequiredArgsConstructor
@@ -35,13 +46,35 @@ public class PatientController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Patient found successfully",
             content = @Content(schema = @Schema(implementation = ApiEnvelope.class))),
+        @ApiResponse(responseCode = "304", description = "Unchanged since the ETag sent in If-None-Match"),
         @ApiResponse(responseCode = "404", description = "Patient not found"),
         @ApiResponse(responseCode = "401", description = "Unauthorized access"),
         @ApiResponse(responseCode = "500", description = "Internal system failure during processing")
     })
     @GetMapping("/search")
-    public ResponseEntity<ApiEnvelope<Patient>> search(@RequestParam String email) {
-        return ApiEnvelope.success(patientService.findByEmail(email), "Patient found");
+    public ResponseEntity<ApiEnvelope<PatientResponse>> search(
+        @RequestParam String email,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = patientService.versionTag(email);
+        if (ConditionalGet.matches(ifNoneMatch, etag)) {
+            return ConditionalGet.notModified(etag);
+        }
+        return ApiEnvelope.success(patientService.findByEmail(email), "Patient found", etag);
+    }
+
+    @Operation(summary = "Search by name", description = "Type-ahead over first name, last name and email. "
+        + "Prefix matches rank first, then typo-tolerant trigram matches. Served from an in-memory index, no SQL.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Best matches first (possibly none)",
+            content = @Content(schema = @Schema(implementation = ApiEnvelope.class))),
+        @ApiResponse(responseCode = "400", description = "Blank or overlong query"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/search/name")
+    public ResponseEntity<ApiEnvelope<List<PatientNameMatch>>> searchByName(
+        @RequestParam String q,
+        @RequestParam(defaultValue = "10") int limit) {
+        return ApiEnvelope.success(patientService.searchByName(q, limit), "Search complete");
     }
 
     @Operation(summary = "Register new patient", description = "Validates and persists a new patient record.")
@@ -51,9 +84,39 @@ public class PatientController {
         @ApiResponse(responseCode = "401", description = "Unauthorized access"),
         @ApiResponse(responseCode = "500", description = "Internal system failure during processing")
     })
+    @PostMapping
     public ResponseEntity create(@Valid @RequestBody PatientRequest patient) {
         patientService.createPatient(patient);
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
+    @Operation(summary = "Batch lookup", description = "Resolves up to 1000 emails and/or ids in one call, served from the cache with one IN query for misses.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Lookup done; unknown keys are listed under missing",
+            content = @Content(schema = @Schema(implementation = ApiEnvelope.class))),
+        @ApiResponse(responseCode = "400", description = "Too many keys or malformed id"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access"),
+        @ApiResponse(responseCode = "500", description = "Internal system failure during processing")
+    })
+    @PostMapping("/batch-lookup")
+    public ResponseEntity<ApiEnvelope<PatientBatchLookupResponse>> batchLookup(
+        @Valid @RequestBody PatientBatchLookupRequest request) {
+        return ApiEnvelope.success(patientService.batchLookup(request), "Batch lookup complete");
+    }
+
+    @Operation(summary = "Bulk register patients", description = "Registers up to 5000 patients in one transaction with batched inserts. Reports a status per item.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Processed; see per-item results",
+            content = @Content(schema = @Schema(implementation = ApiEnvelope.class))),
+        @ApiResponse(responseCode = "400", description = "Too many items"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized access"),
+        @ApiResponse(responseCode = "409", description = "Lost a race with a concurrent registration; nothing was saved"),
+        @ApiResponse(responseCode = "500", description = "Internal system failure during processing")
+    })
+    @PostMapping("/bulk")
+    public ResponseEntity<ApiEnvelope<BulkRegistrationResponse>> bulkRegister(
+        @RequestBody List<PatientRequest> patients) {
+        return ApiEnvelope.success(patientService.bulkRegister(patients), "Bulk registration processed");
+    }
+
 }
@@ -1,6 +1,9 @@
 package com.hospital.demo.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.hospital.demo.json.MillisClock;
+import com.hospital.demo.web.ConditionalGet;
 import java.time.LocalDateTime;
 import java.util.List;
 import lombok.AccessLevel;
@@ -9,6 +12,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -17,6 +21,8 @@ import org.springframework.http.ResponseEntity;
 @AllArgsConstructor
 @NoArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
+// Header fields first so a streamed envelope (StreamingJsonWriter) and a regular one read the same.
+@JsonPropertyOrder({"status", "message", "timestamp", "errors", "data"})
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class ApiEnvelope<T> {
     int status;
@@ -30,8 +36,22 @@ public class ApiEnvelope<T> {
             .status(HttpStatus.OK.value())
             .message(message)
             .data(data)
-            .timestamp(LocalDateTime.now())
+            .timestamp(MillisClock.now())
             .build());
     }
 
+    // Same, tagged for conditional GETs (see ConditionalGet).
+    public static <T> ResponseEntity<ApiEnvelope<T>> success(T data, String message, String eTag) {
+        return ResponseEntity.ok()
+            .eTag(eTag)
+            .cacheControl(ConditionalGet.REVALIDATE)
+            .varyBy(HttpHeaders.ACCEPT)
+            .body(ApiEnvelope.<T>builder()
+                .status(HttpStatus.OK.value())
+                .message(message)
+                .data(data)
+                .timestamp(MillisClock.now())
+                .build());
+    }
+
 }
@@ -0,0 +1,20 @@
+package com.hospital.demo.dto;
+
+import java.time.LocalDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AppointmentCountBucket {
+    // Start of the hour or day this bucket covers.
+    LocalDateTime start;
+    long count;
+}
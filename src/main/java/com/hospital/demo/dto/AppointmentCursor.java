@@ -0,0 +1,38 @@
+package com.hospital.demo.dto;
+
+import com.hospital.demo.exception.BadRequestException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.experimental.FieldDefaults;
+
+// Position of the last row a client has seen, in (appointmentTime, id) order.
+// Clients treat it as an opaque string, which leaves us free to change the encoding later.
+@Getter
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AppointmentCursor {
+    LocalDateTime appointmentTime;
+    UUID id;
+
+    public String encode() {
+        String raw = appointmentTime + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static AppointmentCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new AppointmentCursor(
+                LocalDateTime.parse(raw.substring(0, sep)),
+                UUID.fromString(raw.substring(sep + 1)));
+        } catch (RuntimeException ex) {
+            throw new BadRequestException("Invalid cursor: " + token);
+        }
+    }
+}
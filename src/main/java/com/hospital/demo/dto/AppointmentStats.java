@@ -0,0 +1,24 @@
+package com.hospital.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class AppointmentStats {
+    String granularity;
+    long total;
+    // Only non-empty buckets, oldest first.
+    List<AppointmentCountBucket> buckets;
+    // When the rollup was last rebuilt from the database. Writes since then were applied incrementally.
+    LocalDateTime reconciledAt;
+}
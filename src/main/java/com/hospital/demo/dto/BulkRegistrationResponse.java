@@ -0,0 +1,23 @@
+package com.hospital.demo.dto;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkRegistrationResponse {
+    public static final int MAX_ITEMS = 5000;
+
+    int created;
+    int duplicates;
+    int invalid;
+    List<BulkRegistrationResult> results;
+}
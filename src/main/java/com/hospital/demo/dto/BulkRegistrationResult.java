@@ -0,0 +1,28 @@
+package com.hospital.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.List;
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class BulkRegistrationResult {
+    public enum Status { CREATED, DUPLICATE, INVALID }
+
+    // Position of the item in the request body
+    int index;
+    String email;
+    Status status;
+    UUID id;
+    List<String> errors;
+}
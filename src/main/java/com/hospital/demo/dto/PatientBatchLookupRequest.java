@@ -0,0 +1,26 @@
+package com.hospital.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PatientBatchLookupRequest {
+    public static final int MAX_KEYS = 1000;
+
+    @Size(max = MAX_KEYS)
+    List<String> emails;
+    @Size(max = MAX_KEYS)
+    List<String> ids;
+}
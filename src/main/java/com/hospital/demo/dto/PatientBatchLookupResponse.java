@@ -0,0 +1,20 @@
+package com.hospital.demo.dto;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PatientBatchLookupResponse {
+    List<PatientResponse> found;
+    // The requested emails/ids that matched nobody, as the client sent them.
+    List<String> missing;
+}
@@ -0,0 +1,23 @@
+package com.hospital.demo.dto;
+
+import java.util.UUID;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PatientNameMatch {
+    UUID id;
+    String firstName;
+    String lastName;
+    String email;
+    // 1.0 is an exact match on every query word; prefix matches score above fuzzy ones.
+    double score;
+}
@@ -0,0 +1,13 @@
+package com.hospital.demo.dto;
+
+import com.hospital.demo.model.Patient;
+import java.util.UUID;
+
+// What PatientCache holds and the patient endpoints return: an immutable copy of the row. One cached instance is
+// handed to every thread that asks, so it must not be the mutable entity one of them could change for the rest.
+public record PatientResponse(UUID id, String firstName, String lastName, String email) {
+
+    public static PatientResponse of(Patient patient) {
+        return new PatientResponse(patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getEmail());
+    }
+}
@@ -0,0 +1,115 @@
+package com.hospital.demo.events;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+
+// One reader's position in the ring. Not thread-safe: each cursor belongs to one thread, except for lag(), which
+// the metrics read from anywhere.
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class ChangeCursor {
+
+    ChangeRing ring;
+    SubscriberMeters meters;
+
+    // Sequence of the next event to hand out.
+    @NonFinal
+    volatile long next;
+    @NonFinal
+    boolean resetFirst;
+    // The claimed but still empty slot this cursor is waiting at, and since when (System.nanoTime). 0 = none.
+    @NonFinal
+    long gapAt;
+    @NonFinal
+    long gapSince;
+
+    ChangeCursor(ChangeRing ring, SubscriberMeters meters, long next, boolean resetFirst) {
+        this.ring = ring;
+        this.meters = meters;
+        this.next = next;
+        this.resetFirst = resetFirst;
+    }
+
+    // The next events in sequence order, at most `max`, empty when caught up. A RESET always comes on its own.
+    // If the ring has lapped this cursor, the missing events are gone: it gets a RESET and carries on from the
+    // oldest event still held. Likewise when the next slot has been claimed but left empty for longer than the
+    // ring's maxGapWait: the empty slots are skipped with a RESET (see ChangeRing).
+    public List<ChangeEvent> poll(int max) {
+        if (resetFirst) {
+            resetFirst = false;
+            return List.of(ChangeEvent.reset(next - 1, Instant.now()));
+        }
+        List<ChangeEvent> batch = new ArrayList<>();
+        while (batch.size() < max) {
+            ChangeEvent event = ring.get(next);
+            if (event == null) {
+                if (batch.isEmpty() && untilGapSkipNanos() == 0) {
+                    return skipGap();
+                }
+                break;
+            }
+            if (event.sequence() != next) {
+                if (batch.isEmpty()) {
+                    meters.overrun();
+                    next = ring.oldest();
+                    return List.of(ChangeEvent.reset(next - 1, Instant.now()));
+                }
+                break;
+            }
+            if (event.kind() == ChangeEvent.Kind.RESET && !batch.isEmpty()) {
+                break;
+            }
+            batch.add(event);
+            next++;
+            if (event.kind() == ChangeEvent.Kind.RESET) {
+                break;
+            }
+        }
+        if (!batch.isEmpty()) {
+            meters.delivered(batch.size());
+        }
+        return batch;
+    }
+
+    public boolean hasNext() {
+        return resetFirst || ring.get(next) != null || untilGapSkipNanos() == 0;
+    }
+
+    // How long until poll() gives up on the gap at `next`: 0 once it will, Long.MAX_VALUE if there's no gap there
+    // (nothing claimed past this cursor, or the next event is in).
+    long untilGapSkipNanos() {
+        if (next > ring.head() || ring.get(next) != null) {
+            return Long.MAX_VALUE;
+        }
+        long now = System.nanoTime();
+        if (gapAt != next) {
+            gapAt = next;
+            gapSince = now;
+        }
+        return Math.max(0, ring.maxGapWaitNanos - (now - gapSince));
+    }
+
+    private List<ChangeEvent> skipGap() {
+        long head = ring.head();
+        long skipped = 0;
+        while (next <= head && ring.get(next) == null) {
+            next++;
+            skipped++;
+        }
+        meters.gapSkipped(skipped);
+        return List.of(ChangeEvent.reset(next - 1, Instant.now()));
+    }
+
+    // Sequence of the last event handed out.
+    public long position() {
+        return next - 1;
+    }
+
+    // Published events this cursor hasn't handed out yet.
+    public long lag() {
+        return Math.max(0, ring.head() - (next - 1));
+    }
+}
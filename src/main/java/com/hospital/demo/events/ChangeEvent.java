@@ -0,0 +1,28 @@
+package com.hospital.demo.events;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// One committed row change, numbered in the order it was published (from 1, per JVM start).
+// `row` is a detached copy of the entity as committed (as it was just before, for DELETED), so subscribers never
+// touch a managed entity. RESET has no row: the subscriber has missed changes, either because the tables were
+// reloaded behind Hibernate's back (the seeder) or because it fell a whole ring behind. It should rebuild whatever
+// it derives from them.
+public record ChangeEvent(long sequence, Kind kind, Type type, UUID id, Object row, Instant committedAt) {
+
+    public enum Kind { CREATED, UPDATED, DELETED, RESET }
+
+    public enum Type { PATIENT, APPOINTMENT }
+
+    static ChangeEvent staged(Kind kind, Type type, UUID id, Object row) {
+        return new ChangeEvent(0, kind, type, id, row, null);
+    }
+
+    static ChangeEvent reset(long sequence, Instant at) {
+        return new ChangeEvent(sequence, Kind.RESET, null, null, null, at);
+    }
+
+    ChangeEvent published(long sequence, Instant at) {
+        return new ChangeEvent(sequence, kind, type, id, row, at);
+    }
+}
@@ -0,0 +1,245 @@
+package com.hospital.demo.events;
+
+import com.hospital.demo.config.DataSeededEvent;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.model.Patient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Patient and appointment changes, fanned out in-process so caches and derived views can follow the data instead
+// of polling or rescanning it.
+// - Outbox: Hibernate's flush-time listeners stage a copy of every row written on the current transaction. Only
+//   when that transaction commits are its events published, all together, into the ring (ChangeRing). A rollback
+//   drops them. So subscribers only ever see committed changes, and one transaction's events have consecutive
+//   sequence numbers.
+// - Publishing happens in Spring's afterCommit, which runs after Hibernate's post-commit listeners (DataVersions,
+//   AppointmentRollup). Anything that re-reads on an event therefore sees the new data and the new ETags.
+// - Subscribers read the ring at their own pace: subscribe() gives a batch handler its own thread, and ChangeStream
+//   serves the SSE endpoint. A committing thread never waits for any of them.
+// - The seeder's COPY load goes around Hibernate, so DataSeededEvent publishes a RESET instead.
+// The outbox is not durable: events live in memory only and the numbering restarts with the JVM. A subscriber
+// that can't be sure it saw everything gets a RESET and has to rebuild.
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ChangeEventBus implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    EntityManagerFactory entityManagerFactory;
+    MeterRegistry meterRegistry;
+    ChangeRing ring;
+    // Per JVM start, like DataVersions' ETag epoch, so an SSE client's Last-Event-ID from before a restart misses.
+    String epoch = Long.toString(System.currentTimeMillis(), 36);
+    Set<Thread> waiting = ConcurrentHashMap.newKeySet();
+    Map<String, ChangeSubscription> subscriptions = new ConcurrentHashMap<>();
+    Map<ChangeEvent.Type, Counter> published = new EnumMap<>(ChangeEvent.Type.class);
+    Counter resets;
+
+    public ChangeEventBus(EntityManagerFactory entityManagerFactory,
+                          MeterRegistry meterRegistry,
+                          @Value("${hospital.changes.ring-size:65536}") int ringSize,
+                          @Value("${hospital.changes.max-gap-wait:1s}") Duration maxGapWait) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.meterRegistry = meterRegistry;
+        this.ring = new ChangeRing(ringSize, maxGapWait);
+        for (ChangeEvent.Type type : ChangeEvent.Type.values()) {
+            published.put(type, publishedCounter(type.name().toLowerCase(Locale.ROOT)));
+        }
+        this.resets = publishedCounter("reset");
+    }
+
+    private Counter publishedCounter(String type) {
+        return Counter.builder("changes.published").tag("type", type)
+            .description("Committed change events published to subscribers")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    // Runs `handler` on its own thread for every batch of at most maxBatch changes committed from now on.
+    // Names show up as the subscriber tag on the changes.subscriber.* meters and must be unique.
+    public synchronized ChangeSubscription subscribe(String name, int maxBatch,
+                                                    Consumer<List<ChangeEvent>> handler) {
+        if (subscriptions.containsKey(name)) {
+            throw new IllegalArgumentException("There is already a change subscriber named " + name);
+        }
+        ChangeSubscription subscription =
+            new ChangeSubscription(name, this, ring, meterRegistry, maxBatch, handler, ring.head());
+        subscriptions.put(name, subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    void unsubscribe(ChangeSubscription subscription) {
+        subscriptions.remove(subscription.name(), subscription);
+    }
+
+    @PreDestroy
+    void closeSubscriptions() {
+        subscriptions.values().forEach(ChangeSubscription::close);
+    }
+
+    // A cursor for an SSE client. Picks up after `lastEventId` (see eventId) when this JVM published it; any other
+    // id, one from before a restart or garbage, starts at the head with a RESET.
+    ChangeCursor resume(String lastEventId, SubscriberMeters meters) {
+        long head = ring.head();
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return new ChangeCursor(ring, meters, head + 1, false);
+        }
+        String prefix = epoch + "-";
+        if (lastEventId.startsWith(prefix)) {
+            try {
+                long last = Long.parseLong(lastEventId.substring(prefix.length()));
+                if (last >= 0 && last <= head) {
+                    // If the ring has moved on past `last` since, the first poll answers with a RESET.
+                    return new ChangeCursor(ring, meters, last + 1, false);
+                }
+            } catch (NumberFormatException ex) {
+                // Not one of ours.
+            }
+        }
+        return new ChangeCursor(ring, meters, head + 1, true);
+    }
+
+    String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    // Parks the calling thread until `cursor` has something to read, or `timeout` has passed. Waiting at a gap,
+    // it wakes up when the cursor gives up on it.
+    public void await(ChangeCursor cursor, Duration timeout) {
+        Thread current = Thread.currentThread();
+        waiting.add(current);
+        try {
+            // Checked after registering: a publish from here on unparks us, even before we park.
+            if (!cursor.hasNext()) {
+                LockSupport.parkNanos(this, Math.min(timeout.toNanos(), cursor.untilGapSkipNanos()));
+            }
+        } finally {
+            waiting.remove(current);
+        }
+    }
+
+    @EventListener(DataSeededEvent.class)
+    public void onSeeded() {
+        publish(List.of(ChangeEvent.staged(ChangeEvent.Kind.RESET, null, null, null)));
+    }
+
+    private void publish(List<ChangeEvent> staged) {
+        ring.publish(staged, Instant.now());
+        for (ChangeEvent event : staged) {
+            (event.type() == null ? resets : published.get(event.type())).increment();
+        }
+        waiting.forEach(LockSupport::unpark);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        stage(ChangeEvent.Kind.CREATED, event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        stage(ChangeEvent.Kind.UPDATED, event.getEntity());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        stage(ChangeEvent.Kind.DELETED, event.getEntity());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private void stage(ChangeEvent.Kind kind, Object entity) {
+        ChangeEvent staged;
+        if (entity instanceof Patient p) {
+            staged = ChangeEvent.staged(kind, ChangeEvent.Type.PATIENT, p.getId(),
+                new Patient(p.getId(), p.getFirstName(), p.getLastName(), p.getEmail()));
+        } else if (entity instanceof Appointment a) {
+            staged = ChangeEvent.staged(kind, ChangeEvent.Type.APPOINTMENT, a.getId(),
+                new Appointment(a.getId(), a.getPatientId(), a.getAppointmentTime(), a.getNotes()));
+        } else {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Flushed outside a Spring transaction, so there's no commit to wait for. Every write path we have
+            // runs in one; this only keeps a stray one from going unnoticed.
+            publish(List.of(staged));
+            return;
+        }
+        Outbox outbox = (Outbox) TransactionSynchronizationManager.getResource(this);
+        if (outbox == null) {
+            outbox = new Outbox();
+            TransactionSynchronizationManager.bindResource(this, outbox);
+            TransactionSynchronizationManager.registerSynchronization(outbox);
+        }
+        outbox.staged.add(staged);
+    }
+
+    // The current transaction's changes, bound to it until it completes. Steps aside while a REQUIRES_NEW
+    // transaction runs, so that one gets an outbox of its own.
+    private final class Outbox implements TransactionSynchronization {
+
+        final List<ChangeEvent> staged = new ArrayList<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(ChangeEventBus.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(ChangeEventBus.this, this);
+        }
+
+        @Override
+        public void afterCommit() {
+            publish(staged);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(ChangeEventBus.this);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.hospital.demo.events;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// The last `capacity` published change events, without locks. A publisher claims a run of sequence numbers for a
+// whole transaction with one getAndAdd, then fills those slots. A reader knows slot s is ready once it holds the
+// event numbered s. Publishers never wait for readers: a reader a whole ring behind finds newer events in its
+// slots, and has to start over from a RESET (ChangeCursor).
+// A run is claimed and filled by the same thread with nothing in between that can throw, so a claimed slot is
+// normally filled soon after. Until then readers wait at the gap, which keeps delivery in sequence order. But the
+// publisher can still be descheduled or caught in a GC pause mid-run, and one stalled publisher must not stop
+// every reader. So a reader waits at most maxGapWait, then skips the empty slots with a RESET (ChangeCursor). The
+// events it skipped are committed, so the rebuild the RESET asks for sees them.
+final class ChangeRing {
+
+    static final Duration DEFAULT_MAX_GAP_WAIT = Duration.ofSeconds(1);
+
+    final int capacity;
+    final long maxGapWaitNanos;
+    private final int mask;
+    private final AtomicReferenceArray<ChangeEvent> slots;
+    // Highest sequence handed out so far. 0 before the first publish.
+    private final AtomicLong claimed = new AtomicLong();
+
+    ChangeRing(int size) {
+        this(size, DEFAULT_MAX_GAP_WAIT);
+    }
+
+    ChangeRing(int size, Duration maxGapWait) {
+        this.capacity = size <= 2 ? 2 : Integer.highestOneBit(size - 1) << 1;
+        this.maxGapWaitNanos = maxGapWait.toNanos();
+        this.mask = capacity - 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    // Numbers and stores staged events. Returns the sequence of the last one.
+    long publish(List<ChangeEvent> staged, Instant at) {
+        long first = claimed.getAndAdd(staged.size()) + 1;
+        for (int i = 0; i < staged.size(); i++) {
+            store(staged.get(i).published(first + i, at));
+        }
+        return first + staged.size() - 1;
+    }
+
+    private void store(ChangeEvent event) {
+        int slot = (int) (event.sequence() & mask);
+        ChangeEvent current;
+        do {
+            current = slots.get(slot);
+            // A publisher that stalled for a whole lap must not put its older event over a newer one.
+            if (current != null && current.sequence() > event.sequence()) {
+                return;
+            }
+        } while (!slots.compareAndSet(slot, current, event));
+    }
+
+    // The event in the slot for `sequence`: null if that one isn't published yet, a later one if it has been
+    // overwritten already.
+    ChangeEvent get(long sequence) {
+        ChangeEvent event = slots.get((int) (sequence & mask));
+        return event == null || event.sequence() < sequence ? null : event;
+    }
+
+    long head() {
+        return claimed.get();
+    }
+
+    // Lowest sequence that may still be held.
+    long oldest() {
+        return Math.max(1, head() - capacity + 1);
+    }
+}
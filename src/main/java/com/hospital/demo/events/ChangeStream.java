@@ -0,0 +1,193 @@
+package com.hospital.demo.events;
+
+import com.hospital.demo.exception.BadRequestException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// Server-Sent Events behind GET /api/v1/changes/stream. Clients get the committed changes as they happen, in
+// batches, instead of re-polling the reports.
+// - Every SSE message is one batch: `event: changes`, `id: <epoch>-<last sequence>`, and a JSON array of
+//   ChangeEvents. `event: reset` means changes were missed (see ChangeEvent): fetch the full state again, then
+//   carry on with the deltas.
+// - Reconnecting with Last-Event-ID (EventSource does that on its own) resumes right after it while the ring still
+//   holds it. Otherwise the stream starts with a reset.
+// - Each client has its own cursor, read by its own virtual thread, so a slow connection only holds up itself.
+// - A comment line goes out after `heartbeat` of silence, so proxies keep an idle stream open and dead clients
+//   are found. Streams end after `timeout`; clients reconnect and resume.
+// Lag and throughput across all clients are on the changes.subscriber.* meters as subscriber="sse", next to
+// changes.stream.clients.
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ChangeStream implements SmartLifecycle {
+
+    static final String SUBSCRIBER = "sse";
+
+    ChangeEventBus bus;
+    int batchSize;
+    Duration heartbeat;
+    Duration timeout;
+    Set<Client> clients = ConcurrentHashMap.newKeySet();
+    SubscriberMeters meters;
+
+    @NonFinal
+    volatile boolean running;
+
+    public ChangeStream(ChangeEventBus bus,
+                        MeterRegistry meterRegistry,
+                        @Value("${hospital.changes.batch-size:500}") int batchSize,
+                        @Value("${hospital.changes.stream.heartbeat:15s}") Duration heartbeat,
+                        @Value("${hospital.changes.stream.timeout:30m}") Duration timeout) {
+        this.bus = bus;
+        this.batchSize = batchSize;
+        this.heartbeat = heartbeat;
+        this.timeout = timeout;
+        this.meters = new SubscriberMeters(meterRegistry, SUBSCRIBER, this::maxLag);
+        Gauge.builder("changes.stream.clients", clients, Set::size)
+            .description("Open change streams")
+            .register(meterRegistry);
+    }
+
+    // `types` limits the stream to those entity types (patient, appointment). Empty means all.
+    public SseEmitter open(String lastEventId, List<String> types) {
+        Set<ChangeEvent.Type> wanted = parseTypes(types);
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        if (!running) {
+            emitter.complete();
+            return emitter;
+        }
+        Client client = new Client(emitter, bus.resume(lastEventId, meters), wanted);
+        emitter.onCompletion(client::close);
+        emitter.onTimeout(client::close);
+        emitter.onError(ex -> client.close());
+        clients.add(client);
+        client.thread = Thread.ofVirtual().name("changes-sse").start(() -> pump(client));
+        return emitter;
+    }
+
+    private static Set<ChangeEvent.Type> parseTypes(List<String> types) {
+        Set<ChangeEvent.Type> parsed = EnumSet.noneOf(ChangeEvent.Type.class);
+        if (types == null) {
+            return parsed;
+        }
+        for (String type : types) {
+            try {
+                parsed.add(ChangeEvent.Type.valueOf(type.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("types must be 'patient' and/or 'appointment'");
+            }
+        }
+        return parsed;
+    }
+
+    private void pump(Client client) {
+        long lastWrite = System.nanoTime();
+        try {
+            while (client.open) {
+                List<ChangeEvent> batch = client.cursor.poll(batchSize);
+                if (!batch.isEmpty()) {
+                    if (send(client, batch)) {
+                        lastWrite = System.nanoTime();
+                    }
+                    continue;
+                }
+                long idle = System.nanoTime() - lastWrite;
+                if (idle >= heartbeat.toNanos()) {
+                    client.emitter.send(SseEmitter.event().comment("keep-alive"));
+                    lastWrite = System.nanoTime();
+                } else {
+                    bus.await(client.cursor, Duration.ofNanos(heartbeat.toNanos() - idle));
+                }
+            }
+        } catch (IOException | IllegalStateException ex) {
+            // The client went away, or the emitter already completed. Spring MVC finishes the request itself.
+        } finally {
+            client.close();
+        }
+    }
+
+    // False when nothing in the batch was for this client.
+    private boolean send(Client client, List<ChangeEvent> batch) throws IOException {
+        ChangeEvent last = batch.getLast();
+        if (last.kind() == ChangeEvent.Kind.RESET) {
+            client.emitter.send(SseEmitter.event().id(bus.eventId(last.sequence())).name("reset")
+                .data(last, MediaType.APPLICATION_JSON));
+            return true;
+        }
+        List<ChangeEvent> wanted = client.types.isEmpty()
+            ? batch
+            : batch.stream().filter(e -> client.types.contains(e.type())).toList();
+        if (wanted.isEmpty()) {
+            return false;
+        }
+        client.emitter.send(SseEmitter.event().id(bus.eventId(last.sequence())).name("changes")
+            .data(wanted, MediaType.APPLICATION_JSON));
+        return true;
+    }
+
+    private long maxLag() {
+        return clients.stream().mapToLong(c -> c.cursor.lag()).max().orElse(0);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    // Streams never finish on their own, so graceful shutdown would wait its whole grace period for them. This
+    // runs first (highest phase) and ends them; clients reconnect to another instance and resume.
+    @Override
+    public void stop() {
+        running = false;
+        for (Client client : clients) {
+            client.close();
+            client.emitter.complete();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+
+    private final class Client {
+
+        final SseEmitter emitter;
+        final ChangeCursor cursor;
+        final Set<ChangeEvent.Type> types;
+        volatile boolean open = true;
+        volatile Thread thread;
+
+        Client(SseEmitter emitter, ChangeCursor cursor, Set<ChangeEvent.Type> types) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.types = types;
+        }
+
+        void close() {
+            open = false;
+            clients.remove(this);
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.hospital.demo.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+
+// An in-process subscriber: its own daemon thread hands the handler every batch of changes published since the
+// last one, up to maxBatch at a time. A handler that throws loses that batch (counted under
+// changes.subscriber.failures), not the subscription. A slow handler only falls behind; publishers never wait for
+// it, and once it is a whole ring behind it gets a RESET.
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public final class ChangeSubscription implements AutoCloseable {
+
+    // Longest park between checks. A publish or close() wakes the thread sooner.
+    static final Duration MAX_IDLE = Duration.ofSeconds(1);
+
+    String name;
+    ChangeEventBus bus;
+    ChangeCursor cursor;
+    SubscriberMeters meters;
+    int maxBatch;
+    Consumer<List<ChangeEvent>> handler;
+    Thread thread;
+
+    @NonFinal
+    volatile boolean running = true;
+
+    ChangeSubscription(String name, ChangeEventBus bus, ChangeRing ring, MeterRegistry meterRegistry, int maxBatch,
+                       Consumer<List<ChangeEvent>> handler, long startAfter) {
+        this.name = name;
+        this.bus = bus;
+        this.meters = new SubscriberMeters(meterRegistry, name, this::lag);
+        this.cursor = new ChangeCursor(ring, meters, startAfter + 1, false);
+        this.maxBatch = maxBatch;
+        this.handler = handler;
+        this.thread = Thread.ofPlatform().daemon().name("changes-" + name).unstarted(this::run);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long lag() {
+        // Null only while the constructor is still running, if the gauge is read that early.
+        return cursor == null ? 0 : cursor.lag();
+    }
+
+    private void run() {
+        while (running) {
+            List<ChangeEvent> batch = cursor.poll(maxBatch);
+            if (batch.isEmpty()) {
+                bus.await(cursor, MAX_IDLE);
+                continue;
+            }
+            try {
+                handler.accept(batch);
+            } catch (RuntimeException ex) {
+                meters.failed();
+                log.error("Change subscriber {} failed on {} events up to #{}",
+                    name, batch.size(), batch.getLast().sequence(), ex);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(MAX_IDLE.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        bus.unsubscribe(this);
+        meters.close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.hospital.demo.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.function.LongSupplier;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+
+// Meters for one subscriber, tagged subscriber=<name>: how far behind the ring's head it is, how many events it has
+// taken and in what batches, how often it was lapped, how many events it skipped at a stalled publisher's gap and
+// how many batches its handler threw on.
+// The registry only holds gauges weakly, so whoever owns this has to keep it reachable while it's registered.
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+final class SubscriberMeters implements AutoCloseable {
+
+    MeterRegistry registry;
+    LongSupplier lag;
+    Counter delivered;
+    DistributionSummary batchSizes;
+    Counter overruns;
+    Counter gapsSkipped;
+    Counter failures;
+    List<Meter> meters;
+
+    SubscriberMeters(MeterRegistry registry, String subscriber, LongSupplier lag) {
+        this.registry = registry;
+        this.lag = lag;
+        Gauge lagGauge = Gauge.builder("changes.subscriber.lag", this, m -> m.lag.getAsLong())
+            .tag("subscriber", subscriber)
+            .description("Published change events the subscriber hasn't taken yet")
+            .register(registry);
+        this.delivered = Counter.builder("changes.subscriber.delivered").tag("subscriber", subscriber)
+            .description("Change events handed to the subscriber")
+            .register(registry);
+        this.batchSizes = DistributionSummary.builder("changes.subscriber.batch.size").tag("subscriber", subscriber)
+            .description("Change events per batch handed to the subscriber")
+            .serviceLevelObjectives(1, 10, 100, 500, 1000)
+            .register(registry);
+        this.overruns = Counter.builder("changes.subscriber.overruns").tag("subscriber", subscriber)
+            .description("Times the subscriber fell a whole ring behind and was sent a RESET")
+            .register(registry);
+        this.gapsSkipped = Counter.builder("changes.subscriber.gap.skipped").tag("subscriber", subscriber)
+            .description("Claimed but unpublished events the subscriber stopped waiting for and skipped with a RESET")
+            .register(registry);
+        this.failures = Counter.builder("changes.subscriber.failures").tag("subscriber", subscriber)
+            .description("Batches the subscriber's handler threw on")
+            .register(registry);
+        this.meters = List.of(lagGauge, delivered, batchSizes, overruns, gapsSkipped, failures);
+    }
+
+    void delivered(int batchSize) {
+        delivered.increment(batchSize);
+        batchSizes.record(batchSize);
+    }
+
+    void overrun() {
+        overruns.increment();
+    }
+
+    void gapSkipped(long events) {
+        gapsSkipped.increment(events);
+    }
+
+    void failed() {
+        failures.increment();
+    }
+
+    @Override
+    public void close() {
+        meters.forEach(registry::remove);
+    }
+}
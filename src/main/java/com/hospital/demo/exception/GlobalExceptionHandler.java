@@ -1,14 +1,18 @@
 package com.hospital.demo.exception;
 
 import com.hospital.demo.dto.ApiEnvelope;
-import java.time.LocalDateTime;
+import com.hospital.demo.json.MillisClock;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.List;
 import java.util.stream.Collectors;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 
 @RestControllerAdvice
@@ -20,7 +24,54 @@ public class GlobalExceptionHandler {
             ApiEnvelope.<Void>builder()
                 .status(HttpStatus.NOT_FOUND.value())
                 .message(ex.getMessage())
-                .timestamp(LocalDateTime.now())
+                .timestamp(MillisClock.now())
+                .build()
+        );
+    }
+
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ApiEnvelope> handleBadRequest(BadRequestException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+            ApiEnvelope.<Void>builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .timestamp(MillisClock.now())
+                .build()
+        );
+    }
+
+    // Malformed path variables and query params (a bad UUID or timestamp) are the client's fault, not a 500.
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ApiEnvelope> handleTypeMismatch(MethodArgumentTypeMismatchException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(
+            ApiEnvelope.<Void>builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message("Invalid value for '" + ex.getName() + "'")
+                .timestamp(MillisClock.now())
+                .build()
+        );
+    }
+
+    // Back off and retry: the booking queue is full (AppointmentIngestQueue).
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiEnvelope> handleTooManyRequests(TooManyRequestsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(ApiEnvelope.<Void>builder()
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .message(ex.getMessage())
+                .timestamp(MillisClock.now())
+                .build()
+            );
+    }
+
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<ApiEnvelope> handleConflict(DataIntegrityViolationException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(
+            ApiEnvelope.<Void>builder()
+                .status(HttpStatus.CONFLICT.value())
+                .message("Request conflicts with existing data (e.g. email already registered)")
+                .timestamp(MillisClock.now())
                 .build()
         );
     }
@@ -37,18 +88,24 @@ public class GlobalExceptionHandler {
                 .status(HttpStatus.BAD_REQUEST.value())
                 .message("Validation Failed")
                 .errors(errors)
-                .timestamp(LocalDateTime.now())
+                .timestamp(MillisClock.now())
                 .build()
         );
     }
 
+    // A streamed report that fails after its first bytes went out already has its 200. An envelope written now would
+    // only be glued onto the rows, so the exception goes on to the container instead, which closes the connection
+    // without the terminating chunk: the client sees a broken transfer, not a short but clean-looking report.
     @ExceptionHandler(Exception.class)
-    public ResponseEntity<ApiEnvelope> handleGeneralError(Exception ex) {
+    public ResponseEntity<ApiEnvelope> handleGeneralError(Exception ex, HttpServletResponse response) throws Exception {
+        if (response.isCommitted()) {
+            throw ex;
+        }
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(
             ApiEnvelope.<Void>builder()
                 .status(500)
                 .message("An internal error occurred: " + ex.getMessage())
-                .timestamp(LocalDateTime.now())
+                .timestamp(MillisClock.now())
                 .build()
         );
     }
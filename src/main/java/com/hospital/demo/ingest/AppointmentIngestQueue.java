@@ -0,0 +1,384 @@
+package com.hospital.demo.ingest;
+
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.repository.AppointmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Group commit for POST /api/v1/appointments. A booking is validated on the request thread, then parked in a
+// bounded lock-free queue, and the request waits for the batch holding it to commit. One flusher thread writes the
+// queue out with saveAll() in one transaction per batch, and Hibernate sends each batch as a single JDBC batch
+// (hibernate.jdbc.batch_size). That means one commit per hospital.ingest.batch-size rows instead of one per booking,
+// while a booking is only confirmed once the database has it: a crash loses nothing the client was told about.
+// A batch goes out as soon as the flusher is free: whatever queued up while the last one was committing, up to
+// hospital.ingest.batch-size. An idle flusher is woken by the next booking, so a lone booking isn't held back and
+// batches grow with the load on their own. hospital.ingest.flush-interval is only how often an idle flusher looks
+// anyway, and the first retry delay.
+// POST /api/v1/appointments skips the API limiter (ConcurrencyLimitFilter): a booking waits here without holding a
+// connection, and the queue's own capacity bounds how many wait.
+// - Backpressure: once hospital.ingest.capacity bookings are waiting, submit() refuses and the caller answers 429.
+// - A booking not written within hospital.ingest.commit-timeout is withdrawn and refused the same way, so the
+//   client can retry it safely. That is what happens while the database is down: the flusher keeps retrying with
+//   backoff and hands its claim on a booking back between attempts. A booking whose batch is committing at that
+//   moment can't be withdrawn, and its caller waits for the outcome instead.
+// - Shutdown: stops after the web server has stopped taking requests, then drains everything still queued before
+//   the DataSource closes (bounded by hospital.ingest.shutdown-timeout).
+// - Rows the database rejects outright (constraint violations) are retried one by one, so one bad row can't sink
+//   the other bookings in its batch. The bad ones fail their own request. Other errors on a single row are retried
+//   with the same backoff for as long as its caller is still waiting.
+// Inserts go through Hibernate, so the stats rollup and the appointment ETags see them on commit as usual.
+@Component
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AppointmentIngestQueue implements SmartLifecycle {
+
+    // Stop after the web server (DEFAULT_PHASE - 2048) so no booking arrives once we've started draining.
+    static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+    static final Duration MAX_BACKOFF = Duration.ofSeconds(5);
+
+    static final int QUEUED = 0;
+    static final int WRITING = 1;
+    static final int WITHDRAWN = 2;
+
+    AppointmentRepository appointmentRepo;
+    TransactionTemplate tx;
+    int capacity;
+    int batchSize;
+    Duration flushInterval;
+    Duration shutdownTimeout;
+    Duration commitTimeout;
+
+    ConcurrentLinkedQueue<Booking> queue = new ConcurrentLinkedQueue<>();
+    // Counts reserved slots, so it can run ahead of the queue by the few offers in flight. Never behind it.
+    AtomicInteger depth = new AtomicInteger();
+
+    Counter rejected;
+    Counter dropped;
+    Counter withdrawn;
+    DistributionSummary batchSizes;
+    Timer flushes;
+    Timer failedFlushes;
+
+    @NonFinal
+    volatile Thread flusher;
+    @NonFinal
+    volatile boolean running;
+    // Set while the flusher is parked with nothing queued, so only the booking that ends the wait unparks it.
+    @NonFinal
+    volatile boolean idle;
+
+    public AppointmentIngestQueue(AppointmentRepository appointmentRepo,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${hospital.ingest.capacity:10000}") int capacity,
+                                  @Value("${hospital.ingest.batch-size:500}") int batchSize,
+                                  @Value("${hospital.ingest.flush-interval:50ms}") Duration flushInterval,
+                                  @Value("${hospital.ingest.shutdown-timeout:30s}") Duration shutdownTimeout,
+                                  @Value("${hospital.ingest.commit-timeout:5s}") Duration commitTimeout) {
+        this.appointmentRepo = appointmentRepo;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.shutdownTimeout = shutdownTimeout;
+        this.commitTimeout = commitTimeout;
+
+        Gauge.builder("appointments.ingest.queue.depth", depth, AtomicInteger::get)
+            .description("Queued bookings not yet written")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("appointments.ingest.rejected")
+            .description("Bookings refused with 429 because the queue was full")
+            .register(meterRegistry);
+        this.dropped = Counter.builder("appointments.ingest.dropped")
+            .description("Bookings the database refused to store")
+            .register(meterRegistry);
+        this.withdrawn = Counter.builder("appointments.ingest.withdrawn")
+            .description("Bookings refused because they weren't written within the commit timeout")
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("appointments.ingest.batch.size")
+            .description("Bookings written per transaction")
+            .serviceLevelObjectives(1, 10, 50, 100, 250, 500, 1000)
+            .register(meterRegistry);
+        this.flushes = Timer.builder("appointments.ingest.flush").tag("outcome", "success")
+            .description("Time to write and commit one batch")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.failedFlushes = Timer.builder("appointments.ingest.flush").tag("outcome", "error")
+            .description("Time to write and commit one batch")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    // One queued booking. `state` settles who has it: the flusher claims it (QUEUED -> WRITING) for each attempt
+    // and hands it back if the attempt fails, and a caller that has waited too long withdraws it (QUEUED ->
+    // WITHDRAWN). Only one of the two can win, so a withdrawn booking is never written.
+    static final class Booking {
+
+        final Appointment appointment;
+        final CompletableFuture<Appointment> stored = new CompletableFuture<>();
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        Booking(Appointment appointment) {
+            this.appointment = appointment;
+        }
+
+        boolean claim() {
+            return state.compareAndSet(QUEUED, WRITING);
+        }
+
+        void release() {
+            state.set(QUEUED);
+        }
+    }
+
+    // Returns the stored appointment (with its id) once its batch has committed. RejectedExecutionException when
+    // the queue is full or shut down, or when it wasn't written within commit-timeout; either way nothing was
+    // stored. Exceptions the database raised for this row (a constraint violation) are rethrown as they are.
+    public Appointment submit(Appointment appointment) {
+        Booking booking = offer(appointment);
+        if (booking == null) {
+            throw new RejectedExecutionException("Booking queue is full");
+        }
+        long wait = commitTimeout.toNanos();
+        while (true) {
+            try {
+                return booking.stored.get(wait, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException ex) {
+                if (booking.state.compareAndSet(QUEUED, WITHDRAWN)) {
+                    withdrawn.increment();
+                    throw new RejectedExecutionException("Booking was not written within " + commitTimeout);
+                }
+                // Its batch is committing right now; the outcome is a round trip away.
+                wait = flushInterval.toNanos();
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                booking.state.compareAndSet(QUEUED, WITHDRAWN);
+                throw new RejectedExecutionException("Interrupted while waiting for the booking to be written");
+            }
+        }
+    }
+
+    // Null when full (or shut down): the booking was not taken.
+    Booking offer(Appointment appointment) {
+        if (!running) {
+            rejected.increment();
+            return null;
+        }
+        int reserved = depth.incrementAndGet();
+        if (reserved > capacity) {
+            depth.decrementAndGet();
+            rejected.increment();
+            return null;
+        }
+        Booking booking = new Booking(appointment);
+        queue.offer(booking);
+        if (idle) {
+            LockSupport.unpark(flusher);
+        }
+        return booking;
+    }
+
+    public int depth() {
+        return depth.get();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::flushLoop, "appointment-ingest");
+        thread.setDaemon(true);
+        flusher = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = flusher;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.error("Appointment ingest did not drain within {}: {} accepted bookings not written",
+                shutdownTimeout, depth.get());
+            thread.interrupt();
+        } else {
+            log.info("Appointment ingest drained");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void flushLoop() {
+        while (running || !queue.isEmpty()) {
+            if (running && queue.isEmpty()) {
+                idle = true;
+                // Checked again after idle is set: a booking queued in between may have seen idle still false.
+                if (queue.isEmpty()) {
+                    LockSupport.parkNanos(this, flushInterval.toNanos());
+                }
+                idle = false;
+            }
+            List<Booking> batch;
+            while (!(batch = take()).isEmpty()) {
+                write(batch);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<Booking> take() {
+        List<Booking> batch = new ArrayList<>(Math.min(batchSize, depth.get()));
+        Booking next;
+        while (batch.size() < batchSize && (next = queue.poll()) != null) {
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    // Doesn't return until every booking in the batch is stored, refused by the database or withdrawn by its
+    // caller. While the database is unreachable this keeps retrying and the queue fills up.
+    private void write(List<Booking> batch) {
+        long backoff = flushInterval.toNanos();
+        List<Booking> claimed = claim(batch);
+        while (!claimed.isEmpty()) {
+            long started = System.nanoTime();
+            List<Appointment> rows = appointments(claimed);
+            try {
+                tx.executeWithoutResult(status -> appointmentRepo.saveAll(rows));
+                flushes.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                batchSizes.record(claimed.size());
+                depth.addAndGet(-claimed.size());
+                claimed.forEach(b -> b.stored.complete(b.appointment));
+                return;
+            } catch (DataIntegrityViolationException ex) {
+                failedFlushes.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                writeOneByOne(claimed);
+                return;
+            } catch (RuntimeException ex) {
+                failedFlushes.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                log.warn("Writing {} bookings failed, retrying in {} ms: {}",
+                    claimed.size(), TimeUnit.NANOSECONDS.toMillis(backoff), ex.toString());
+                claimed.forEach(Booking::release);
+                if (!pause(backoff)) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF.toNanos());
+                claimed = claim(claimed);
+            }
+        }
+    }
+
+    // Each row in a transaction of its own, so only the rows the database refuses fail.
+    private void writeOneByOne(List<Booking> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            Booking booking = batch.get(i);
+            long backoff = flushInterval.toNanos();
+            boolean claimed = true;
+            while (claimed) {
+                booking.appointment.setId(null);
+                try {
+                    tx.executeWithoutResult(status -> appointmentRepo.save(booking.appointment));
+                    batchSizes.record(1);
+                    depth.decrementAndGet();
+                    booking.stored.complete(booking.appointment);
+                    break;
+                } catch (DataIntegrityViolationException ex) {
+                    dropped.increment();
+                    depth.decrementAndGet();
+                    log.error("Dropping booking for patient {} at {}: {}",
+                        booking.appointment.getPatientId(), booking.appointment.getAppointmentTime(), ex.toString());
+                    booking.stored.completeExceptionally(ex);
+                    break;
+                } catch (RuntimeException ex) {
+                    log.warn("Writing booking for patient {} failed, retrying in {} ms: {}",
+                        booking.appointment.getPatientId(), TimeUnit.NANOSECONDS.toMillis(backoff), ex.toString());
+                    booking.release();
+                    if (!pause(backoff)) {
+                        // Hand the rest back too, so their callers can withdraw them instead of waiting on us.
+                        batch.subList(i + 1, batch.size()).forEach(Booking::release);
+                        return;
+                    }
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF.toNanos());
+                    claimed = claimOrForget(booking);
+                }
+            }
+        }
+    }
+
+    // The bookings still wanted, each claimed for one write attempt. Withdrawn ones leave the queue's count here.
+    private List<Booking> claim(List<Booking> batch) {
+        List<Booking> claimed = new ArrayList<>(batch.size());
+        for (Booking booking : batch) {
+            if (claimOrForget(booking)) {
+                claimed.add(booking);
+            }
+        }
+        // The failed persist already handed out ids, and saveAll would treat those rows as existing.
+        claimed.forEach(b -> b.appointment.setId(null));
+        return claimed;
+    }
+
+    private boolean claimOrForget(Booking booking) {
+        if (booking.claim()) {
+            return true;
+        }
+        depth.decrementAndGet();
+        return false;
+    }
+
+    private static List<Appointment> appointments(List<Booking> batch) {
+        return batch.stream().map(b -> b.appointment).toList();
+    }
+
+    // False if the flusher was interrupted (shutdown gave up on draining).
+    private boolean pause(long nanos) {
+        LockSupport.parkNanos(this, nanos);
+        return !Thread.currentThread().isInterrupted();
+    }
+}
@@ -0,0 +1,63 @@
+package com.hospital.demo.json;
+
+import com.hospital.demo.dto.ApiEnvelope;
+import java.time.LocalDateTime;
+import java.util.List;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.io.SerializedString;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ser.std.StdSerializer;
+
+// Hand-written so the envelope skips bean introspection. Property names are pre-encoded, and the
+// timestamp reuses MillisClock's pre-encoded text. Output matches what Jackson would write for the
+// @JsonInclude(NON_NULL) bean, in @JsonPropertyOrder order.
+public class ApiEnvelopeSerializer extends StdSerializer<ApiEnvelope<?>> {
+
+    static final SerializedString STATUS = new SerializedString("status");
+    static final SerializedString MESSAGE = new SerializedString("message");
+    static final SerializedString TIMESTAMP = new SerializedString("timestamp");
+    static final SerializedString ERRORS = new SerializedString("errors");
+    static final SerializedString DATA = new SerializedString("data");
+
+    public ApiEnvelopeSerializer() {
+        super(ApiEnvelope.class);
+    }
+
+    @Override
+    public void serialize(ApiEnvelope<?> envelope, JsonGenerator gen, SerializationContext ctxt) {
+        gen.writeStartObject(envelope);
+        writeHeader(gen, envelope.getStatus(), envelope.getMessage(), envelope.getTimestamp(), envelope.getErrors());
+        if (envelope.getData() != null) {
+            gen.writeName(DATA);
+            ctxt.writeValue(gen, envelope.getData());
+        }
+        gen.writeEndObject();
+    }
+
+    // Everything except `data`. ApiEnvelopeWriter uses this before streaming the data array itself.
+    static void writeHeader(JsonGenerator gen, int status, String message, LocalDateTime timestamp, List<String> errors) {
+        gen.writeName(STATUS);
+        gen.writeNumber(status);
+        if (message != null) {
+            gen.writeName(MESSAGE);
+            gen.writeString(message);
+        }
+        if (timestamp != null) {
+            gen.writeName(TIMESTAMP);
+            SerializedString encoded = MillisClock.encoded(timestamp);
+            if (encoded != null) {
+                gen.writeString(encoded);
+            } else {
+                IsoDateTime.write(gen, timestamp, new char[IsoDateTime.MAX_LENGTH]);
+            }
+        }
+        if (errors != null) {
+            gen.writeName(ERRORS);
+            gen.writeStartArray(errors, errors.size());
+            for (String error : errors) {
+                gen.writeString(error);
+            }
+            gen.writeEndArray();
+        }
+    }
+}
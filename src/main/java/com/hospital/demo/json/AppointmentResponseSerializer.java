@@ -0,0 +1,74 @@
+package com.hospital.demo.json;
+
+import com.hospital.demo.dto.AppointmentResponse;
+import java.util.UUID;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.io.SerializedString;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ser.std.StdSerializer;
+
+// The report writes one of these per appointment, so its per-row cost is what matters.
+// There is no getter reflection, and property names are pre-encoded. The id and start time are formatted into
+// a per-thread scratch buffer the generator copies from, so a row costs no Strings beyond the ones it already holds.
+public class AppointmentResponseSerializer extends StdSerializer<AppointmentResponse> {
+
+    static final SerializedString ID = new SerializedString("id");
+    static final SerializedString PATIENT_FULL_NAME = new SerializedString("patientFullName");
+    static final SerializedString START_TIME = new SerializedString("startTime");
+    static final SerializedString NOTES = new SerializedString("notes");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[36]);
+
+    public AppointmentResponseSerializer() {
+        super(AppointmentResponse.class);
+    }
+
+    @Override
+    public void serialize(AppointmentResponse appt, JsonGenerator gen, SerializationContext ctxt) {
+        char[] scratch = SCRATCH.get();
+        gen.writeStartObject(appt);
+        gen.writeName(ID);
+        if (appt.getId() == null) {
+            gen.writeNull();
+        } else {
+            gen.writeString(scratch, 0, fillUuid(scratch, appt.getId()));
+        }
+        gen.writeName(PATIENT_FULL_NAME);
+        gen.writeString(appt.getPatientFullName());
+        gen.writeName(START_TIME);
+        if (appt.getStartTime() == null) {
+            gen.writeNull();
+        } else {
+            IsoDateTime.write(gen, appt.getStartTime(), scratch);
+        }
+        gen.writeName(NOTES);
+        gen.writeString(appt.getNotes());
+        gen.writeEndObject();
+    }
+
+    // Same text as UUID.toString(): lower-case hex, 8-4-4-4-12.
+    static int fillUuid(char[] buf, UUID id) {
+        return fillUuid(buf, id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    static int fillUuid(char[] buf, long msb, long lsb) {
+        hex(buf, 0, msb >>> 32, 8);
+        buf[8] = '-';
+        hex(buf, 9, msb >>> 16, 4);
+        buf[13] = '-';
+        hex(buf, 14, msb, 4);
+        buf[18] = '-';
+        hex(buf, 19, lsb >>> 48, 4);
+        buf[23] = '-';
+        hex(buf, 24, lsb, 12);
+        return 36;
+    }
+
+    private static void hex(char[] buf, int at, long value, int digits) {
+        for (int i = at + digits - 1; i >= at; i--) {
+            buf[i] = HEX[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+}
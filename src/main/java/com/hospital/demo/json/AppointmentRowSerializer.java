@@ -0,0 +1,32 @@
+package com.hospital.demo.json;
+
+import com.hospital.demo.stats.AppointmentSnapshot;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ser.std.StdSerializer;
+
+// The report's rows when they come from the columnar snapshot: the same JSON as AppointmentResponseSerializer,
+// written straight from the columns. The id and start time are formatted from their longs into the scratch buffer,
+// and names and notes are the snapshot's own Strings, so a row allocates nothing.
+public class AppointmentRowSerializer extends StdSerializer<AppointmentSnapshot.Row> {
+
+    public AppointmentRowSerializer() {
+        super(AppointmentSnapshot.Row.class);
+    }
+
+    @Override
+    public void serialize(AppointmentSnapshot.Row row, JsonGenerator gen, SerializationContext ctxt) {
+        char[] scratch = AppointmentResponseSerializer.SCRATCH.get();
+        gen.writeStartObject(row);
+        gen.writeName(AppointmentResponseSerializer.ID);
+        gen.writeString(scratch, 0, AppointmentResponseSerializer.fillUuid(scratch,
+            row.idMostSignificantBits(), row.idLeastSignificantBits()));
+        gen.writeName(AppointmentResponseSerializer.PATIENT_FULL_NAME);
+        gen.writeString(row.patientFullName());
+        gen.writeName(AppointmentResponseSerializer.START_TIME);
+        IsoDateTime.writeEpochMicros(gen, row.startEpochMicros(), scratch);
+        gen.writeName(AppointmentResponseSerializer.NOTES);
+        gen.writeString(row.notes());
+        gen.writeEndObject();
+    }
+}
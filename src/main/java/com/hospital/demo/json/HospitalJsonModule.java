@@ -0,0 +1,18 @@
+package com.hospital.demo.json;
+
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.stats.AppointmentSnapshot;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.module.SimpleModule;
+
+// Picked up by Spring Boot's JsonMapper like any other JacksonModule bean.
+@Component
+public class HospitalJsonModule extends SimpleModule {
+
+    public HospitalJsonModule() {
+        super("hospital-json");
+        addSerializer(new ApiEnvelopeSerializer());
+        addSerializer(AppointmentResponse.class, new AppointmentResponseSerializer());
+        addSerializer(AppointmentSnapshot.Row.class, new AppointmentRowSerializer());
+    }
+}
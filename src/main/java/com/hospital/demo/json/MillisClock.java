@@ -0,0 +1,42 @@
+package com.hospital.demo.json;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import tools.jackson.core.io.SerializedString;
+
+// Envelope timestamps only need millisecond precision. So we build the LocalDateTime (and its quoted ISO text)
+// once per millisecond and hand the same instance to every response in that millisecond. That skips a
+// zone lookup and a formatter pass per request.
+// Racing threads may both build the next tick; either result is correct, so no locking is needed.
+public final class MillisClock {
+
+    private static volatile Tick tick = new Tick(Long.MIN_VALUE, null, null);
+
+    private MillisClock() {
+    }
+
+    public static LocalDateTime now() {
+        return current().time();
+    }
+
+    // Pre-encoded text for `time` if it is the instance handed out for the current millisecond, otherwise null.
+    static SerializedString encoded(LocalDateTime time) {
+        Tick t = tick;
+        return t.time() == time ? t.text() : null;
+    }
+
+    private static Tick current() {
+        long millis = System.currentTimeMillis();
+        Tick t = tick;
+        if (t.millis() != millis) {
+            LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+            t = new Tick(millis, time, new SerializedString(IsoDateTime.format(time)));
+            tick = t;
+        }
+        return t;
+    }
+
+    private record Tick(long millis, LocalDateTime time, SerializedString text) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.hospital.demo.json;
+
+import com.hospital.demo.metrics.MethodTimers;
+import io.micrometer.core.instrument.Timer;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+// Writes rows straight onto the response stream while they are still coming off the database, either as a
+// success ApiEnvelope (JSON, CBOR or Smile) or as NDJSON. Every chunk goes through one SequenceWriter (serializer looked up once) and is
+// flushed. Nothing is buffered beyond the generator's own buffer, so the report never exists as a List or a tree.
+// By the time a query fails partway, the 200 and the first rows are already out. Nothing is written after the
+// failure: the body stays cut off mid-array (never closed up into valid JSON) and the exception goes on up, where
+// GlobalExceptionHandler leaves it to the container to drop the connection without the final chunk.
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StreamingJsonWriter {
+
+    Map<WireFormat, ObjectWriter> writers = new EnumMap<>(WireFormat.class);
+    ObjectWriter lineWriter;
+    Timer envelopeChunkTimer;
+    Timer lineChunkTimer;
+
+    public StreamingJsonWriter(ObjectMapper objectMapper, CBORMapper cborMapper, SmileMapper smileMapper,
+                               MethodTimers methodTimers) {
+        writers.put(WireFormat.JSON, streamingWriter(objectMapper));
+        writers.put(WireFormat.CBOR, streamingWriter(cborMapper));
+        writers.put(WireFormat.SMILE, streamingWriter(smileMapper));
+        // We end every line ourselves, so drop Jackson's default space between root-level values.
+        this.lineWriter = writers.get(WireFormat.JSON).withRootValueSeparator((String) null);
+        // Per chunk, serialization only: the time spent waiting on the next rows from the database is excluded.
+        this.envelopeChunkTimer = methodTimers.timer("serialization", "StreamingJsonWriter", "writeEnvelope", true);
+        this.lineChunkTimer = methodTimers.timer("serialization", "StreamingJsonWriter", "writeLines", true);
+    }
+
+    // `source` is handed a sink and must call it with each chunk of rows, in order, before returning
+    // (e.g. AppointmentService::streamReport). Header fields go first, then "data": [ ...rows... ].
+    public <T> void writeEnvelope(OutputStream out, String message, Class<T> rowType,
+                                 Consumer<Consumer<List<T>>> source) {
+        writeEnvelope(out, WireFormat.JSON, message, rowType, source);
+    }
+
+    public <T> void writeEnvelope(OutputStream out, WireFormat format, String message, Class<T> rowType,
+                                 Consumer<Consumer<List<T>>> source) {
+        ObjectWriter writer = writers.get(format);
+        try (JsonGenerator gen = writer.createGenerator(out)) {
+            gen.writeStartObject();
+            ApiEnvelopeSerializer.writeHeader(gen, HttpStatus.OK.value(), message, MillisClock.now(), null);
+            gen.writeName(ApiEnvelopeSerializer.DATA);
+            gen.writeStartArray();
+            try (SequenceWriter rows = writer.forType(rowType).writeValues(gen)) {
+                source.accept(chunk -> {
+                    long start = System.nanoTime();
+                    for (T row : chunk) {
+                        rows.write(row);
+                    }
+                    gen.flush();
+                    envelopeChunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                });
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
+
+    // One JSON document per line.
+    public <T> void writeLines(OutputStream out, Class<T> rowType, Consumer<Consumer<List<T>>> source) {
+        try (JsonGenerator gen = lineWriter.createGenerator(out);
+             SequenceWriter rows = lineWriter.forType(rowType).writeValues(gen)) {
+            source.accept(chunk -> {
+                long start = System.nanoTime();
+                for (T row : chunk) {
+                    rows.write(row);
+                    gen.writeRaw('\n');
+                }
+                gen.flush();
+                lineChunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            });
+        }
+    }
+
+    private static ObjectWriter streamingWriter(ObjectMapper mapper) {
+        return mapper.writer()
+            .without(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            // Otherwise closing the generator after a failure would write the missing ]} for us.
+            .without(StreamWriteFeature.AUTO_CLOSE_CONTENT)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+}
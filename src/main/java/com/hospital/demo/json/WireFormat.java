@@ -0,0 +1,50 @@
+package com.hospital.demo.json;
+
+import java.util.List;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+// Body formats the API can answer in. All three go through the same Jackson serializers, only the generator differs.
+// CBOR and Smile drop the quotes, colons and field-name repetition of JSON (Smile back-references repeated names
+// and short strings), so a report is smaller on the wire and much cheaper for a client to parse.
+public enum WireFormat {
+    JSON(MediaType.APPLICATION_JSON),
+    CBOR(MediaType.APPLICATION_CBOR),
+    SMILE(MediaType.parseMediaType(WireFormat.SMILE_VALUE));
+
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    final MediaType mediaType;
+
+    WireFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    // The binary format the Accept header prefers (by q, then by order), JSON if it names neither.
+    public static WireFormat fromAccept(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return JSON;
+        }
+        WireFormat best = JSON;
+        double bestQuality = 0;
+        for (MediaType type : accepted) {
+            WireFormat format = type.equalsTypeAndSubtype(CBOR.mediaType) ? CBOR
+                : type.equalsTypeAndSubtype(SMILE.mediaType) ? SMILE : null;
+            if (format != null && type.getQualityValue() > bestQuality) {
+                best = format;
+                bestQuality = type.getQualityValue();
+            }
+        }
+        return best;
+    }
+}
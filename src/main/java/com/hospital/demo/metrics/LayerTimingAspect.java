@@ -0,0 +1,107 @@
+package com.hospital.demo.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+// Times every repository call and every public service method into MethodTimers. Calls slower than
+// hospital.metrics.slow-call-threshold are logged. Arguments are redacted in that log: emails and names are
+// PII, so only their type (and size, for collections) is printed.
+// Calls a service makes to itself don't go through the proxy and are not timed separately.
+@Slf4j
+@Aspect
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class LayerTimingAspect {
+
+    MethodTimers methodTimers;
+    long slowCallNanos;
+    Map<TimerKey, Timers> timersByMethod = new ConcurrentHashMap<>();
+    Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+    public LayerTimingAspect(MethodTimers methodTimers,
+                             @Value("${hospital.metrics.slow-call-threshold:200ms}") Duration slowCallThreshold) {
+        this.methodTimers = methodTimers;
+        this.slowCallNanos = slowCallThreshold.toNanos();
+    }
+
+    // Inherited CrudRepository methods (findAllById, saveAll...) are matched through the proxy's interface.
+    @Around("this(org.springframework.data.repository.Repository) && execution(* *(..))")
+    public Object timeRepository(ProceedingJoinPoint pjp) throws Throwable {
+        return time(pjp, "repository", repositoryName(pjp.getThis().getClass()));
+    }
+
+    @Around("within(com.hospital.demo.service..*) && execution(public * *(..))")
+    public Object timeService(ProceedingJoinPoint pjp) throws Throwable {
+        return time(pjp, "service", pjp.getTarget().getClass().getSimpleName());
+    }
+
+    private Object time(ProceedingJoinPoint pjp, String layer, String owner) throws Throwable {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        // Keyed by owner too: CrudRepository.findAllById is one Method shared by every repository.
+        Timers timers = timersByMethod.computeIfAbsent(new TimerKey(owner, method), k -> new Timers(
+            methodTimers.timer(layer, owner, method.getName(), true),
+            methodTimers.timer(layer, owner, method.getName(), false)));
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = pjp.proceed();
+            success = true;
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            (success ? timers.success() : timers.error()).record(elapsed, TimeUnit.NANOSECONDS);
+            if (elapsed > slowCallNanos) {
+                log.warn("Slow {} call {}.{} took {} ms, args={}", layer, owner, method.getName(),
+                    elapsed / 1_000_000, redact(pjp.getArgs()));
+            }
+        }
+    }
+
+    // The Spring Data proxy implements our repository interface plus framework ones; we want the former.
+    private String repositoryName(Class<?> proxyClass) {
+        return repositoryNames.computeIfAbsent(proxyClass, c -> Arrays.stream(c.getInterfaces())
+            .filter(i -> i.getPackageName().startsWith("com.hospital.demo"))
+            .map(Class::getSimpleName)
+            .findFirst()
+            .orElse(c.getSimpleName()));
+    }
+
+    static String redact(Object[] args) {
+        return Arrays.stream(args).map(LayerTimingAspect::redact).collect(Collectors.joining(", ", "[", "]"));
+    }
+
+    private static String redact(Object arg) {
+        if (arg == null || arg instanceof Number || arg instanceof Boolean || arg instanceof Enum<?>
+            || arg instanceof Limit) {
+            return String.valueOf(arg);
+        }
+        if (arg instanceof Collection<?> c) {
+            return arg.getClass().getSimpleName() + "(size=" + c.size() + ")";
+        }
+        return "<" + arg.getClass().getSimpleName() + ">";
+    }
+
+    private record TimerKey(String owner, Method method) {
+    }
+
+    private record Timers(Timer success, Timer error) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.hospital.demo.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.stereotype.Component;
+
+// One `hospital.method` timer per (layer, class, method, outcome), all with percentile histograms, so Grafana
+// can do histogram_quantile(0.99, ...) per layer and see which one moved.
+// layer is repository | service | serialization.
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class MethodTimers {
+
+    public static final String METRIC = "hospital.method";
+
+    MeterRegistry meterRegistry;
+    Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public MethodTimers(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer timer(String layer, String owner, String method, boolean success) {
+        String outcome = success ? "success" : "error";
+        return timers.computeIfAbsent(layer + '|' + owner + '|' + method + '|' + outcome, key ->
+            Timer.builder(METRIC)
+                .description("Time spent per method, by layer")
+                .tag("layer", layer)
+                .tag("class", owner)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,77 @@
+package com.hospital.demo.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// Time to first request: JVM start until the first /api/ response has been written, published as
+// `application.first.request.time` and logged once. Boot's application.ready.time starts later, at
+// SpringApplication.run(), so it leaves out JVM boot and class loading, which is what CDS saves.
+// Counts whatever the first answer is (a 401 included), so it sits in front of security and runs once.
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StartupTimings extends OncePerRequestFilter {
+
+    AtomicBoolean served = new AtomicBoolean();
+    // NaN until the first request is answered.
+    double[] firstRequestMillis = {Double.NaN};
+
+    public StartupTimings(MeterRegistry meterRegistry) {
+        TimeGauge.builder("application.first.request.time", firstRequestMillis, TimeUnit.MILLISECONDS, t -> t[0])
+            .description("Time from JVM start until the first API response")
+            .register(meterRegistry);
+    }
+
+    // Published once the ApplicationReadyEvent listeners have returned. The name index, stats rollup and report
+    // snapshot builds only start there and run in the background, so this no longer waits for them. Their progress
+    // is on the readiness probe's seed component, and the log says when the last one is done.
+    @EventListener
+    public void ready(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC) {
+            log.info("Accepting traffic {} ms after JVM start", uptimeMillis());
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return served.get() || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (served.compareAndSet(false, true)) {
+                long uptime = uptimeMillis();
+                firstRequestMillis[0] = uptime;
+                log.info("First API request ({} {} -> {}) answered {} ms after JVM start",
+                    request.getMethod(), request.getRequestURI(), response.getStatus(), uptime);
+            }
+        }
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
@@ -0,0 +1,92 @@
+package com.hospital.demo.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+// Counts the SQL statements each API request runs and publishes them per endpoint as
+// `http.server.requests.jdbc.statements`. An N+1 regression shows up as that number growing with the data
+// instead of staying flat. Above hospital.metrics.statement-warn-threshold it is also logged (prometheus-rules.yml
+// alerts on the same number).
+@Slf4j
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    MeterRegistry meterRegistry;
+    int warnThreshold;
+
+    public StatementCountFilter(MeterRegistry meterRegistry,
+                                @Value("${hospital.metrics.statement-warn-threshold:25}") int warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            request.setAttribute(StatementCounter.REQUEST_ATTRIBUTE, scope.count());
+            chain.doFilter(request, response);
+
+            if (request.isAsyncStarted()) {
+                // Streamed response: its statements are still being counted on the async thread.
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, scope);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, scope);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, StatementCounter.Scope scope) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        int statements = scope.statements();
+        DistributionSummary.builder("http.server.requests.jdbc.statements")
+            .description("SQL statements executed per API request")
+            .tag("method", request.getMethod())
+            .tag("uri", uri)
+            .serviceLevelObjectives(1, 2, 5, 10, 25, 50, 100, 250, 1000)
+            .register(meterRegistry)
+            .record(statements);
+        if (statements > warnThreshold) {
+            log.warn("{} {} ran {} SQL statements (threshold {}), possible N+1",
+                request.getMethod(), uri, statements, warnThreshold);
+        }
+    }
+}
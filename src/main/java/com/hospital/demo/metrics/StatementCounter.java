@@ -0,0 +1,91 @@
+package com.hospital.demo.metrics;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+// Hibernate hands every SQL statement it prepares to this inspector. We don't touch the SQL, we just count it
+// against whatever scope is open on the current thread (see StatementCountFilter). Work outside any scope, such as
+// the seeder, is not counted.
+// Streamed responses run their queries on an async thread. The request's counter is attached to that thread
+// through callableInterceptor(), so their statements still land on the request that caused them. Work a request
+// hands to a pool of its own (ChunkedLoader's helpers) is wrapped with propagating(), for the same reason. Several
+// threads can then count against one request at once, so the count is atomic.
+@Component
+public class StatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+
+    static final String REQUEST_ATTRIBUTE = StatementCounter.class.getName() + ".count";
+
+    private static final ThreadLocal<AtomicInteger> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        AtomicInteger count = CURRENT.get();
+        if (count != null) {
+            count.incrementAndGet();
+        }
+        return sql;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    public static Scope open() {
+        AtomicInteger count = new AtomicInteger();
+        CURRENT.set(count);
+        return new Scope(count);
+    }
+
+    // `task`, counting against the scope open on the calling thread (if any) wherever it runs.
+    public static Runnable propagating(Runnable task) {
+        AtomicInteger count = CURRENT.get();
+        if (count == null) {
+            return task;
+        }
+        return () -> {
+            CURRENT.set(count);
+            try {
+                task.run();
+            } finally {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public static CallableProcessingInterceptor callableInterceptor() {
+        return new CallableProcessingInterceptor() {
+            @Override
+            public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                if (request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof AtomicInteger count) {
+                    CURRENT.set(count);
+                }
+            }
+
+            @Override
+            public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object result) {
+                CURRENT.remove();
+            }
+        };
+    }
+
+    public record Scope(AtomicInteger count) implements AutoCloseable {
+
+        public int statements() {
+            return count.get();
+        }
+
+        @Override
+        public void close() {
+            CURRENT.remove();
+        }
+    }
+}
@@ -1,9 +1,8 @@
 package com.hospital.demo.model;
 
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -13,17 +12,24 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.UuidGenerator;
 
+// Both indexes end in id so the keyset seek on (appointment_time, id) stays inside the index:
+// time windows range-scan the first one, a patient's history the second.
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+    @Index(name = "idx_appointment_time_id", columnList = "appointment_time, id"),
+    @Index(name = "idx_appointment_patient_time", columnList = "patient_id, appointment_time, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class Appointment {
+    // Time-ordered like Patient's.
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     UUID id;
     UUID patientId;
     LocalDateTime appointmentTime;
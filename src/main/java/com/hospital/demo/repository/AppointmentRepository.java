@@ -1,8 +1,127 @@
 package com.hospital.demo.repository;
 
+import com.hospital.demo.dto.AppointmentResponse;
 import com.hospital.demo.model.Appointment;
+import jakarta.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 public interface AppointmentRepository extends JpaRepository<Appointment, UUID> {
+
+    // Report projection: one SQL join straight into the response DTO. Nothing lands in the persistence context,
+    // so there are no entity snapshots to dirty-check and no Patient objects to build just to read two names.
+    String REPORT_SELECT = """
+        SELECT new com.hospital.demo.dto.AppointmentResponse(
+            a.id, concat(p.firstName, ' ', p.lastName), a.appointmentTime, a.notes)
+        FROM Appointment a JOIN Patient p ON p.id = a.patientId
+        """;
+
+    @Query(REPORT_SELECT)
+    List<AppointmentResponse> findAllWithPatientName();
+
+    // Keyset pagination: we seek past the last (appointmentTime, id) the client saw instead of using OFFSET,
+    // so page 500 costs the same as page 1. The id is the tie-breaker for appointments booked at the same time.
+    @Query(REPORT_SELECT + "ORDER BY a.appointmentTime, a.id")
+    List<AppointmentResponse> findFirstPageWithPatientName(Limit limit);
+
+    @Query(REPORT_SELECT + """
+        WHERE (a.appointmentTime, a.id) > (:appointmentTime, :id)
+        ORDER BY a.appointmentTime, a.id
+        """)
+    List<AppointmentResponse> findPageAfterWithPatientName(@Param("appointmentTime") LocalDateTime appointmentTime,
+                                                           @Param("id") UUID id,
+                                                           Limit limit);
+
+    // Postgres only opens a server-side cursor when autocommit is off and a fetch size is set,
+    // so this must be consumed inside a transaction. Otherwise the driver buffers the whole result set.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(REPORT_SELECT + "ORDER BY a.appointmentTime, a.id")
+    Stream<AppointmentResponse> streamAllWithPatientName();
+
+    // A schedule screen: range scan on idx_appointment_time_id, already in keyset order, so no sort step.
+    @Query(REPORT_SELECT + """
+        WHERE a.appointmentTime >= :from AND a.appointmentTime < :to
+        ORDER BY a.appointmentTime, a.id
+        """)
+    List<AppointmentResponse> findWindowWithPatientName(@Param("from") LocalDateTime from,
+                                                        @Param("to") LocalDateTime to,
+                                                        Limit limit);
+
+    // The cursor is past `from` already, so only the upper bound is needed.
+    @Query(REPORT_SELECT + """
+        WHERE a.appointmentTime < :to AND (a.appointmentTime, a.id) > (:appointmentTime, :id)
+        ORDER BY a.appointmentTime, a.id
+        """)
+    List<AppointmentResponse> findWindowAfterWithPatientName(@Param("to") LocalDateTime to,
+                                                             @Param("appointmentTime") LocalDateTime appointmentTime,
+                                                             @Param("id") UUID id,
+                                                             Limit limit);
+
+    // A patient's history: equality on the leading column of idx_appointment_patient_time, then the same seek.
+    @Query(REPORT_SELECT + """
+        WHERE a.patientId = :patientId
+        ORDER BY a.appointmentTime, a.id
+        """)
+    List<AppointmentResponse> findByPatientWithPatientName(@Param("patientId") UUID patientId, Limit limit);
+
+    @Query(REPORT_SELECT + """
+        WHERE a.patientId = :patientId AND (a.appointmentTime, a.id) > (:appointmentTime, :id)
+        ORDER BY a.appointmentTime, a.id
+        """)
+    List<AppointmentResponse> findByPatientAfterWithPatientName(@Param("patientId") UUID patientId,
+                                                                @Param("appointmentTime") LocalDateTime appointmentTime,
+                                                                @Param("id") UUID id,
+                                                                Limit limit);
+
+    // Full rebuild of the columnar report snapshot (see AppointmentSnapshot): the report's join, plus the patient id
+    // its dictionary is keyed on. Unordered, since the snapshot sorts in memory. Consume inside a transaction.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+        SELECT a.id AS id, a.patientId AS patientId, concat(p.firstName, ' ', p.lastName) AS patientFullName,
+               a.appointmentTime AS appointmentTime, a.notes AS notes
+        FROM Appointment a JOIN Patient p ON p.id = a.patientId
+        """)
+    Stream<SnapshotRow> streamForSnapshot();
+
+    // Full rebuild of the stats rollup (see AppointmentRollup). Both are one aggregate scan, grouped in the database,
+    // so only one row per hour or per patient crosses the wire.
+    @Query("""
+        SELECT year(a.appointmentTime) AS year, month(a.appointmentTime) AS month,
+               day(a.appointmentTime) AS day, hour(a.appointmentTime) AS hour, count(a) AS appointments
+        FROM Appointment a
+        GROUP BY year(a.appointmentTime), month(a.appointmentTime), day(a.appointmentTime), hour(a.appointmentTime)
+        """)
+    List<HourlyCount> countByHour();
+
+    @Query("SELECT a.patientId AS patientId, count(a) AS appointments FROM Appointment a GROUP BY a.patientId")
+    List<PatientCount> countByPatient();
+
+    interface HourlyCount {
+        int getYear();
+        int getMonth();
+        int getDay();
+        int getHour();
+        long getAppointments();
+    }
+
+    interface SnapshotRow {
+        UUID getId();
+        UUID getPatientId();
+        String getPatientFullName();
+        LocalDateTime getAppointmentTime();
+        String getNotes();
+    }
+
+    interface PatientCount {
+        UUID getPatientId();
+        long getAppointments();
+    }
 }
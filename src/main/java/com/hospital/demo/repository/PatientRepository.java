@@ -1,11 +1,16 @@
 package com.hospital.demo.repository;
 
 import com.hospital.demo.model.Patient;
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -13,6 +18,15 @@ public interface PatientRepository extends JpaRepository<Patient, UUID> {
     // This will be slow because of missing index
     Optional<Patient> findByEmail(String email);
 
+    // Batch lookups: one IN query instead of one round trip per email
+    List<Patient> findAllByEmailIn(Collection<String> emails);
+
     @Query("SELECT p.id FROM Patient p")
     List<UUID> findAllIds();
+
+    // Feeds the name index rebuild. The constructor expression keeps the rows out of the persistence context,
+    // and the fetch size lets Postgres hand them over through a cursor (so call it inside a transaction).
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.hospital.demo.model.Patient(p.id, p.firstName, p.lastName, p.email) FROM Patient p")
+    Stream<Patient> streamAllDetached();
 }
@@ -0,0 +1,340 @@
+package com.hospital.demo.search;
+
+import com.hospital.demo.dto.PatientNameMatch;
+import com.hospital.demo.model.Patient;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+// In-memory search structure over patient names and emails. Thread-safe: reads never lock, writes are idempotent.
+// - Prefix: every name token and the full email sit in one sorted map, so "smi" is a range scan that visits
+//   matching tokens in alphabetical order and can stop as soon as it has enough candidates.
+// - Fuzzy: name tokens are also indexed by trigram (pg_trgm style, padded with spaces),
+//   so "smiht" still finds "smith".
+//   Emails are left out of the trigram index; they are mostly UUIDs and would only add millions of postings.
+// - Every query word has to match, so the candidates are the intersection of the words' posting lists. We walk the
+//   smallest list and check each patient against the other words before it counts towards MAX_CANDIDATES. Capping
+//   first could fill every slot with patients another word rules out.
+public class NameIndex {
+
+    // A one-letter prefix can match thousands of patients. Type-ahead only needs the first few, so we stop after
+    // this many patients that match the whole query.
+    static final int MAX_CANDIDATES = 500;
+    static final double MIN_SIMILARITY = 0.3;
+    static final int MIN_FUZZY_LENGTH = 3;
+
+    private static final Pattern SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern APOSTROPHES = Pattern.compile("['\u2019]");
+
+    private static final Comparator<PatientNameMatch> RANKING =
+        Comparator.comparingDouble(PatientNameMatch::getScore).reversed()
+            .thenComparing(PatientNameMatch::getLastName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(PatientNameMatch::getFirstName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(PatientNameMatch::getId);
+
+    record Entry(UUID id, String firstName, String lastName, String email, String[] tokens) {
+    }
+
+    private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Set<UUID>> tokens = new ConcurrentSkipListMap<>();
+    // Name token -> its trigrams' postings. A token leaves once no patient has it; that happens inside the `tokens`
+    // compute for the token, so it can't race an add of the same token.
+    private final ConcurrentHashMap<String, Set<String>> trigrams = new ConcurrentHashMap<>();
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void add(Patient patient) {
+        Entry previous = entries.get(patient.getId());
+        if (previous != null) {
+            remove(patient.getId());
+        }
+        Set<String> nameTokens = new LinkedHashSet<>();
+        nameTokens.addAll(tokenize(patient.getFirstName()));
+        nameTokens.addAll(tokenize(patient.getLastName()));
+        Set<String> all = new LinkedHashSet<>(nameTokens);
+        if (patient.getEmail() != null) {
+            all.add(normalize(patient.getEmail()));
+        }
+
+        Entry entry = new Entry(patient.getId(), patient.getFirstName(), patient.getLastName(), patient.getEmail(),
+            all.toArray(String[]::new));
+        entries.put(entry.id(), entry);
+        for (String token : all) {
+            tokens.compute(token, (k, ids) -> {
+                Set<UUID> set = ids;
+                if (set == null) {
+                    set = ConcurrentHashMap.newKeySet();
+                    if (nameTokens.contains(token)) {
+                        addTrigrams(token);
+                    }
+                }
+                set.add(entry.id());
+                return set;
+            });
+        }
+    }
+
+    public void remove(UUID id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String token : entry.tokens()) {
+            tokens.computeIfPresent(token, (k, ids) -> {
+                ids.remove(id);
+                if (!ids.isEmpty()) {
+                    return ids;
+                }
+                if (token.indexOf('@') < 0) {
+                    removeTrigrams(token);
+                }
+                return null;
+            });
+        }
+    }
+
+    private void addTrigrams(String token) {
+        for (String gram : trigramsOf(token)) {
+            trigrams.compute(gram, (k, posting) -> {
+                Set<String> set = posting == null ? ConcurrentHashMap.newKeySet() : posting;
+                set.add(token);
+                return set;
+            });
+        }
+    }
+
+    private void removeTrigrams(String token) {
+        for (String gram : trigramsOf(token)) {
+            trigrams.computeIfPresent(gram, (k, posting) -> {
+                posting.remove(token);
+                return posting.isEmpty() ? null : posting;
+            });
+        }
+    }
+
+    // Total (trigram, token) postings, for tests.
+    int trigramPostings() {
+        return trigrams.values().stream().mapToInt(Set::size).sum();
+    }
+
+    // Every query token has to match some token of the patient: exactly, as a prefix, or (3+ letters) by trigrams.
+    // Results are ordered by score, then last name, first name, id, so the same query always ranks the same way.
+    public List<PatientNameMatch> search(String query, int limit) {
+        List<String> queryTokens = query.indexOf('@') >= 0 ? List.of(normalize(query.trim())) : tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        TopMatches top = new TopMatches(queryTokens, limit);
+        String driver = queryTokens.size() == 1 ? queryTokens.get(0) : mostSelective(queryTokens);
+        if (!top.offerAll(tokens.subMap(driver, true, driver + Character.MAX_VALUE, false).values())
+            && driver.length() >= MIN_FUZZY_LENGTH) {
+            top.offerAll(similarTokens(driver).stream().map(tokens::get).filter(Objects::nonNull).toList());
+        }
+        return top.ranked();
+    }
+
+    // The query word with the shortest posting list (prefix matches, or fuzzy ones for a word with none).
+    // Counting stops once a word is already longer than the best so far, so a one-letter word costs little.
+    private String mostSelective(List<String> queryTokens) {
+        String best = null;
+        long bestSize = Long.MAX_VALUE;
+        for (String q : queryTokens) {
+            long size = postingSize(tokens.subMap(q, true, q + Character.MAX_VALUE, false).values(), bestSize);
+            if (size == 0 && q.length() >= MIN_FUZZY_LENGTH) {
+                size = postingSize(similarTokens(q).stream().map(tokens::get).filter(Objects::nonNull).toList(),
+                    bestSize);
+            }
+            if (size < bestSize || size == bestSize && q.length() > best.length()) {
+                best = q;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    private static long postingSize(Collection<Set<UUID>> postings, long bound) {
+        long size = 0;
+        for (Set<UUID> ids : postings) {
+            size += ids.size();
+            if (size > bound) {
+                return size;
+            }
+        }
+        return size;
+    }
+
+    // Top-k with a bounded heap whose head is the worst match kept so far. A patient counts towards
+    // MAX_CANDIDATES only once it has matched every query word.
+    private final class TopMatches {
+
+        final List<String> queryTokens;
+        final int limit;
+        final List<Map<String, Double>> fuzzyMemo;
+        final PriorityQueue<PatientNameMatch> best;
+        final Set<UUID> seen = new HashSet<>();
+        int matched;
+
+        TopMatches(List<String> queryTokens, int limit) {
+            this.queryTokens = queryTokens;
+            this.limit = limit;
+            this.fuzzyMemo = queryTokens.stream().<Map<String, Double>>map(q -> new HashMap<>()).toList();
+            this.best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        }
+
+        // True once MAX_CANDIDATES patients have matched.
+        boolean offerAll(Collection<Set<UUID>> postings) {
+            for (Set<UUID> ids : postings) {
+                for (UUID id : ids) {
+                    if (matched >= MAX_CANDIDATES) {
+                        return true;
+                    }
+                    if (seen.add(id)) {
+                        offer(id);
+                    }
+                }
+            }
+            return matched >= MAX_CANDIDATES;
+        }
+
+        private void offer(UUID id) {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return;
+            }
+            double score = score(queryTokens, entry, fuzzyMemo);
+            if (score <= 0) {
+                return;
+            }
+            matched++;
+            best.add(new PatientNameMatch(entry.id(), entry.firstName(), entry.lastName(), entry.email(), score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<PatientNameMatch> ranked() {
+            List<PatientNameMatch> matches = new ArrayList<>(best);
+            matches.sort(RANKING);
+            return matches;
+        }
+    }
+
+    // Name tokens sharing enough trigrams with the query token, best first.
+    private List<String> similarTokens(String token) {
+        Set<String> grams = trigramsOf(token);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String gram : grams) {
+            Set<String> posting = trigrams.get(gram);
+            if (posting != null) {
+                for (String candidate : posting) {
+                    shared.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<String, Double>> similar = new ArrayList<>();
+        shared.forEach((candidate, n) -> {
+            double similarity = similarity(n, grams.size(), trigramsOf(candidate).size());
+            if (similarity >= MIN_SIMILARITY) {
+                similar.add(Map.entry(candidate, similarity));
+            }
+        });
+        similar.sort(Map.Entry.<String, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return similar.stream().map(Map.Entry::getKey).toList();
+    }
+
+    // Average over query tokens of the best match against the patient's tokens:
+    // exact 1.0, prefix 0.5-1.0 (closer to 1 the more of the token is typed), fuzzy up to 0.5.
+    // Trigram similarity is the expensive part and names repeat a lot, so it's computed once per name per search.
+    static double score(List<String> queryTokens, Entry entry, List<Map<String, Double>> fuzzyMemo) {
+        double total = 0;
+        for (int i = 0; i < queryTokens.size(); i++) {
+            String q = queryTokens.get(i);
+            double best = 0;
+            for (String token : entry.tokens()) {
+                best = Math.max(best, prefixScore(q, token));
+            }
+            if (best == 0 && q.length() >= MIN_FUZZY_LENGTH) {
+                Map<String, Double> memo = fuzzyMemo.get(i);
+                for (String token : entry.tokens()) {
+                    if (token.indexOf('@') < 0) {
+                        best = Math.max(best, memo.computeIfAbsent(token, t -> fuzzyScore(q, t)));
+                    }
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total / queryTokens.size();
+    }
+
+    static double prefixScore(String query, String token) {
+        if (!token.startsWith(query)) {
+            return 0;
+        }
+        return 0.5 + 0.5 * query.length() / token.length();
+    }
+
+    static double fuzzyScore(String query, String token) {
+        Set<String> a = trigramsOf(query);
+        Set<String> b = trigramsOf(token);
+        int shared = 0;
+        for (String gram : a) {
+            if (b.contains(gram)) {
+                shared++;
+            }
+        }
+        double similarity = similarity(shared, a.size(), b.size());
+        return similarity >= MIN_SIMILARITY ? 0.5 * similarity : 0;
+    }
+
+    private static double similarity(int shared, int a, int b) {
+        return (double) shared / (a + b - shared);
+    }
+
+    static Set<String> trigramsOf(String token) {
+        String padded = "  " + token + " ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // "José O'Brien" -> [jose, obrien]. Apostrophes are dropped rather than split on, so "obrien" finds O'Brien.
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> out = new ArrayList<>();
+        for (String part : SPLIT.split(APOSTROPHES.matcher(normalize(text)).replaceAll(""))) {
+            if (!part.isEmpty()) {
+                out.add(part);
+            }
+        }
+        return out;
+    }
+
+    static String normalize(String text) {
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,122 @@
+package com.hospital.demo.search;
+
+import com.hospital.demo.config.DataSeededEvent;
+import com.hospital.demo.config.PrimaryReads;
+import com.hospital.demo.config.SeedHealthIndicator;
+import com.hospital.demo.dto.PatientNameMatch;
+import com.hospital.demo.model.Patient;
+import com.hospital.demo.repository.PatientRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Owns the live NameIndex. PatientService calls add/remove after each committed write. A full rebuild from the
+// patients table runs at startup (in the background, see SeedHealthIndicator) and after seeding, since the COPY
+// seeder writes behind Hibernate's back.
+// Writes that arrive during a rebuild are journaled and replayed onto the new index before it goes live.
+// add/remove are idempotent, so replaying something the rebuild query already saw does no harm.
+// The scan reads the primary (PrimaryReads). The journal only covers writes made while it runs, and nothing rebuilds
+// on a schedule, so rows a lagging replica hadn't replayed yet would be missing from the index for good. The rebuild
+// after a bulk COPY is exactly when replicas lag most.
+@Component
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class PatientNameIndex {
+
+    PatientRepository patientRepository;
+    SeedHealthIndicator startup;
+    PrimaryReads primaryReads;
+    TransactionTemplate readOnlyTx;
+    Object rebuildLock = new Object();
+
+    @NonFinal
+    volatile NameIndex index = new NameIndex();
+
+    // Non-null only while a rebuild is running. Guarded by `this`.
+    @NonFinal
+    List<Consumer<NameIndex>> journal;
+
+    public PatientNameIndex(PatientRepository patientRepository, SeedHealthIndicator startup,
+                            PrimaryReads primaryReads, PlatformTransactionManager transactionManager) {
+        this.patientRepository = patientRepository;
+        this.startup = startup;
+        this.primaryReads = primaryReads;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public List<PatientNameMatch> search(String query, int limit) {
+        return index.search(query, limit);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public void add(Patient patient) {
+        apply(live -> live.add(patient));
+    }
+
+    public void remove(UUID id) {
+        apply(live -> live.remove(id));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        startup.warmUp("name-index", this::rebuild);
+    }
+
+    // On the seeder's thread, which is already off the startup path.
+    @EventListener(DataSeededEvent.class)
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            rebuildNow();
+        }
+    }
+
+    private void rebuildNow() {
+        long started = System.nanoTime();
+        synchronized (this) {
+            journal = new ArrayList<>();
+        }
+        NameIndex rebuilt = new NameIndex();
+        try {
+            // Without replicas PrimaryReads runs this as it stands, and the stream still needs its transaction.
+            primaryReads.run(() -> readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<Patient> patients = patientRepository.streamAllDetached()) {
+                    patients.forEach(rebuilt::add);
+                }
+            }));
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                journal = null;
+            }
+            throw ex;
+        }
+        synchronized (this) {
+            journal.forEach(op -> op.accept(rebuilt));
+            journal = null;
+            index = rebuilt;
+        }
+        log.info("Patient name index rebuilt: {} patients in {} ms",
+            rebuilt.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private synchronized void apply(Consumer<NameIndex> op) {
+        op.accept(index);
+        if (journal != null) {
+            journal.add(op);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.hospital.demo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+// Remembers tokens that already passed signature and claim validation, so a client sending the same bearer
+// token on every call pays RSA verification once and not once per request.
+// Entries are keyed by SHA-256 of the raw token, so the cache never holds the credentials themselves.
+// An entry never outlives the token's exp. Rejected tokens are not cached and go through the delegate every time.
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class CachingJwtDecoder implements JwtDecoder {
+
+    JwtDecoder delegate;
+    Cache<String, Jwt> validated;
+    Timer verifiedOk;
+    Timer verifiedFailed;
+
+    public CachingJwtDecoder(JwtDecoder delegate, MeterRegistry meterRegistry, long maxSize, Duration maxTtl, Clock clock) {
+        this.delegate = delegate;
+        this.validated = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfter(Expiry.<String, Jwt>creating((hash, jwt) -> ttl(jwt, clock.instant(), maxTtl)))
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, validated, "security.jwt");
+        this.verifiedOk = verifyTimer(meterRegistry, "success");
+        this.verifiedFailed = verifyTimer(meterRegistry, "failure");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        return validated.get(sha256(token), hash -> verify(token));
+    }
+
+    private Jwt verify(String token) {
+        long start = System.nanoTime();
+        try {
+            Jwt jwt = delegate.decode(token);
+            verifiedOk.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return jwt;
+        } catch (RuntimeException ex) {
+            verifiedFailed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw ex;
+        }
+    }
+
+    static Duration ttl(Jwt jwt, Instant now, Duration maxTtl) {
+        Instant expiresAt = jwt.getExpiresAt();
+        if (expiresAt == null) {
+            return maxTtl;
+        }
+        Duration left = Duration.between(now, expiresAt);
+        if (left.isNegative()) {
+            return Duration.ZERO;
+        }
+        return left.compareTo(maxTtl) < 0 ? left : maxTtl;
+    }
+
+    private static String sha256(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private static Timer verifyTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("security.jwt.verify")
+            .description("Full JWT signature and claim verification (cache misses only)")
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+}
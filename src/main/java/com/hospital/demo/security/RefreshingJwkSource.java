@@ -0,0 +1,56 @@
+package com.hospital.demo.security;
+
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.jwk.source.JWKSourceBuilder;
+import com.nimbusds.jose.jwk.source.OutageTolerantJWKSetSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jose.util.ResourceRetriever;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+
+// Keycloak's JWK set, held in memory and kept fresh off the request path:
+//  - refresh-ahead: a background task re-fetches the set `refreshAhead` before the cached copy expires,
+//  - outage tolerance: if Keycloak is down when the copy expires we keep serving it (stale-while-revalidate)
+//    for up to `outageTolerance` instead of failing every request,
+//  - refresh timeout: how long a request waits on a fetch another thread already started,
+//  - rate limiting: a flood of tokens with an unknown kid triggers at most one fetch per interval.
+// A request only blocks on Keycloak for the very first fetch, or when it presents a kid we have never seen.
+@Slf4j
+public final class RefreshingJwkSource {
+
+    private RefreshingJwkSource() {
+    }
+
+    public static JWKSource<SecurityContext> create(String jwkSetUri, Duration ttl, Duration refreshAhead,
+                                                    Duration refreshTimeout, Duration outageTolerance) {
+        ResourceRetriever retriever = new DefaultResourceRetriever(
+            JWKSourceBuilder.DEFAULT_HTTP_CONNECT_TIMEOUT,
+            JWKSourceBuilder.DEFAULT_HTTP_READ_TIMEOUT,
+            JWKSourceBuilder.DEFAULT_HTTP_SIZE_LIMIT);
+        return create(jwkSetUri, retriever, ttl, refreshAhead, refreshTimeout, outageTolerance);
+    }
+
+    // The retriever is the seam for tests, which hand in a local JWK set instead of Keycloak.
+    public static JWKSource<SecurityContext> create(String jwkSetUri, ResourceRetriever retriever, Duration ttl,
+                                                    Duration refreshAhead, Duration refreshTimeout,
+                                                    Duration outageTolerance) {
+        try {
+            return JWKSourceBuilder.<SecurityContext>create(URI.create(jwkSetUri).toURL(), retriever)
+                .cache(ttl.toMillis(), refreshTimeout.toMillis())
+                .refreshAheadCache(refreshAhead.toMillis(), true)
+                .outageTolerant(outageTolerance.toMillis(), event -> {
+                    if (event instanceof OutageTolerantJWKSetSource.OutageEvent<?> outage) {
+                        log.warn("JWK set endpoint unavailable ({}), serving cached keys for up to {} more",
+                            outage.getException().getMessage(), Duration.ofMillis(outage.getRemainingTime()));
+                    }
+                })
+                .rateLimited(Math.min(JWKSourceBuilder.DEFAULT_RATE_LIMIT_MIN_INTERVAL, ttl.toMillis() / 2))
+                .build();
+        } catch (MalformedURLException ex) {
+            throw new IllegalArgumentException("Invalid JWK set URI: " + jwkSetUri, ex);
+        }
+    }
+}
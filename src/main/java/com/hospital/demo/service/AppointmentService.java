@@ -1,17 +1,45 @@
 package com.hospital.demo.service;
 
+import com.hospital.demo.cache.DataVersions;
+import com.hospital.demo.config.PrimaryReads;
+import com.hospital.demo.dto.AppointmentCountBucket;
+import com.hospital.demo.dto.AppointmentCursor;
+import com.hospital.demo.dto.AppointmentPage;
+import com.hospital.demo.dto.AppointmentRequest;
 import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.dto.AppointmentStats;
+import com.hospital.demo.dto.PatientAppointmentStats;
+import com.hospital.demo.dto.PatientResponse;
+import com.hospital.demo.exception.BadRequestException;
+import com.hospital.demo.exception.TooManyRequestsException;
+import com.hospital.demo.ingest.AppointmentIngestQueue;
 import com.hospital.demo.model.Appointment;
-import com.hospital.demo.model.Patient;
 import com.hospital.demo.repository.AppointmentRepository;
+import com.hospital.demo.stats.AppointmentRollup;
+import com.hospital.demo.stats.AppointmentRollup.Granularity;
+import com.hospital.demo.stats.AppointmentSnapshot;
+import com.hospital.demo.util.UuidMap;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
@@ -19,20 +47,58 @@ import org.springframework.stereotype.Service;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class AppointmentService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    static final int STREAM_CHUNK_SIZE = 500;
+
+    // PROJECTION: one joined query mapped straight into AppointmentResponse (Scenario 4).
+    // BATCH: the Scenario 3 two-query approach (load entities, then patients by id, merge in memory).
+    public enum ReportStrategy { PROJECTION, BATCH }
+
     AppointmentRepository appointmentRepo;
     PatientService patientService;
+    AppointmentRollup appointmentRollup;
+    DataVersions dataVersions;
+    AppointmentIngestQueue ingestQueue;
+    AppointmentSnapshot snapshot;
+    PrimaryReads primaryReads;
 
-    public List<AppointmentResponse> getAllWithDetails() {
-        List<Appointment> appointments = appointmentRepo.findAll();
+    @NonFinal
+    @Value("${hospital.report.strategy:projection}")
+    ReportStrategy reportStrategy;
 
-        // 2. Extract the unique Patient IDs needed for this request
-        List<UUID> patientIds = appointments.stream()
-            .map(Appointment::getPatientId)
-            .distinct()
-            .toList();
+    // ETag for every appointment read. The variant keeps representations of the same URL (JSON vs NDJSON) apart.
+    // Take it before reading (see DataVersions). Reads served by the snapshot carry its version instead. The tag
+    // counts commits on the primary, so the tagged reads below go there too (PrimaryReads), replicas or not.
+    public String versionTag(String variant) {
+        return snapshot.isServing() ? snapshot.versionTag(variant) : dataVersions.appointmentsTag(variant);
+    }
 
-        // 3. Fetch all needed patients in ONE batch (Query #2)
-        Map<UUID, Patient> patientMap = patientService.findAllByIdsMap(patientIds);
+    // The stats come from the rollup, which moves at commit, whether or not the snapshot is serving.
+    public String statsTag() {
+        return dataVersions.appointmentsTag("stats");
+    }
+
+    // True once the columnar snapshot answers the report reads (hospital.report.snapshot.enabled). The report
+    // endpoints then write streamSnapshot's rows instead of streamReport's DTOs.
+    public boolean reportsFromSnapshot() {
+        return snapshot.isServing();
+    }
+
+    public void streamSnapshot(Consumer<List<AppointmentSnapshot.Row>> sink) {
+        snapshot.export(STREAM_CHUNK_SIZE, sink);
+    }
+
+    @Transactional(readOnly = true)
+    public List<AppointmentResponse> getAllWithDetails() {
+        if (reportStrategy == ReportStrategy.BATCH) {
+            return getAllWithDetailsBatched();
+        }
+        return appointmentRepo.findAllWithPatientName();
+    }
+
+    @Transactional(readOnly = true)
+    public List<AppointmentResponse> getAllWithDetailsBatched() {
+        List<Appointment> appointments = appointmentRepo.findAll();
 
           // Comment out this return and comment the return below to play with the N+1 query.
 //        // INTENTIONAL FLAW: The N+1 Select Problem
@@ -47,17 +113,198 @@ public class AppointmentService {
 //            );
 //        }).toList();
 
+        return mergeWithPatients(appointments);
+    }
+
+    @Transactional(readOnly = true)
+    public AppointmentPage getPage(String cursor, int size) {
+        if (snapshot.isServing()) {
+            return page(cursor, size,
+                limit -> snapshot.window(null, null, null, limit.max()),
+                (after, limit) -> snapshot.window(null, null, after, limit.max()));
+        }
+        return primaryReads.get(() -> page(cursor, size,
+            appointmentRepo::findFirstPageWithPatientName,
+            (after, limit) -> appointmentRepo.findPageAfterWithPatientName(
+                after.getAppointmentTime(), after.getId(), limit)));
+    }
+
+    // Appointments starting in [from, to), e.g. one day's schedule.
+    @Transactional(readOnly = true)
+    public AppointmentPage getWindow(LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("'from' must be before 'to'");
+        }
+        if (snapshot.isServing()) {
+            return page(cursor, size,
+                limit -> snapshot.window(from, to, null, limit.max()),
+                (after, limit) -> snapshot.window(from, to, after, limit.max()));
+        }
+        return primaryReads.get(() -> page(cursor, size,
+            limit -> appointmentRepo.findWindowWithPatientName(from, to, limit),
+            (after, limit) -> appointmentRepo.findWindowAfterWithPatientName(
+                to, after.getAppointmentTime(), after.getId(), limit)));
+    }
+
+    @Transactional(readOnly = true)
+    public AppointmentPage getByPatient(UUID patientId, String cursor, int size) {
+        if (snapshot.isServing()) {
+            return page(cursor, size,
+                limit -> snapshot.forPatient(patientId, null, limit.max()),
+                (after, limit) -> snapshot.forPatient(patientId, after, limit.max()));
+        }
+        return primaryReads.get(() -> page(cursor, size,
+            limit -> appointmentRepo.findByPatientWithPatientName(patientId, limit),
+            (after, limit) -> appointmentRepo.findByPatientAfterWithPatientName(
+                patientId, after.getAppointmentTime(), after.getId(), limit)));
+    }
+
+    private AppointmentPage page(String cursor, int size,
+                                 Function<Limit, List<AppointmentResponse>> first,
+                                 BiFunction<AppointmentCursor, Limit, List<AppointmentResponse>> after) {
+        Limit limit = Limit.of(Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+
+        List<AppointmentResponse> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = first.apply(limit);
+        } else {
+            rows = after.apply(AppointmentCursor.decode(cursor), limit);
+        }
+
+        // A short page means we ran off the end of the table, so there is nothing to hand out.
+        String nextCursor = null;
+        if (rows.size() == limit.max()) {
+            AppointmentResponse last = rows.get(rows.size() - 1);
+            nextCursor = new AppointmentCursor(last.getStartTime(), last.getId()).encode();
+        }
+
+        return AppointmentPage.builder()
+            .items(rows)
+            .nextCursor(nextCursor)
+            .build();
+    }
+
+    // Group commit: checks the booking, queues it and waits for the batch it lands in to commit, usually the next
+    // one the flusher writes (see AppointmentIngestQueue).
+    public UUID book(AppointmentRequest request) {
+        // Unknown patients are a 404 now rather than an orphan row later. Usually answered by the patient cache.
+        patientService.findById(request.getPatientId().toString());
+        Appointment appointment = Appointment.builder()
+            .patientId(request.getPatientId())
+            .appointmentTime(request.getAppointmentTime())
+            .notes(request.getNotes())
+            .build();
+        try {
+            return ingestQueue.submit(appointment).getId();
+        } catch (RejectedExecutionException ex) {
+            throw new TooManyRequestsException(ex.getMessage() + ", retry shortly");
+        }
+    }
+
+    // Served from the in-memory rollup, so the cost is the number of buckets, not the number of appointments.
+    public AppointmentStats getStats(String granularity, LocalDateTime from, LocalDateTime to) {
+        Granularity parsed;
+        try {
+            parsed = Granularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestException("granularity must be 'hour' or 'day'");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new BadRequestException("'from' must be before 'to'");
+        }
+
+        List<AppointmentCountBucket> buckets = appointmentRollup.buckets(parsed, from, to);
+        return AppointmentStats.builder()
+            .granularity(parsed.name().toLowerCase(Locale.ROOT))
+            .total(buckets.stream().mapToLong(AppointmentCountBucket::getCount).sum())
+            .buckets(buckets)
+            .reconciledAt(appointmentRollup.reconciledAt())
+            .build();
+    }
+
+    public PatientAppointmentStats getPatientStats(UUID patientId) {
+        return PatientAppointmentStats.builder()
+            .patientId(patientId)
+            .appointments(appointmentRollup.forPatient(patientId))
+            .reconciledAt(appointmentRollup.reconciledAt())
+            .build();
+    }
+
+    // The full report in chunks, for callers that write it out as it comes (see StreamingJsonWriter).
+    // PROJECTION streams off a DB cursor. BATCH has to build the whole list first and hands it over as one chunk.
+    @Transactional(readOnly = true)
+    public void streamReport(Consumer<List<AppointmentResponse>> sink) {
+        primaryReads.run(() -> {
+            if (reportStrategy == ReportStrategy.BATCH) {
+                sink.accept(getAllWithDetailsBatched());
+                return;
+            }
+            streamAllWithDetails(sink);
+        });
+    }
+
+    // Walks the whole table through a server-side cursor and hands the rows to the sink in chunks.
+    // Rows are DTOs, not entities, so nothing accumulates in the persistence context and the heap stays flat
+    // however big the table gets. The sink is called while the transaction (and its connection) is open.
+    @Transactional(readOnly = true)
+    public void streamAllWithDetails(Consumer<List<AppointmentResponse>> sink) {
+        primaryReads.run(() -> {
+            try (Stream<AppointmentResponse> rows = appointmentRepo.streamAllWithPatientName()) {
+                List<AppointmentResponse> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+                Iterator<AppointmentResponse> it = rows.iterator();
+                while (it.hasNext()) {
+                    chunk.add(it.next());
+                    if (chunk.size() == STREAM_CHUNK_SIZE || !it.hasNext()) {
+                        sink.accept(chunk);
+                        chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+                    }
+                }
+            }
+        });
+    }
+
+    private List<AppointmentResponse> mergeWithPatients(List<Appointment> appointments) {
+        // 2. Extract the unique Patient IDs needed for this request. The same table then takes the patients, so
+        // dedupe and join share one allocation. Sized for half as many patients as rows (reports repeat patients);
+        // one where nearly every row is a different patient grows it once.
+        UuidMap<PatientResponse> patients = new UuidMap<>(appointments.size() / 2);
+        List<UUID> patientIds = distinctPatientIds(appointments, patients);
+
+        // 3. Fetch all needed patients in ONE batch (Query #2)
+        patientService.fillByIds(patientIds, patients);
+
         // 4. Merge the data into our Response DTO
-        // Notice: NO MORE DATABASE CALLS INSIDE THIS MAP!
-        return appointments.stream().map(appt -> {
-            Patient p = patientMap.get(appt.getPatientId());
+        return toResponses(appointments, patients);
+    }
+
+    // First-seen order, like Stream.distinct(), without a HashSet node per id. Each id is added to `seen` as a key
+    // with no value yet.
+    static List<UUID> distinctPatientIds(List<Appointment> appointments, UuidMap<?> seen) {
+        List<UUID> ids = new ArrayList<>();
+        for (Appointment appt : appointments) {
+            UUID id = appt.getPatientId();
+            if (id != null && seen.add(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
 
-            return AppointmentResponse.builder()
+    // Notice: NO MORE DATABASE CALLS INSIDE THIS LOOP!
+    // Mapped on the request thread. Spreading it over the common fork-join pool only helped an idle box: under load
+    // every big report would compete for the same few workers, shared with everything else in the JVM.
+    static List<AppointmentResponse> toResponses(List<Appointment> appointments, UuidMap<PatientResponse> patients) {
+        AppointmentResponse[] responses = new AppointmentResponse[appointments.size()];
+        for (int i = 0; i < responses.length; i++) {
+            Appointment appt = appointments.get(i);
+            PatientResponse p = patients.get(appt.getPatientId());
+            responses[i] = AppointmentResponse.builder()
                 .id(appt.getId())
-                .patientFullName(p.getFirstName() + " " + p.getLastName())
+                .patientFullName(p.firstName() + " " + p.lastName())
                 .startTime(appt.getAppointmentTime())
                 .notes(appt.getNotes())
                 .build();
-        }).toList();
+        }
+        return Arrays.asList(responses);
     }
-}
\ No newline at end of file
+}
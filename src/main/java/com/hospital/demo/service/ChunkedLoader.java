@@ -0,0 +1,244 @@
+package com.hospital.demo.service;
+
+import com.hospital.demo.config.PrimaryReads;
+import com.hospital.demo.metrics.StatementCounter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+// Splits a lookup by a large set of keys into IN (...) queries of at most hospital.report.fetch-chunk-size keys and
+// runs them side by side. A 50k-id IN list is slow for Postgres to plan, and it runs into the driver's limit of
+// 32767 bind parameters per statement as the data grows.
+// The request thread fetches chunks itself, and up to hospital.report.fetch-parallelism helper threads take chunks
+// from the same queue. Helpers are never queued. If they're all busy with other reports, the request thread does
+// the work alone, as it did before.
+// The helpers are shared by every request, and each request the limiter lets in (hospital.limiter.max-concurrent)
+// may be holding a connection while it waits on them. So there are only as many helpers as the pool has
+// connections left over once every permit holds one, and 0 = half the pool if that many are spare.
+// A helper takes its connection (a read-only transaction on the primary, PrimaryReads.connectedTx) before it claims a
+// chunk, so the request thread never waits on a helper that is still queuing for the pool. With read replicas the
+// routing proxy would otherwise only borrow it at the chunk's first query. Those helpers' connections are the
+// primary's, which is the pool the helper count is budgeted against. Helpers still waiting when the request thread runs out
+// of chunks are interrupted, so a helper waits for a connection only as long as there is work it could take.
+// A helper whose query fails puts its chunk back, and the request thread runs it. Real query errors therefore
+// still surface on the request.
+// Helper queries run outside the caller's transaction. They still count against the request's statement count
+// (StatementCounter.propagating).
+@Component
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ChunkedLoader implements DisposableBean {
+
+    static final Duration HELPER_KEEP_ALIVE = Duration.ofSeconds(30);
+
+    int chunkSize;
+    int parallelism;
+    TransactionOperations helperTx;
+    // Null when the pool has no connections to spare.
+    ThreadPoolExecutor helpers;
+
+    @Autowired
+    public ChunkedLoader(@Value("${hospital.report.fetch-chunk-size:1000}") int chunkSize,
+                         @Value("${hospital.report.fetch-parallelism:0}") int parallelism,
+                         @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                         @Value("${hospital.limiter.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}")
+                         int permits,
+                         PrimaryReads primaryReads) {
+        this(chunkSize, parallelism, poolSize, permits, primaryReads.connectedTx());
+    }
+
+    public ChunkedLoader(int chunkSize, int parallelism, int poolSize, int permits, TransactionOperations helperTx) {
+        int spare = Math.max(0, poolSize - permits);
+        int wanted = parallelism > 0 ? parallelism : poolSize / 2;
+        if (wanted > spare) {
+            log.warn("Report fetch helpers capped at {}: {} limiter permits leave {} of {} connections spare",
+                spare, permits, spare, poolSize);
+        }
+        this.chunkSize = chunkSize;
+        this.parallelism = Math.min(wanted, spare);
+        this.helperTx = helperTx;
+        if (this.parallelism > 0) {
+            this.helpers = new ThreadPoolExecutor(this.parallelism, this.parallelism, HELPER_KEEP_ALIVE.toMillis(),
+                TimeUnit.MILLISECONDS, new SynchronousQueue<>(), namedThreads("report-fetch"));
+            this.helpers.allowCoreThreadTimeOut(true);
+        } else {
+            this.helpers = null;
+        }
+    }
+
+    int parallelism() {
+        return parallelism;
+    }
+
+    // Results come back in no particular order.
+    public <K, V> List<V> load(Collection<K> keys, Function<List<K>, List<V>> query) {
+        List<K> all = new ArrayList<>(keys);
+        if (all.size() <= chunkSize) {
+            return query.apply(all);
+        }
+        Work<K, V> work = new Work<>(all, chunkSize, query, helperTx);
+        int wanted = Math.min(parallelism, work.chunks - 1);
+        for (int i = 0; i < wanted; i++) {
+            try {
+                helpers.execute(StatementCounter.propagating(work::help));
+            } catch (RejectedExecutionException ex) {
+                break;
+            }
+        }
+        return work.runAndAwait();
+    }
+
+    @Override
+    public void destroy() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread t = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // One load: the chunks not yet claimed, and what's come back so far.
+    static final class Work<K, V> {
+
+        final Queue<List<K>> pending = new ConcurrentLinkedQueue<>();
+        final Function<List<K>, List<V>> query;
+        final TransactionOperations helperTx;
+        final List<V> results;
+        final int chunks;
+        // Guarded by `this`: helpers still getting their connection, and whether the request thread has stopped
+        // waiting for them.
+        final Set<Thread> starting = new HashSet<>();
+        boolean drained;
+        int done;
+
+        Work(List<K> keys, int chunkSize, Function<List<K>, List<V>> query, TransactionOperations helperTx) {
+            for (int from = 0; from < keys.size(); from += chunkSize) {
+                pending.add(keys.subList(from, Math.min(keys.size(), from + chunkSize)));
+            }
+            this.chunks = pending.size();
+            this.query = query;
+            this.helperTx = helperTx;
+            this.results = new ArrayList<>(keys.size());
+        }
+
+        void help() {
+            Thread self = Thread.currentThread();
+            synchronized (this) {
+                if (drained) {
+                    return;
+                }
+                starting.add(self);
+            }
+            try {
+                helperTx.executeWithoutResult(status -> {
+                    if (started(self)) {
+                        drain();
+                    }
+                });
+            } catch (RuntimeException ex) {
+                // No connection (or interrupted while waiting for one). Nothing was claimed, so nothing to hand back.
+                log.debug("Report fetch helper gave up: {}", ex.toString());
+            } finally {
+                synchronized (this) {
+                    starting.remove(self);
+                }
+                Thread.interrupted();
+            }
+        }
+
+        // Holding a connection now. False if the request thread has meanwhile given up on us.
+        private synchronized boolean started(Thread self) {
+            starting.remove(self);
+            if (drained) {
+                Thread.interrupted();
+                return false;
+            }
+            return true;
+        }
+
+        private synchronized void stopStarting() {
+            drained = true;
+            starting.forEach(Thread::interrupt);
+            starting.clear();
+        }
+
+        private void drain() {
+            List<K> chunk;
+            while ((chunk = pending.poll()) != null) {
+                List<V> rows;
+                try {
+                    rows = query.apply(chunk);
+                } catch (RuntimeException ex) {
+                    log.warn("Chunk of {} keys failed on a helper, handing it back to the request thread: {}",
+                        chunk.size(), ex.toString());
+                    synchronized (this) {
+                        pending.add(chunk);
+                        notifyAll();
+                    }
+                    return;
+                }
+                completed(rows);
+            }
+        }
+
+        List<V> runAndAwait() {
+            try {
+                while (true) {
+                    List<K> chunk;
+                    while ((chunk = pending.poll()) != null) {
+                        completed(query.apply(chunk));
+                    }
+                    stopStarting();
+                    synchronized (this) {
+                        while (done < chunks && pending.isEmpty()) {
+                            wait();
+                        }
+                        if (done == chunks) {
+                            return results;
+                        }
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading in chunks", ex);
+            } finally {
+                // On failure, stops the helpers from picking up more of a load nobody is waiting for.
+                pending.clear();
+                stopStarting();
+            }
+        }
+
+        private synchronized void completed(List<V> rows) {
+            results.addAll(rows);
+            done++;
+            notifyAll();
+        }
+    }
+}
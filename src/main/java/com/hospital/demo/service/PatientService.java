@@ -1,20 +1,44 @@
 package com.hospital.demo.service;
 
+import com.hospital.demo.cache.DataVersions;
+import com.hospital.demo.cache.PatientCache;
+import com.hospital.demo.config.PrimaryReads;
+import com.hospital.demo.dto.BulkRegistrationResponse;
+import com.hospital.demo.dto.BulkRegistrationResult;
+import com.hospital.demo.dto.BulkRegistrationResult.Status;
+import com.hospital.demo.dto.PatientBatchLookupRequest;
+import com.hospital.demo.dto.PatientBatchLookupResponse;
+import com.hospital.demo.dto.PatientNameMatch;
 import com.hospital.demo.dto.PatientRequest;
+import com.hospital.demo.dto.PatientResponse;
+import com.hospital.demo.exception.BadRequestException;
 import com.hospital.demo.exception.ResourceNotFoundException;
 import com.hospital.demo.model.Patient;
 import com.hospital.demo.repository.PatientRepository;
+import com.hospital.demo.search.PatientNameIndex;
+import com.hospital.demo.util.UuidMap;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Service
 @Slf4j
@@ -22,10 +46,20 @@ import org.springframework.stereotype.Service;
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class PatientService {
 
+    public static final int MAX_SEARCH_RESULTS = 50;
+    static final int MAX_QUERY_LENGTH = 100;
+
     PatientRepository patientRepository;
+    PatientCache patientCache;
+    ChunkedLoader chunkedLoader;
+    PrimaryReads primaryReads;
+    PatientNameIndex patientNameIndex;
+    DataVersions dataVersions;
+    Validator validator;
 
-    public Patient findByEmail(String email) {
-        Optional<Patient> patient =  patientRepository.findByEmail(email);
+    public PatientResponse findByEmail(String email) {
+        String normalized = normalizeEmail(email);
+        Optional<PatientResponse> patient = patientCache.getByEmail(normalized, this::loadByEmail);
         if (patient.isEmpty()) {
             log.error("Patient not found with email {}", email);
             throw new ResourceNotFoundException("Patient not found with email: " + email);
@@ -33,8 +67,13 @@ public class PatientService {
         return  patient.get();
     }
 
-    public Patient findById(String id) {
-        Optional<Patient> patient = patientRepository.findById(UUID.fromString(id));
+    // ETag for findByEmail. Take it before the lookup (see DataVersions).
+    public String versionTag(String email) {
+        return dataVersions.patientTag(normalizeEmail(email));
+    }
+
+    public PatientResponse findById(String id) {
+        Optional<PatientResponse> patient = patientCache.getById(UUID.fromString(id), this::loadById);
         if (patient.isEmpty()) {
             log.error("Patient not found with id {}", id);
             throw new ResourceNotFoundException("Patient not found");
@@ -46,26 +85,225 @@ public class PatientService {
         Patient builder = Patient.builder()
             .firstName(patient.getFirstName())
             .lastName(patient.getLastName())
-            .email(patient.getEmail())
+            .email(normalizeEmail(patient.getEmail()))
             .build();
-        patientRepository.save(builder);
+        Patient saved = patientRepository.save(builder);
+        patientCache.evict(saved.getId(), saved.getEmail());
+        patientNameIndex.add(saved);
     }
 
     public void deletePatientById(String uuid) {
-        Patient patient = findById(uuid);
-        patientRepository.delete(patient);
+        PatientResponse patient = findById(uuid);
+        patientRepository.deleteById(patient.id());
+        patientCache.evict(patient.id(), patient.email());
+        patientNameIndex.remove(patient.id());
     }
 
     public void deletePatientByEmail (String email) {
-        Patient patient = findByEmail(email);
-        patientRepository.delete(patient);
+        PatientResponse patient = findByEmail(email);
+        patientRepository.deleteById(patient.id());
+        patientCache.evict(patient.id(), patient.email());
+        patientNameIndex.remove(patient.id());
+    }
+
+    // Type-ahead over first name, last name and email, answered from the in-memory PatientNameIndex.
+    public List<PatientNameMatch> searchByName(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("Query must not be blank");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new BadRequestException("Query must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        return patientNameIndex.search(query, Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS));
+    }
+
+    public Map<UUID, PatientResponse> findAllByIdsMap(List<UUID> ids) {
+        return patientCache.getAllById(ids, this::loadByIds);
+    }
+
+    // For the report's join: fills in the patients for ids already added to `into`, without building a Map first.
+    public void fillByIds(List<UUID> ids, UuidMap<PatientResponse> into) {
+        patientCache.forEachById(ids, this::loadByIds, into::put);
+    }
+
+    // Every cache fill reads the primary (see PrimaryReads). A cold 50k-row report goes out as several bounded IN
+    // queries side by side (see ChunkedLoader), each on the primary from whichever thread runs it.
+    private Map<UUID, PatientResponse> loadByIds(Set<UUID> missing) {
+        // Sized up front: the misses of a 50k-row report would otherwise rehash their way up from 16.
+        Map<UUID, PatientResponse> loaded = HashMap.newHashMap(missing.size());
+        chunkedLoader.load(missing, chunk -> primaryReads.get(() -> patientRepository.findAllById(chunk)))
+            .forEach(p -> loaded.put(p.getId(), PatientResponse.of(p)));
+        return loaded;
+    }
+
+    public Map<String, PatientResponse> findAllByEmailsMap(Collection<String> normalizedEmails) {
+        return patientCache.getAllByEmail(normalizedEmails, missing ->
+            primaryReads.get(() -> patientRepository.findAllByEmailIn(missing)).stream()
+                .collect(Collectors.toMap(
+                    Patient::getEmail,
+                    PatientResponse::of
+                )));
+    }
+
+    private Optional<PatientResponse> loadById(UUID id) {
+        return primaryReads.get(() -> patientRepository.findById(id)).map(PatientResponse::of);
+    }
+
+    private Optional<PatientResponse> loadByEmail(String normalizedEmail) {
+        return primaryReads.get(() -> patientRepository.findByEmail(normalizedEmail)).map(PatientResponse::of);
+    }
+
+    // Resolves up to MAX_KEYS emails and ids with at most one IN query per key type (fewer when cached).
+    public PatientBatchLookupResponse batchLookup(PatientBatchLookupRequest request) {
+        List<String> emails = request.getEmails() == null ? List.of() : request.getEmails();
+        List<String> ids = request.getIds() == null ? List.of() : request.getIds();
+        if (emails.size() + ids.size() > PatientBatchLookupRequest.MAX_KEYS) {
+            throw new BadRequestException("At most " + PatientBatchLookupRequest.MAX_KEYS + " emails and ids per lookup");
+        }
+
+        Map<String, UUID> parsedIds = new LinkedHashMap<>();
+        for (String id : ids) {
+            try {
+                parsedIds.put(id, UUID.fromString(id));
+            } catch (IllegalArgumentException ex) {
+                throw new BadRequestException("Invalid patient id: " + id);
+            }
+        }
+        Map<String, PatientResponse> byEmail = emails.isEmpty()
+            ? Map.of()
+            : findAllByEmailsMap(emails.stream().map(PatientService::normalizeEmail).distinct().toList());
+        Map<UUID, PatientResponse> byId = parsedIds.isEmpty()
+            ? Map.of()
+            : findAllByIdsMap(parsedIds.values().stream().distinct().toList());
+
+        // An email and an id can name the same patient, so dedupe on id.
+        Map<UUID, PatientResponse> found = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String email : emails) {
+            PatientResponse p = byEmail.get(normalizeEmail(email));
+            if (p == null) {
+                missing.add(email);
+            } else {
+                found.putIfAbsent(p.id(), p);
+            }
+        }
+        parsedIds.forEach((raw, id) -> {
+            PatientResponse p = byId.get(id);
+            if (p == null) {
+                missing.add(raw);
+            } else {
+                found.putIfAbsent(id, p);
+            }
+        });
+
+        return PatientBatchLookupResponse.builder()
+            .found(List.copyOf(found.values()))
+            .missing(missing)
+            .build();
+    }
+
+    // Validates every item on its own and reports per item, so one bad row doesn't sink the batch.
+    // Valid, unique rows are written in one transaction as batched INSERTs (hibernate.jdbc.batch_size).
+    // Uniqueness is checked with a single IN query against the database, never the cache.
+    @Transactional
+    public BulkRegistrationResponse bulkRegister(List<PatientRequest> requests) {
+        if (requests.size() > BulkRegistrationResponse.MAX_ITEMS) {
+            throw new BadRequestException("At most " + BulkRegistrationResponse.MAX_ITEMS + " patients per request");
+        }
+
+        BulkRegistrationResult[] results = new BulkRegistrationResult[requests.size()];
+        Map<String, Integer> firstIndexByEmail = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            PatientRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = result(i, null, Status.INVALID, null, List.of("item must not be null"));
+                continue;
+            }
+            Set<ConstraintViolation<PatientRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                List<String> errors = violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .toList();
+                results[i] = result(i, request.getEmail(), Status.INVALID, null, errors);
+                continue;
+            }
+            String email = normalizeEmail(request.getEmail());
+            Integer first = firstIndexByEmail.putIfAbsent(email, i);
+            if (first != null) {
+                results[i] = result(i, email, Status.DUPLICATE, null, List.of("same email as item " + first));
+            }
+        }
+
+        Set<String> existing = firstIndexByEmail.isEmpty()
+            ? Set.of()
+            : patientRepository.findAllByEmailIn(firstIndexByEmail.keySet()).stream()
+                .map(Patient::getEmail)
+                .collect(Collectors.toSet());
+
+        List<Patient> toSave = new ArrayList<>();
+        List<Integer> toSaveIndex = new ArrayList<>();
+        firstIndexByEmail.forEach((email, i) -> {
+            if (existing.contains(email)) {
+                results[i] = result(i, email, Status.DUPLICATE, null, List.of("email already registered"));
+                return;
+            }
+            PatientRequest request = requests.get(i);
+            toSave.add(Patient.builder()
+                .firstName(request.getFirstName())
+                .lastName(request.getLastName())
+                .email(email)
+                .build());
+            toSaveIndex.add(i);
+        });
+
+        // Flush here so a unique-constraint race with a concurrent registration surfaces as an exception
+        // from this call (409 via GlobalExceptionHandler) rather than at commit.
+        List<Patient> saved = patientRepository.saveAllAndFlush(toSave);
+        for (int n = 0; n < saved.size(); n++) {
+            Patient p = saved.get(n);
+            int i = toSaveIndex.get(n);
+            results[i] = result(i, p.getEmail(), Status.CREATED, p.getId(), null);
+        }
+        evictAfterCommit(saved);
+
+        Map<Status, Long> counts = Arrays.stream(results)
+            .collect(Collectors.groupingBy(BulkRegistrationResult::getStatus, Collectors.counting()));
+        return BulkRegistrationResponse.builder()
+            .created(counts.getOrDefault(Status.CREATED, 0L).intValue())
+            .duplicates(counts.getOrDefault(Status.DUPLICATE, 0L).intValue())
+            .invalid(counts.getOrDefault(Status.INVALID, 0L).intValue())
+            .results(Arrays.asList(results))
+            .build();
+    }
+
+    // Until the batch commits, another thread could still load (and negatively cache) one of these emails,
+    // so we evict (and make the names searchable) only once the rows are visible.
+    private void evictAfterCommit(List<Patient> saved) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                saved.forEach(p -> {
+                    patientCache.evict(p.getId(), p.getEmail());
+                    patientNameIndex.add(p);
+                });
+            }
+        });
+    }
+
+    private static BulkRegistrationResult result(int index, String email, Status status, UUID id, List<String> errors) {
+        return BulkRegistrationResult.builder()
+            .index(index)
+            .email(email)
+            .status(status)
+            .id(id)
+            .errors(errors)
+            .build();
     }
 
-    public Map<UUID, Patient> findAllByIdsMap(List<UUID> ids) {
-        return patientRepository.findAllById(ids).stream()
-            .collect(Collectors.toMap(
-                Patient::getId,
-                Function.identity()
-            ));
+    // Emails are stored and cached lower-cased, so "Jane@Hospital.com" and "jane@hospital.com" are one patient
+    // and one cache entry.
+    static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
     }
 }
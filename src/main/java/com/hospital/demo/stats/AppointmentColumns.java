@@ -0,0 +1,349 @@
+package com.hospital.demo.stats;
+
+import com.hospital.demo.dto.AppointmentResponse;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+// One immutable version of AppointmentSnapshot: every appointment as one slot in a few parallel primitive arrays,
+// sorted by (start time, id). Each applied batch of changes builds a new version. Readers keep the version they
+// picked up, so nothing on the read side locks, copies or allocates per row.
+// - Start times are microseconds since 1970-01-01T00:00, of the stored wall-clock time. Postgres keeps timestamps
+//   to the microsecond, so millis would not round-trip.
+// - Ids are the two halves of the UUID, compared unsigned: Postgres' uuid order, so keyset cursors mean the same
+//   rows here and in SQL.
+// - Patients and notes are dictionary-encoded, and a row holds an int code for each. The seeded data repeats notes
+//   about ten times over, and the report's "first last" is built once per patient instead of once per row.
+// - A patient with a null name has been deleted. Their rows are skipped, as the report's inner join skips them,
+//   until the next rebuild drops them.
+final class AppointmentColumns {
+
+    static final long MICROS_PER_SECOND = 1_000_000L;
+
+    final long version;
+    final int size;
+    final long[] startMicros;
+    final long[] idHi;
+    final long[] idLo;
+    final int[] patient;
+    // -1 for no notes.
+    final int[] note;
+    final UuidIndex ids;
+    final Patients patients;
+    final String[] notes;
+
+    AppointmentColumns(long version, Rows sorted, Patients patients, String[] notes) {
+        this.version = version;
+        this.size = sorted.size;
+        this.startMicros = sorted.startMicros;
+        this.idHi = sorted.idHi;
+        this.idLo = sorted.idLo;
+        this.patient = sorted.patient;
+        this.note = sorted.note;
+        this.ids = new UuidIndex(idHi, idLo, size);
+        this.patients = patients;
+        this.notes = notes;
+    }
+
+    boolean live(int row) {
+        return patients.names[patient[row]] != null;
+    }
+
+    String patientFullName(int row) {
+        return patients.names[patient[row]];
+    }
+
+    String notes(int row) {
+        int code = note[row];
+        return code < 0 ? null : notes[code];
+    }
+
+    AppointmentResponse response(int row) {
+        return new AppointmentResponse(new UUID(idHi[row], idLo[row]), patientFullName(row),
+            toLocalDateTime(startMicros[row]), notes(row));
+    }
+
+    // First row starting at or after `micros`.
+    int firstAtOrAfter(long micros) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startMicros[mid] < micros) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First row after (micros, id): where a keyset cursor picks up.
+    int firstAfter(long micros, long msb, long lsb) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(startMicros[mid], idHi[mid], idLo[mid], micros, msb, lsb) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // This version's rows without `dropped` (ascending row numbers) and with `inserts` (sorted), for the next one.
+    Rows merge(int[] dropped, Rows inserts) {
+        Rows merged = new Rows(size - dropped.length + inserts.size);
+        int d = 0;
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            if (d < dropped.length && dropped[d] == i) {
+                d++;
+                continue;
+            }
+            while (j < inserts.size && inserts.compareTo(j, startMicros[i], idHi[i], idLo[i]) < 0) {
+                merged.add(inserts, j++);
+            }
+            merged.add(startMicros[i], idHi[i], idLo[i], patient[i], note[i]);
+        }
+        while (j < inserts.size) {
+            merged.add(inserts, j++);
+        }
+        return merged;
+    }
+
+    // Approximate retained size: the arrays exactly, each String as 40 bytes of headers plus a byte a char (names
+    // and notes are Latin-1, which Java stores compactly). The notes array is shared with later versions.
+    long bytes() {
+        long bytes = 3 * longs(size) + 2 * ints(size) + ids.bytes() + patients.bytes() + refs(notes.length);
+        for (String value : notes) {
+            bytes += value == null ? 0 : 40 + value.length();
+        }
+        return bytes;
+    }
+
+    static int compare(long startA, long hiA, long loA, long startB, long hiB, long loB) {
+        int c = Long.compare(startA, startB);
+        if (c != 0) {
+            return c;
+        }
+        c = Long.compareUnsigned(hiA, hiB);
+        return c != 0 ? c : Long.compareUnsigned(loA, loB);
+    }
+
+    // Rounded like Postgres rounds a timestamp with more digits.
+    static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + (time.getNano() + 500) / 1000;
+    }
+
+    // The first stored time that is not before `time`, for window bounds that may carry nanoseconds.
+    static long ceilMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + (time.getNano() + 999) / 1000;
+    }
+
+    static LocalDateTime toLocalDateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, MICROS_PER_SECOND),
+            (int) Math.floorMod(micros, MICROS_PER_SECOND) * 1000, ZoneOffset.UTC);
+    }
+
+    private static long longs(int length) {
+        return 16L + 8L * length;
+    }
+
+    private static long ints(int length) {
+        return 16L + 4L * length;
+    }
+
+    private static long refs(int length) {
+        // Compressed oops.
+        return ints(length);
+    }
+
+    // Rows being staged for a new version: in any order until sorted().
+    static final class Rows {
+
+        long[] startMicros;
+        long[] idHi;
+        long[] idLo;
+        int[] patient;
+        int[] note;
+        int size;
+
+        Rows(int capacity) {
+            startMicros = new long[capacity];
+            idHi = new long[capacity];
+            idLo = new long[capacity];
+            patient = new int[capacity];
+            note = new int[capacity];
+        }
+
+        void add(long start, long msb, long lsb, int patientCode, int noteCode) {
+            if (size == startMicros.length) {
+                grow(Math.max(16, size * 2));
+            }
+            startMicros[size] = start;
+            idHi[size] = msb;
+            idLo[size] = lsb;
+            patient[size] = patientCode;
+            note[size] = noteCode;
+            size++;
+        }
+
+        void add(Rows from, int row) {
+            add(from.startMicros[row], from.idHi[row], from.idLo[row], from.patient[row], from.note[row]);
+        }
+
+        // A sorted copy, its arrays exactly `size` long. Merge sort over row numbers, so no boxing.
+        Rows sorted() {
+            int[] order = new int[size];
+            int[] buffer = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            for (int width = 1; width < size; width <<= 1) {
+                for (int from = 0; from < size; from += 2 * width) {
+                    int mid = Math.min(from + width, size);
+                    int to = Math.min(from + 2 * width, size);
+                    int i = from;
+                    int j = mid;
+                    int k = from;
+                    while (i < mid && j < to) {
+                        buffer[k++] = compareTo(order[j], startMicros[order[i]], idHi[order[i]], idLo[order[i]]) < 0
+                            ? order[j++]
+                            : order[i++];
+                    }
+                    while (i < mid) {
+                        buffer[k++] = order[i++];
+                    }
+                    while (j < to) {
+                        buffer[k++] = order[j++];
+                    }
+                }
+                int[] swap = order;
+                order = buffer;
+                buffer = swap;
+            }
+            Rows sorted = new Rows(size);
+            for (int row : order) {
+                sorted.add(this, row);
+            }
+            return sorted;
+        }
+
+        int compareTo(int row, long start, long msb, long lsb) {
+            return compare(startMicros[row], idHi[row], idLo[row], start, msb, lsb);
+        }
+
+        private void grow(int capacity) {
+            startMicros = Arrays.copyOf(startMicros, capacity);
+            idHi = Arrays.copyOf(idHi, capacity);
+            idLo = Arrays.copyOf(idLo, capacity);
+            patient = Arrays.copyOf(patient, capacity);
+            note = Arrays.copyOf(note, capacity);
+        }
+    }
+
+    // Patient code -> id halves and the report's "first last". Only patients with rows in the snapshot are here.
+    static final class Patients {
+
+        final int size;
+        final long[] hi;
+        final long[] lo;
+        final String[] names;
+        final UuidIndex index;
+
+        Patients(int size, long[] hi, long[] lo, String[] names) {
+            this(size, hi, lo, names, new UuidIndex(hi, lo, size));
+        }
+
+        private Patients(int size, long[] hi, long[] lo, String[] names, UuidIndex index) {
+            this.size = size;
+            this.hi = hi;
+            this.lo = lo;
+            this.names = names;
+            this.index = index;
+        }
+
+        // -1 when the patient has no rows here.
+        int find(UUID id) {
+            return index.find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        }
+
+        // New names for patients already here (null = deleted), and new patients. Renames share the ids and the
+        // index; only new patients rebuild the index.
+        Patients with(Map<UUID, String> changes) {
+            String[] renamed = null;
+            Map<UUID, String> added = new HashMap<>();
+            for (Map.Entry<UUID, String> change : changes.entrySet()) {
+                int code = find(change.getKey());
+                if (code < 0) {
+                    if (change.getValue() != null) {
+                        added.put(change.getKey(), change.getValue());
+                    }
+                } else {
+                    if (renamed == null) {
+                        renamed = names.clone();
+                    }
+                    renamed[code] = change.getValue();
+                }
+            }
+            if (added.isEmpty()) {
+                return renamed == null ? this : new Patients(size, hi, lo, renamed, index);
+            }
+            int grown = size + added.size();
+            long[] newHi = Arrays.copyOf(hi, grown);
+            long[] newLo = Arrays.copyOf(lo, grown);
+            String[] newNames = Arrays.copyOf(renamed == null ? names : renamed, grown);
+            int code = size;
+            for (Map.Entry<UUID, String> patient : added.entrySet()) {
+                newHi[code] = patient.getKey().getMostSignificantBits();
+                newLo[code] = patient.getKey().getLeastSignificantBits();
+                newNames[code++] = patient.getValue();
+            }
+            return new Patients(grown, newHi, newLo, newNames);
+        }
+
+        long bytes() {
+            long bytes = 2 * longs(hi.length) + refs(names.length) + index.bytes();
+            for (String name : names) {
+                bytes += name == null ? 0 : 40 + name.length();
+            }
+            return bytes;
+        }
+    }
+
+    // Notes interned to int codes. Append-only: versions share the array, and each only reads the codes its rows
+    // hold. Notes no row uses any more stay until the next rebuild starts a new dictionary. Writer side only.
+    static final class Dictionary {
+
+        final Map<String, Integer> codes = new HashMap<>();
+        String[] values = new String[1024];
+        int size;
+
+        int code(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = value;
+            codes.put(value, size);
+            return size++;
+        }
+
+        // The intern map only: a HashMap node, a boxed code and a table slot per note.
+        long bytes() {
+            return 56L * codes.size();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.hospital.demo.stats;
+
+import com.hospital.demo.cache.DataVersions;
+import com.hospital.demo.config.DataSeededEvent;
+import com.hospital.demo.config.SeedHealthIndicator;
+import com.hospital.demo.dto.AppointmentCountBucket;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.repository.AppointmentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Appointment counts per hour and per patient, held in memory so the dashboards' "how many per day / per patient"
+// questions cost O(buckets) instead of a scan of the appointments table.
+// Writes made through Hibernate are applied as they commit (post-commit listeners, so a rollback never counts).
+// Anything that bypasses Hibernate - the COPY seeder, deleteAllInBatch, manual SQL - is picked up by a full rebuild
+// after seeding and every hospital.stats.reconcile-interval.
+// A rebuild scans the primary in one repeatable-read transaction. Writes that commit while it runs are buffered
+// and replayed onto the rebuilt counts before the swap, so they aren't lost with the old counts. The buffer opens
+// just before the scans take their snapshot. A write that commits in that short gap is in both the scan and the
+// buffer, so it counts twice until the next rebuild.
+@Component
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AppointmentRollup implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+    PostCommitDeleteEventListener {
+
+    public enum Granularity { HOUR, DAY }
+
+    AppointmentRepository appointmentRepo;
+    EntityManagerFactory entityManagerFactory;
+    DataVersions dataVersions;
+    SeedHealthIndicator startup;
+    TransactionTemplate primaryTx;
+    // Guards the swap against the listeners, so a delta lands either in the old counts and `pending` or in the new ones.
+    Object swapLock = new Object();
+
+    // Swapped whole on reconcile, so readers never see a half-built rollup.
+    @NonFinal
+    volatile Counts counts = new Counts(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>(), null);
+
+    // Deltas committed while a rebuild is scanning, guarded by swapLock. Null outside a rebuild.
+    @NonFinal
+    List<Delta> pending;
+
+    record Delta(UUID patientId, LocalDateTime time, int delta) {
+    }
+
+    record Counts(ConcurrentSkipListMap<LocalDateTime, LongAdder> hourly,
+                  ConcurrentHashMap<UUID, LongAdder> byPatient,
+                  LocalDateTime reconciledAt) {
+
+        void add(UUID patientId, LocalDateTime time, int delta) {
+            if (time != null) {
+                hourly.computeIfAbsent(time.truncatedTo(ChronoUnit.HOURS), k -> new LongAdder()).add(delta);
+            }
+            if (patientId != null) {
+                byPatient.computeIfAbsent(patientId, k -> new LongAdder()).add(delta);
+            }
+        }
+
+        long total() {
+            return hourly.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+    }
+
+    public AppointmentRollup(AppointmentRepository appointmentRepo, EntityManagerFactory entityManagerFactory,
+                             DataVersions dataVersions, SeedHealthIndicator startup,
+                             PlatformTransactionManager transactionManager) {
+        this.appointmentRepo = appointmentRepo;
+        this.entityManagerFactory = entityManagerFactory;
+        this.dataVersions = dataVersions;
+        this.startup = startup;
+        // Not read-only, so the scans go to the primary: a lagging replica would miss writes we've already counted.
+        this.primaryTx = new TransactionTemplate(transactionManager);
+        this.primaryTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @PostConstruct
+    void registerListeners() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    // In the background (see SeedHealthIndicator): until it's in, /stats counts only what was written since.
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        startup.warmUp("stats-rollup", this::reconcile);
+    }
+
+    // On the seeder's thread, which is already off the startup path.
+    @EventListener(DataSeededEvent.class)
+    public void onSeed() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${hospital.stats.reconcile-interval:15m}",
+        initialDelayString = "${hospital.stats.reconcile-interval:15m}")
+    public void scheduledReconcile() {
+        reconcile();
+    }
+
+    // Two GROUP BY scans. Expensive next to an incremental update, cheap next to what the dashboards used to pull.
+    public synchronized void reconcile() {
+        long started = System.nanoTime();
+        Counts rebuilt = new Counts(new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>(), LocalDateTime.now());
+        synchronized (swapLock) {
+            pending = new ArrayList<>();
+        }
+        long drift;
+        try {
+            primaryTx.executeWithoutResult(status -> {
+                for (AppointmentRepository.HourlyCount row : appointmentRepo.countByHour()) {
+                    LocalDateTime hour = LocalDateTime.of(row.getYear(), row.getMonth(), row.getDay(), row.getHour(), 0);
+                    rebuilt.hourly().computeIfAbsent(hour, k -> new LongAdder()).add(row.getAppointments());
+                }
+                for (AppointmentRepository.PatientCount row : appointmentRepo.countByPatient()) {
+                    rebuilt.byPatient().computeIfAbsent(row.getPatientId(), k -> new LongAdder())
+                        .add(row.getAppointments());
+                }
+            });
+            synchronized (swapLock) {
+                pending.forEach(d -> rebuilt.add(d.patientId(), d.time(), d.delta()));
+                drift = rebuilt.total() - counts.total();
+                counts = rebuilt;
+            }
+        } finally {
+            synchronized (swapLock) {
+                pending = null;
+            }
+        }
+        // A rebuild can move bucket counts without any write going through Hibernate, so /stats ETags must change.
+        dataVersions.bumpAppointments();
+        log.info("Appointment stats rebuilt: {} hourly buckets, {} patients in {} ms (drift {})",
+            rebuilt.hourly().size(), rebuilt.byPatient().size(), (System.nanoTime() - started) / 1_000_000, drift);
+    }
+
+    // Non-empty buckets with a start in [from, to). Null bounds mean open-ended; both are rounded out to whole buckets.
+    public List<AppointmentCountBucket> buckets(Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        NavigableMap<LocalDateTime, LongAdder> hours = counts.hourly();
+        if (from != null) {
+            hours = hours.tailMap(floor(from, granularity), true);
+        }
+        if (to != null) {
+            hours = hours.headMap(ceil(to, granularity), false);
+        }
+
+        List<AppointmentCountBucket> buckets = new ArrayList<>();
+        LocalDateTime current = null;
+        long count = 0;
+        for (var hour : hours.entrySet()) {
+            long n = hour.getValue().sum();
+            if (n == 0) {
+                continue;
+            }
+            LocalDateTime start = floor(hour.getKey(), granularity);
+            if (!start.equals(current)) {
+                if (current != null) {
+                    buckets.add(new AppointmentCountBucket(current, count));
+                }
+                current = start;
+                count = 0;
+            }
+            count += n;
+        }
+        if (current != null) {
+            buckets.add(new AppointmentCountBucket(current, count));
+        }
+        return buckets;
+    }
+
+    public long forPatient(UUID patientId) {
+        LongAdder count = counts.byPatient().get(patientId);
+        return count == null ? 0 : count.sum();
+    }
+
+    public LocalDateTime reconciledAt() {
+        return counts.reconciledAt();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Appointment a) {
+            apply(a.getPatientId(), a.getAppointmentTime(), 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Appointment a) {
+            apply(a.getPatientId(), a.getAppointmentTime(), -1);
+        }
+    }
+
+    // Only a change of time or patient moves a count. The old values come from Hibernate's loaded snapshot.
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Appointment a) || event.getOldState() == null) {
+            return;
+        }
+        String[] names = event.getPersister().getPropertyNames();
+        UUID oldPatient = (UUID) event.getOldState()[indexOf(names, "patientId")];
+        LocalDateTime oldTime = (LocalDateTime) event.getOldState()[indexOf(names, "appointmentTime")];
+        if (Objects.equals(oldPatient, a.getPatientId()) && Objects.equals(oldTime, a.getAppointmentTime())) {
+            return;
+        }
+        synchronized (swapLock) {
+            apply(oldPatient, oldTime, -1);
+            apply(a.getPatientId(), a.getAppointmentTime(), 1);
+        }
+    }
+
+    private void apply(UUID patientId, LocalDateTime time, int delta) {
+        synchronized (swapLock) {
+            counts.add(patientId, time, delta);
+            if (pending != null) {
+                pending.add(new Delta(patientId, time, delta));
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.getMappedClass() == Appointment.class;
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Appointment has no property " + name);
+    }
+
+    private static LocalDateTime floor(LocalDateTime time, Granularity granularity) {
+        return time.truncatedTo(granularity == Granularity.DAY ? ChronoUnit.DAYS : ChronoUnit.HOURS);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, Granularity granularity) {
+        LocalDateTime floor = floor(time, granularity);
+        if (floor.equals(time)) {
+            return time;
+        }
+        return granularity == Granularity.DAY ? floor.plusDays(1) : floor.plusHours(1);
+    }
+}
@@ -0,0 +1,370 @@
+package com.hospital.demo.stats;
+
+import com.hospital.demo.config.SeedHealthIndicator;
+import com.hospital.demo.dto.AppointmentCursor;
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.events.ChangeEvent;
+import com.hospital.demo.events.ChangeEventBus;
+import com.hospital.demo.events.ChangeSubscription;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.model.Patient;
+import com.hospital.demo.repository.AppointmentRepository;
+import com.hospital.demo.repository.AppointmentRepository.SnapshotRow;
+import com.hospital.demo.repository.PatientRepository;
+import com.hospital.demo.stats.AppointmentColumns.Dictionary;
+import com.hospital.demo.stats.AppointmentColumns.Patients;
+import com.hospital.demo.stats.AppointmentColumns.Rows;
+import com.hospital.demo.util.UuidMap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Optional (hospital.report.snapshot.enabled) in-memory copy of the appointment report, held as columns
+// (AppointmentColumns) instead of rows. The full report, /page, /window and a patient's history are then answered
+// by scanning primitive arrays, not by pulling the same 50k+ rows out of the database on every request.
+// - Built with one unordered pass over the report's join at startup, then kept current from the ChangeEventBus:
+//   every batch of committed changes becomes a new immutable version, swapped in whole. A RESET (seeding, or the
+//   subscriber falling a whole ring behind) and every hospital.report.snapshot.reconcile-interval rebuild it, which
+//   also catches writes that go around Hibernate.
+// - It trails the commit by however long the subscriber takes, usually well under a millisecond. Responses are
+//   therefore tagged with the snapshot's own version, not DataVersions: a tag bumped at commit could otherwise be
+//   handed out with the version before it and pin that behind a 304.
+// - The export walks the rows and hands out chunks of reusable Row views, which json's AppointmentRowSerializer
+//   writes straight from the columns: no DTO, UUID or LocalDateTime per row.
+// Footprint and row count are on report.snapshot.bytes / report.snapshot.rows, the subscriber's lag on
+// changes.subscriber.lag{subscriber="report-snapshot"}.
+@Component
+@Slf4j
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AppointmentSnapshot {
+
+    static final String SUBSCRIBER = "report-snapshot";
+
+    boolean enabled;
+    int batchSize;
+    AppointmentRepository appointmentRepo;
+    PatientRepository patientRepo;
+    ChangeEventBus bus;
+    SeedHealthIndicator startup;
+    // Not read-only, so rebuilds and the name lookups in apply() go to the primary: a lagging replica could miss
+    // changes the subscription has already gone past.
+    TransactionTemplate primaryTx;
+    String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // Null until the first build: until then reads go to the database.
+    @NonFinal
+    volatile AppointmentColumns columns;
+
+    // Writer side, guarded by `this`.
+    @NonFinal
+    Dictionary notes = new Dictionary();
+    @NonFinal
+    ChangeSubscription subscription;
+
+    public AppointmentSnapshot(AppointmentRepository appointmentRepo,
+                               PatientRepository patientRepo,
+                               ChangeEventBus bus,
+                               SeedHealthIndicator startup,
+                               PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${hospital.report.snapshot.enabled:false}") boolean enabled,
+                               @Value("${hospital.changes.batch-size:500}") int batchSize) {
+        this.appointmentRepo = appointmentRepo;
+        this.patientRepo = patientRepo;
+        this.bus = bus;
+        this.startup = startup;
+        this.primaryTx = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        Gauge.builder("report.snapshot.rows", this, s -> s.columns == null ? 0 : s.columns.size)
+            .description("Appointments held by the columnar report snapshot")
+            .register(meterRegistry);
+        Gauge.builder("report.snapshot.bytes", this, AppointmentSnapshot::footprintBytes)
+            .description("Approximate heap held by the columnar report snapshot")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    // The first build runs in the background (see SeedHealthIndicator). Reads go to the database until it's in.
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            startup.warmUp("report-snapshot", this::start);
+        }
+    }
+
+    public synchronized void start() {
+        if (!enabled || subscription != null) {
+            return;
+        }
+        // Subscribed before the first build reads, so nothing that commits in between is missed. The handler
+        // waits on our lock until the build is in, then applies what came meanwhile (applying is idempotent).
+        subscription = bus.subscribe(SUBSCRIBER, batchSize, this::onChanges);
+        rebuild();
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${hospital.report.snapshot.reconcile-interval:15m}",
+        initialDelayString = "${hospital.report.snapshot.reconcile-interval:15m}")
+    public void scheduledRebuild() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    public boolean isServing() {
+        return columns != null;
+    }
+
+    // Only for reads served from here. Never equal to a DataVersions tag, so switching over costs one 200.
+    public String versionTag(String variant) {
+        AppointmentColumns current = columns;
+        return "W/\"s-" + epoch + "-" + (current == null ? 0 : current.version) + "-" + variant + "\"";
+    }
+
+    public int size() {
+        AppointmentColumns current = columns;
+        return current == null ? 0 : current.size;
+    }
+
+    // The current version plus the writer's note intern map.
+    public long footprintBytes() {
+        AppointmentColumns current = columns;
+        return current == null ? 0 : current.bytes() + notes.bytes();
+    }
+
+    // Rows starting in [from, to) after `after`, in (time, id) order. Null bounds and cursor mean open-ended.
+    public List<AppointmentResponse> window(LocalDateTime from, LocalDateTime to, AppointmentCursor after,
+                                            int limit) {
+        AppointmentColumns c = columns;
+        int start = from == null ? 0 : c.firstAtOrAfter(AppointmentColumns.ceilMicros(from));
+        if (after != null) {
+            start = Math.max(start, c.firstAfter(AppointmentColumns.toMicros(after.getAppointmentTime()),
+                after.getId().getMostSignificantBits(), after.getId().getLeastSignificantBits()));
+        }
+        int end = to == null ? c.size : c.firstAtOrAfter(AppointmentColumns.ceilMicros(to));
+        List<AppointmentResponse> rows = new ArrayList<>(Math.min(limit, Math.max(end - start, 0)));
+        for (int i = start; i < end && rows.size() < limit; i++) {
+            if (c.live(i)) {
+                rows.add(c.response(i));
+            }
+        }
+        return rows;
+    }
+
+    // One patient's rows after `after`. A scan of the int patient codes, which the JIT unrolls.
+    public List<AppointmentResponse> forPatient(UUID patientId, AppointmentCursor after, int limit) {
+        AppointmentColumns c = columns;
+        int code = c.patients.find(patientId);
+        List<AppointmentResponse> rows = new ArrayList<>();
+        if (code < 0 || c.patients.names[code] == null) {
+            return rows;
+        }
+        int start = after == null ? 0 : c.firstAfter(AppointmentColumns.toMicros(after.getAppointmentTime()),
+            after.getId().getMostSignificantBits(), after.getId().getLeastSignificantBits());
+        int[] patient = c.patient;
+        for (int i = start; i < c.size && rows.size() < limit; i++) {
+            if (patient[i] == code) {
+                rows.add(c.response(i));
+            }
+        }
+        return rows;
+    }
+
+    // Every row, in (time, id) order, in chunks of at most chunkSize. The chunk and its Rows are reused for the
+    // next one, so the sink must be done with them when it returns (StreamingJsonWriter writes them out at once).
+    public void export(int chunkSize, Consumer<List<Row>> sink) {
+        AppointmentColumns c = columns;
+        Row[] views = new Row[Math.min(chunkSize, Math.max(c.size, 1))];
+        for (int i = 0; i < views.length; i++) {
+            views[i] = new Row(c);
+        }
+        List<Row> chunk = Arrays.asList(views);
+        int n = 0;
+        for (int i = 0; i < c.size; i++) {
+            if (!c.live(i)) {
+                continue;
+            }
+            views[n++].row = i;
+            if (n == views.length) {
+                sink.accept(chunk);
+                n = 0;
+            }
+        }
+        if (n > 0) {
+            sink.accept(chunk.subList(0, n));
+        }
+    }
+
+    // A full rebuild from the database: one unordered scan of the join, sorted in memory.
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        Dictionary rebuiltNotes = new Dictionary();
+        UuidMap<Integer> codes = new UuidMap<>(1024);
+        List<UUID> patientIds = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Rows rows = new Rows(Math.max(size(), 1024));
+        primaryTx.executeWithoutResult(status -> {
+            try (Stream<SnapshotRow> stream = appointmentRepo.streamForSnapshot()) {
+                stream.forEach(r -> {
+                    Integer code = codes.get(r.getPatientId());
+                    if (code == null) {
+                        code = patientIds.size();
+                        codes.put(r.getPatientId(), code);
+                        patientIds.add(r.getPatientId());
+                        names.add(r.getPatientFullName());
+                    }
+                    rows.add(AppointmentColumns.toMicros(r.getAppointmentTime()),
+                        r.getId().getMostSignificantBits(), r.getId().getLeastSignificantBits(),
+                        code, rebuiltNotes.code(r.getNotes()));
+                });
+            }
+        });
+
+        long[] hi = new long[patientIds.size()];
+        long[] lo = new long[patientIds.size()];
+        for (int i = 0; i < hi.length; i++) {
+            hi[i] = patientIds.get(i).getMostSignificantBits();
+            lo[i] = patientIds.get(i).getLeastSignificantBits();
+        }
+        notes = rebuiltNotes;
+        AppointmentColumns rebuilt = new AppointmentColumns(nextVersion(), rows.sorted(),
+            new Patients(hi.length, hi, lo, names.toArray(String[]::new)), rebuiltNotes.values);
+        columns = rebuilt;
+        log.info("Appointment snapshot rebuilt: {} rows, {} patients, {} distinct notes, {} KB in {} ms",
+            rebuilt.size, hi.length, rebuiltNotes.size, footprintBytes() / 1024,
+            (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void onChanges(List<ChangeEvent> batch) {
+        if (batch.getFirst().kind() == ChangeEvent.Kind.RESET) {
+            rebuild();
+            return;
+        }
+        try {
+            apply(batch);
+        } catch (RuntimeException ex) {
+            // A batch we couldn't apply would leave the snapshot wrong until the next rebuild. Do it now.
+            log.warn("Could not apply {} changes to the appointment snapshot, rebuilding", batch.size(), ex);
+            rebuild();
+        }
+    }
+
+    // One new version per batch: the changed rows come out, their new state goes in, in one merge pass.
+    synchronized void apply(List<ChangeEvent> batch) {
+        AppointmentColumns current = columns;
+        if (current == null) {
+            return;
+        }
+        // Last state per id wins. A null appointment is a delete, a null name a deleted patient.
+        Map<UUID, Appointment> appointments = new HashMap<>();
+        Map<UUID, String> patients = new HashMap<>();
+        for (ChangeEvent event : batch) {
+            if (event.row() instanceof Appointment a) {
+                appointments.put(event.id(), event.kind() == ChangeEvent.Kind.DELETED ? null : a);
+            } else if (event.row() instanceof Patient p && current.patients.find(event.id()) >= 0) {
+                patients.put(event.id(), event.kind() == ChangeEvent.Kind.DELETED
+                    ? null
+                    : p.getFirstName() + " " + p.getLastName());
+            }
+        }
+
+        // Patients we hold no rows for yet: their names come from the primary, like a rebuild's. The patient cache
+        // could hand back a name from before an update whose event is still on its way. One that can't be found is
+        // left out, as the report's join would leave it out.
+        List<UUID> missing = appointments.values().stream()
+            .filter(a -> a != null && a.getPatientId() != null && current.patients.find(a.getPatientId()) < 0)
+            .map(Appointment::getPatientId)
+            .distinct()
+            .toList();
+        if (!missing.isEmpty()) {
+            primaryTx.executeWithoutResult(status -> patientRepo.findAllById(missing).forEach(p ->
+                patients.putIfAbsent(p.getId(), p.getFirstName() + " " + p.getLastName())));
+        }
+        Patients nextPatients = current.patients.with(patients);
+
+        int[] dropped = new int[appointments.size()];
+        int drops = 0;
+        Rows inserts = new Rows(appointments.size());
+        for (Map.Entry<UUID, Appointment> change : appointments.entrySet()) {
+            UUID id = change.getKey();
+            int row = current.ids.find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            if (row >= 0) {
+                dropped[drops++] = row;
+            }
+            Appointment a = change.getValue();
+            int patient = a == null || a.getPatientId() == null ? -1 : nextPatients.find(a.getPatientId());
+            if (patient >= 0 && a.getAppointmentTime() != null) {
+                inserts.add(AppointmentColumns.toMicros(a.getAppointmentTime()), id.getMostSignificantBits(),
+                    id.getLeastSignificantBits(), patient, notes.code(a.getNotes()));
+            }
+        }
+        dropped = Arrays.copyOf(dropped, drops);
+        Arrays.sort(dropped);
+        columns = new AppointmentColumns(nextVersion(), current.merge(dropped, inserts.sorted()), nextPatients,
+            notes.values);
+    }
+
+    private long nextVersion() {
+        AppointmentColumns current = columns;
+        return current == null ? 1 : current.version + 1;
+    }
+
+    // A view of one row of one version, for the export. Reused from chunk to chunk (see export).
+    public static final class Row {
+
+        final AppointmentColumns columns;
+        int row;
+
+        Row(AppointmentColumns columns) {
+            this.columns = columns;
+        }
+
+        public long idMostSignificantBits() {
+            return columns.idHi[row];
+        }
+
+        public long idLeastSignificantBits() {
+            return columns.idLo[row];
+        }
+
+        public String patientFullName() {
+            return columns.patientFullName(row);
+        }
+
+        // Microseconds from 1970-01-01T00:00 to the wall-clock start time.
+        public long startEpochMicros() {
+            return columns.startMicros[row];
+        }
+
+        public String notes() {
+            return columns.notes(row);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.hospital.demo.stats;
+
+// Row number by UUID, for columns that hold the ids as two long[] halves (AppointmentColumns).
+// The table is just int slots holding row + 1 (0 = empty). A probe compares against the columns themselves, so the
+// index costs 8-16 bytes a row and no objects, where a HashMap<UUID, Integer> would add a Node, a UUID and an
+// Integer per row. Linear probing at load factor <= 0.5. Built once over immutable columns, never changed.
+final class UuidIndex {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final long[] hi;
+    private final long[] lo;
+    private final int[] slots;
+    private final int mask;
+
+    UuidIndex(long[] hi, long[] lo, int size) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * size) {
+            capacity <<= 1;
+        }
+        this.hi = hi;
+        this.lo = lo;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        for (int row = 0; row < size; row++) {
+            int slot = slot(hi[row], lo[row]);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = row + 1;
+        }
+    }
+
+    // -1 when absent.
+    int find(long msb, long lsb) {
+        for (int slot = slot(msb, lsb); ; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (row < 0 || (hi[row] == msb && lo[row] == lsb)) {
+                return row;
+            }
+        }
+    }
+
+    long bytes() {
+        return 16L + 4L * slots.length;
+    }
+
+    private int slot(long msb, long lsb) {
+        // v7 ids share their leading timestamp bits, so mix both halves before taking the top of the product.
+        long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+}
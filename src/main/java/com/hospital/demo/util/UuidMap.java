@@ -0,0 +1,132 @@
+package com.hospital.demo.util;
+
+import java.util.UUID;
+
+// Open-addressing hash map keyed on the two longs of a UUID, for the report's merge step (AppointmentService) and
+// the snapshot's patient codes (AppointmentSnapshot).
+// A HashMap<UUID, V> costs a 32-byte Node per entry on top of its table, and distinct() builds a HashSet of the
+// same. Here keys live in one long[] (msb, lsb side by side) and values in one Object[]: 20 bytes a slot, no
+// per-entry objects, and a probe compares two longs in a flat array instead of chasing Node -> UUID pointers.
+// Keys can be added before their value is known (add), so the merge dedupes patient ids and later joins against
+// the fetched patients in the same table.
+// Linear probing at load factor <= 0.75. No removal and no null values, which is all the merge needs.
+// Not thread-safe: build it, use it, drop it within one request or rebuild.
+public final class UuidMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+    // Stands in for the value of a key that was added without one. get() reports it as absent.
+    private static final Object NO_VALUE = new Object();
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public UuidMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(UUID key) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        for (int slot = slot(msb, lsb); ; slot = (slot + 1) & mask) {
+            Object value = values[slot];
+            if (value == null) {
+                return null;
+            }
+            if (keys[2 * slot] == msb && keys[2 * slot + 1] == lsb) {
+                return value == NO_VALUE ? null : (V) value;
+            }
+        }
+    }
+
+    // Adds the key with no value yet. True if it wasn't there before.
+    public boolean add(UUID key) {
+        int before = size;
+        insert(key, NO_VALUE, false);
+        return size != before;
+    }
+
+    public V put(UUID key, V value) {
+        return insert(key, value, true);
+    }
+
+    // Returns the value already held for the key (and keeps it), or null after storing `value`.
+    public V putIfAbsent(UUID key, V value) {
+        return insert(key, value, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insert(UUID key, Object value, boolean replace) {
+        if (value == null) {
+            throw new IllegalArgumentException("UuidMap does not hold null values");
+        }
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        for (int slot = slot(msb, lsb); ; slot = (slot + 1) & mask) {
+            Object existing = values[slot];
+            if (existing == null) {
+                keys[2 * slot] = msb;
+                keys[2 * slot + 1] = lsb;
+                values[slot] = value;
+                if (++size > (mask + 1) / 4 * 3) {
+                    grow();
+                }
+                return null;
+            }
+            if (keys[2 * slot] == msb && keys[2 * slot + 1] == lsb) {
+                if (replace || existing == NO_VALUE) {
+                    values[slot] = value;
+                }
+                return existing == NO_VALUE ? null : (V) existing;
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldValues.length * 2);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[2 * i], oldKeys[2 * i + 1]);
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[2 * slot] = oldKeys[2 * i];
+                keys[2 * slot + 1] = oldKeys[2 * i + 1];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[2 * capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    // Both halves go into the hash: random UUIDs are uniform anyway, but time-ordered ones share most of their
+    // high bits. Final mix is the MurmurHash3 fmix64 finalizer.
+    private int slot(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    @Override
+    public String toString() {
+        return "UuidMap[size=" + size + ", capacity=" + values.length + "]";
+    }
+}
@@ -0,0 +1,159 @@
+package com.hospital.demo.web;
+
+import com.hospital.demo.dto.ApiEnvelope;
+import com.hospital.demo.json.MillisClock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import tools.jackson.databind.ObjectMapper;
+
+// Caps how many API requests run at once at roughly the size of the Hikari pool.
+// Past that point extra requests would only sit blocked on getConnection() and time out. That's cheap on
+// virtual threads, but it still piles up. Instead they wait here in a short FIFO queue, and when the queue is
+// full or the wait runs out they get a 503 with Retry-After right away.
+// Runs after Spring Security, so unauthenticated requests never take a permit.
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    Semaphore permits;
+    int maxQueued;
+    Duration queueTimeout;
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger queued = new AtomicInteger();
+    Counter rejectedQueueFull;
+    Counter rejectedTimeout;
+    ObjectMapper objectMapper;
+
+    public ConcurrencyLimitFilter(MeterRegistry meterRegistry,
+                                  ObjectMapper objectMapper,
+                                  @Value("${hospital.limiter.max-concurrent:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrent,
+                                  @Value("${hospital.limiter.max-queued:50}") int maxQueued,
+                                  @Value("${hospital.limiter.queue-timeout:500ms}") Duration queueTimeout) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxQueued = maxQueued;
+        this.queueTimeout = queueTimeout;
+        this.objectMapper = objectMapper;
+
+        Gauge.builder("http.limiter.in-flight", inFlight, AtomicInteger::get)
+            .description("API requests currently holding a permit")
+            .register(meterRegistry);
+        Gauge.builder("http.limiter.queued", queued, AtomicInteger::get)
+            .description("API requests waiting for a permit")
+            .register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("http.limiter.rejected").tag("reason", "queue_full")
+            .register(meterRegistry);
+        this.rejectedTimeout = Counter.builder("http.limiter.rejected").tag("reason", "timeout")
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // An open change stream and a booking waiting for its batch hold no connection; a permit each would starve
+        // the API (and keep the booking batches small).
+        return !request.getRequestURI().startsWith("/api/")
+            || StreamingEndpoints.isChangeStream(request)
+            || StreamingEndpoints.isBooking(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        if (!permits.tryAcquire()) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejectedQueueFull.increment();
+                reject(response);
+                return;
+            }
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            } finally {
+                queued.decrementAndGet();
+            }
+            if (!acquired) {
+                rejectedTimeout.increment();
+                reject(response);
+                return;
+            }
+        }
+
+        inFlight.incrementAndGet();
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        };
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // Streaming responses keep using their DB connection after this thread returns,
+            // so they keep the permit until the async request completes.
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleasingListener(release));
+            } else {
+                release.run();
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ApiEnvelope.<Void>builder()
+            .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+            .message("Server busy, retry shortly")
+            .timestamp(MillisClock.now())
+            .build());
+    }
+
+    private record ReleasingListener(Runnable release) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release.run();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
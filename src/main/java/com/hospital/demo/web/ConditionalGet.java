@@ -0,0 +1,46 @@
+package com.hospital.demo.web;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+// If-None-Match handling for the polled GET endpoints, checked before the controller touches the database.
+// Spring's own ETag check in HttpEntityMethodProcessor only runs once the body has been built, which is too late
+// to save the query, and it never runs for StreamingResponseBody.
+public final class ConditionalGet {
+
+    // Responses are per user (behind a bearer token), and a client should ask again every time, sending its ETag.
+    // Tagged responses also carry Vary: Accept, since the same tag is served as JSON, CBOR or Smile.
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private ConditionalGet() {
+    }
+
+    // Weak comparison (RFC 9110 13.1.2): W/"x" and "x" match, as does *.
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String wanted = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || opaque(trimmed).equals(wanted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(etag)
+            .cacheControl(REVALIDATE)
+            .varyBy(HttpHeaders.ACCEPT)
+            .build();
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,28 @@
+package com.hospital.demo.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+// Paths of the long-lived requests the filters in this package treat differently. Kept here rather than on the
+// controllers so the filters don't reach up into the controller layer.
+public final class StreamingEndpoints {
+
+    // Server-Sent Events (ChangeController). Long-lived and idle most of the time: the limiter and the zstd filter
+    // leave it alone.
+    public static final String CHANGE_STREAM = "/api/v1/changes/stream";
+
+    // Group-committed bookings (AppointmentController.book). They wait for their batch without holding a connection,
+    // so the limiter leaves them to the ingest queue's own bound: a permit each would keep batches at the permit
+    // count and shut reads out during a burst.
+    public static final String BOOKINGS = "/api/v1/appointments";
+
+    private StreamingEndpoints() {
+    }
+
+    static boolean isChangeStream(HttpServletRequest request) {
+        return request.getRequestURI().equals(CHANGE_STREAM);
+    }
+
+    static boolean isBooking(HttpServletRequest request) {
+        return "POST".equals(request.getMethod()) && request.getRequestURI().equals(BOOKINGS);
+    }
+}
@@ -0,0 +1,345 @@
+package com.hospital.demo.web;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+// Content-Encoding: zstd for clients that ask for it. Tomcat's built-in compression (server.compression.*) only
+// does gzip; zstd gets a similar ratio on our JSON for a fraction of gzip's CPU. Uses the same mime types and
+// minimum size as the gzip side. Clients that don't list zstd in Accept-Encoding fall through to Tomcat's gzip,
+// which leaves a response alone once it already has a Content-Encoding.
+// When the length isn't declared up front, the first min-response-size bytes are held back to decide: anything
+// smaller goes out as is. Streamed responses are compressed as they go, each flush ending a zstd block.
+// Non-blocking writes (a WriteListener) end with AsyncContext.complete() and no further dispatch through here, so
+// nothing would close the zstd frame. A body that sets a listener before anything is decided goes out uncompressed.
+@Component
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ZstdCompressionFilter extends OncePerRequestFilter {
+
+    static final String ZSTD = "zstd";
+    static final String RESPONSE_ATTRIBUTE = ZstdCompressionFilter.class.getName() + ".response";
+
+    boolean enabled;
+    int level;
+    int minSize;
+    List<MimeType> mimeTypes;
+
+    public ZstdCompressionFilter(@Value("${hospital.compression.zstd.enabled:false}") boolean enabled,
+                                 @Value("${hospital.compression.zstd.level:3}") int level,
+                                 @Value("${server.compression.min-response-size:2KB}") DataSize minSize,
+                                 @Value("${server.compression.mime-types:application/json}") List<String> mimeTypes) {
+        this.enabled = enabled;
+        this.level = level;
+        this.minSize = (int) minSize.toBytes();
+        this.mimeTypes = mimeTypes.stream().map(String::trim).map(MimeType::valueOf).toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Change stream events are small and have to go out as they happen, not wait for min-response-size.
+        return !enabled || !acceptsZstd(request.getHeader(HttpHeaders.ACCEPT_ENCODING))
+            || StreamingEndpoints.isChangeStream(request);
+    }
+
+    // A streamed response is still being written when the first dispatch returns. The async dispatch that follows
+    // once the body is done is where its zstd frame gets closed.
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            chain.doFilter(request, response);
+            Object started = request.getAttribute(RESPONSE_ATTRIBUTE);
+            if (!request.isAsyncStarted() && started instanceof CompressingResponse compressing) {
+                compressing.finish();
+            }
+            return;
+        }
+        CompressingResponse compressing = new CompressingResponse(response);
+        chain.doFilter(request, compressing);
+        if (request.isAsyncStarted()) {
+            request.setAttribute(RESPONSE_ATTRIBUTE, compressing);
+        } else {
+            compressing.finish();
+        }
+    }
+
+    static boolean acceptsZstd(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase(ZSTD)) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    boolean compressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        MediaType type = MediaType.parseMediaType(contentType);
+        return mimeTypes.stream().anyMatch(type::equalsTypeAndSubtype);
+    }
+
+    // Holds the first bytes back until it knows whether the body is worth compressing, then either sets
+    // Content-Encoding and switches to a zstd stream or passes everything through untouched.
+    final class CompressingResponse extends HttpServletResponseWrapper {
+
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        OutputStream target;
+        ServletOutputStream container;
+        boolean compressing;
+        long declaredLength = -1;
+        ServletOutputStream stream;
+        PrintWriter writer;
+
+        CompressingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (stream == null) {
+                stream = new PendingOutputStream();
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                stream = new PendingOutputStream();
+                writer = new PrintWriter(new OutputStreamWriter(stream, Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            setContentLengthLong(len);
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            if (target == null) {
+                declaredLength = len;
+            } else if (!compressing) {
+                super.setContentLengthLong(len);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                setContentLengthLong(Long.parseLong(value));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target != null) {
+                target.flush();
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (target == null) {
+                pending.reset();
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (target == null) {
+                pending.reset();
+                declaredLength = -1;
+            }
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (target == null) {
+                start(declaredLength >= minSize, true);
+            }
+            if (compressing) {
+                // Ends the frame; the container's stream underneath is left open for it to complete.
+                target.close();
+            }
+        }
+
+        private void write(byte[] b, int off, int len) throws IOException {
+            if (target == null) {
+                if (declaredLength < 0 && pending.size() + len < minSize) {
+                    pending.write(b, off, len);
+                    return;
+                }
+                start(declaredLength < 0 || declaredLength >= minSize, false);
+            }
+            target.write(b, off, len);
+        }
+
+        // `complete`: the body is all in `pending`, so its size is the Content-Length.
+        private void start(boolean bigEnough, boolean complete) throws IOException {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            boolean compress = bigEnough
+                && response.getHeader(HttpHeaders.CONTENT_ENCODING) == null
+                && response.getStatus() != HttpServletResponse.SC_NO_CONTENT
+                && response.getStatus() != HttpServletResponse.SC_NOT_MODIFIED
+                && compressible(getContentType());
+            container = response.getOutputStream();
+            if (compress) {
+                compressing = true;
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, ZSTD);
+                target = new ZstdOutputStream(new Unclosable(container), level);
+            } else {
+                target = container;
+                if (declaredLength >= 0) {
+                    response.setContentLengthLong(declaredLength);
+                } else if (complete && pending.size() > 0) {
+                    response.setContentLength(pending.size());
+                }
+            }
+            if (pending.size() > 0) {
+                pending.writeTo(target);
+            }
+            pending = null;
+        }
+
+        private void flushIfStarted() throws IOException {
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        private void nonBlocking(WriteListener listener) {
+            if (compressing) {
+                throw new IllegalStateException("Response is already zstd-compressed; set the WriteListener first");
+            }
+            try {
+                if (target == null) {
+                    start(false, false);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            container.setWriteListener(listener);
+        }
+
+        final class PendingOutputStream extends ServletOutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                CompressingResponse.this.write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                CompressingResponse.this.write(b, off, len);
+            }
+
+            // Before the size is known a flush is a no-op, since flushing would commit the headers undecided.
+            @Override
+            public void flush() throws IOException {
+                flushIfStarted();
+            }
+
+            // Bytes held back only go into `pending`, which always has room. After that the container decides.
+            @Override
+            public boolean isReady() {
+                return target == null || container.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                nonBlocking(writeListener);
+            }
+        }
+    }
+
+    // Lets ZstdOutputStream.close() write the end of the frame without closing the response underneath.
+    static final class Unclosable extends OutputStream {
+
+        final OutputStream out;
+
+        Unclosable(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
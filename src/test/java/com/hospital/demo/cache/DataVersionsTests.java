@@ -0,0 +1,104 @@
+package com.hospital.demo.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.hospital.demo.dto.PatientRequest;
+import com.hospital.demo.dto.PatientResponse;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.repository.AppointmentRepository;
+import com.hospital.demo.service.AppointmentService;
+import com.hospital.demo.service.PatientService;
+import com.hospital.demo.web.ConditionalGet;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class DataVersionsTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    PatientService patientService;
+
+    @Autowired
+    AppointmentService appointmentService;
+
+    @Autowired
+    AppointmentRepository appointmentRepo;
+
+    @Test
+    void unchangedPatientIsA304UntilItIsDeleted() throws Exception {
+        String email = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Ada", "Lovelace", email));
+
+        String etag = mockMvc.perform(get("/api/v1/patients/search").param("email", email).with(jwt()))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("W/\"p-");
+
+        mockMvc.perform(get("/api/v1/patients/search").param("email", email.toUpperCase()).with(jwt())
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        patientService.deletePatientByEmail(email);
+
+        mockMvc.perform(get("/api/v1/patients/search").param("email", email).with(jwt())
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void appointmentWritesChangeTheReportTag() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/appointments/page").with(jwt()))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/v1/appointments/page").with(jwt()).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+        // Same data, but JSON and NDJSON are different representations of the report, so they never share a tag.
+        assertThat(appointmentService.versionTag("report")).isNotEqualTo(appointmentService.versionTag("report-ndjson"));
+
+        PatientResponse patient = patientService.findByEmail(register());
+        appointmentRepo.save(Appointment.builder()
+            .patientId(patient.id())
+            .appointmentTime(LocalDateTime.of(2042, 6, 1, 10, 0))
+            .notes("follow-up")
+            .build());
+
+        String next = mockMvc.perform(get("/api/v1/appointments/page").with(jwt())
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(next).isNotEqualTo(etag);
+    }
+
+    @Test
+    void ifNoneMatchUsesWeakComparison() {
+        assertThat(ConditionalGet.matches("\"a-1\"", "W/\"a-1\"")).isTrue();
+        assertThat(ConditionalGet.matches("\"x\", W/\"a-1\"", "W/\"a-1\"")).isTrue();
+        assertThat(ConditionalGet.matches("*", "W/\"a-1\"")).isTrue();
+        assertThat(ConditionalGet.matches("W/\"a-2\"", "W/\"a-1\"")).isFalse();
+        assertThat(ConditionalGet.matches(null, "W/\"a-1\"")).isFalse();
+    }
+
+    private String register() {
+        String email = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Grace", "Hopper", email));
+        return email;
+    }
+}
@@ -0,0 +1,117 @@
+package com.hospital.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hospital.demo.model.Patient;
+import com.hospital.demo.repository.AppointmentRepository;
+import com.hospital.demo.repository.PatientRepository;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DataSeederTests {
+
+    @Autowired
+    PatientRepository patientRepo;
+
+    @Autowired
+    AppointmentRepository appointmentRepo;
+
+    @Autowired
+    BulkLoader bulkLoader;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void seedsRequestedVolumesAndEveryAppointmentPointsAtASeededPatient() {
+        appointmentRepo.deleteAllInBatch();
+        patientRepo.deleteAllInBatch();
+        jdbc.execute(DataSeeder.CREATE_MARKER);
+        jdbc.update("DELETE FROM seed_marker");
+
+        DataSeeder seeder = seeder();
+        assertThat(seeder.seed()).isTrue();
+
+        assertThat(patientRepo.count()).isEqualTo(2_500L);
+        assertThat(appointmentRepo.count()).isEqualTo(1_200L);
+        Long orphans = jdbc.queryForObject("""
+            SELECT COUNT(*) FROM appointments a
+            WHERE NOT EXISTS (SELECT 1 FROM patients p WHERE p.id = a.patient_id)
+            """, Long.class);
+        assertThat(orphans).isZero();
+        assertThat(seeder.seed()).isFalse();
+
+        List<UUID> ids = jdbc.queryForList("SELECT id FROM patients ORDER BY id", UUID.class);
+        assertThat(ids).allMatch(id -> id.version() == 7);
+        Patient created = patientRepo.save(Patient.builder().firstName("Ada").lastName("Lovelace")
+            .email(UUID.randomUUID() + "@hospital.com").build());
+        assertThat(created.getId().version()).isEqualTo(7);
+        assertThat(created.getId().toString()).isGreaterThan(ids.getLast().toString());
+    }
+
+    @Test
+    void anInterruptedSeedIsClearedAndRunAgain() {
+        appointmentRepo.deleteAllInBatch();
+        patientRepo.deleteAllInBatch();
+        jdbc.execute(DataSeeder.CREATE_MARKER);
+        jdbc.update("DELETE FROM seed_marker");
+        // What a crash halfway through leaves behind: some rows and a marker that never got to completed.
+        jdbc.update("INSERT INTO seed_marker (id, completed) VALUES (1, FALSE)");
+        patientRepo.save(Patient.builder().firstName("Half").lastName("Seeded")
+            .email(UUID.randomUUID() + "@hospital.com").build());
+
+        assertThat(seeder().seed()).isTrue();
+
+        assertThat(patientRepo.count()).isEqualTo(2_500L);
+        assertThat(appointmentRepo.count()).isEqualTo(1_200L);
+        assertThat(jdbc.queryForObject("SELECT completed FROM seed_marker WHERE id = 1", Boolean.class)).isTrue();
+        assertThat(seeder().seed()).isFalse();
+    }
+
+    @Test
+    void rowsFromBeforeTheMarkerCountAsSeeded() {
+        jdbc.execute(DataSeeder.CREATE_MARKER);
+        jdbc.update("DELETE FROM seed_marker");
+        patientRepo.save(Patient.builder().firstName("Already").lastName("Here")
+            .email(UUID.randomUUID() + "@hospital.com").build());
+
+        assertThat(seeder().seed()).isFalse();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM seed_marker", Long.class)).isZero();
+    }
+
+    @Test
+    void seededIdsRiseWithTheRowNumber() {
+        long epoch = System.currentTimeMillis();
+        UUID previous = DataSeeder.patientId(1L, epoch, 0);
+        for (long i = 1; i < 10_000; i++) {
+            UUID id = DataSeeder.patientId(1L, epoch, i);
+            assertThat(id.version()).isEqualTo(7);
+            assertThat(id.variant()).isEqualTo(2);
+            // Postgres orders uuids byte by byte, which is the order of their hex strings.
+            assertThat(id.toString()).isGreaterThan(previous.toString());
+            assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(epoch + i / 4096);
+            previous = id;
+        }
+    }
+
+    private DataSeeder seeder() {
+        DataSeeder seeder = new DataSeeder(patientRepo, bulkLoader, eventPublisher, new SeedHealthIndicator(false), jdbc);
+        ReflectionTestUtils.setField(seeder, "patients", 2_500L);
+        ReflectionTestUtils.setField(seeder, "appointments", 1_200L);
+        ReflectionTestUtils.setField(seeder, "sliceSize", 500);
+        ReflectionTestUtils.setField(seeder, "parallelism", 3);
+        return seeder;
+    }
+}
@@ -0,0 +1,235 @@
+package com.hospital.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hospital.demo.dto.PatientNameMatch;
+import com.hospital.demo.dto.PatientRequest;
+import com.hospital.demo.dto.PatientResponse;
+import com.hospital.demo.exception.ResourceNotFoundException;
+import com.hospital.demo.model.Patient;
+import com.hospital.demo.repository.PatientRepository;
+import com.hospital.demo.search.PatientNameIndex;
+import com.hospital.demo.service.AppointmentService;
+import com.hospital.demo.service.ChunkedLoader;
+import com.hospital.demo.service.PatientService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// The context's one "replica" is a separate database with the app's tables and only the rows a test copies into it,
+// i.e. a replica that has stopped replaying. The replica pool's usage shows where reads went. The routing rules are
+// checked on two separate H2 databases.
+@SpringBootTest(properties = {
+    "hospital.datasource.replica.urls=jdbc:h2:mem:hospital_replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+        + "DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:replica-schema.sql'",
+    "hospital.datasource.replica.lag-query=SELECT 0",
+    // Checked by hand below, so the scheduled check doesn't borrow replica connections mid-test.
+    "hospital.datasource.replica.lag-check-interval=1h"
+})
+@ActiveProfiles("test")
+class ReadReplicasTests {
+
+    @Autowired
+    ReadReplicas readReplicas;
+
+    @Autowired
+    PatientService patientService;
+
+    @Autowired
+    AppointmentService appointmentService;
+
+    @Autowired
+    PatientNameIndex patientNameIndex;
+
+    @Autowired
+    PrimaryReads primaryReads;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    HikariDataSource primaryDataSource;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void readOnlyTransactionsUseTheReplicaAndWritesThePrimary() {
+        readReplicas.checkLag();
+
+        long before = replicaConnections();
+        String email = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Grace", "Hopper", email));
+        assertThat(replicaConnections()).isEqualTo(before);
+
+        appointmentService.getAllWithDetails();
+        assertThat(replicaConnections()).isGreaterThan(before);
+    }
+
+    @Test
+    void cacheFillsAndTaggedReadsUseThePrimary() {
+        readReplicas.checkLag();
+        String email = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Grace", "Hopper", email));
+
+        long before = replicaConnections();
+        assertThat(patientService.findByEmail(email).firstName()).isEqualTo("Grace");
+        appointmentService.getPage(null, 10);
+        appointmentService.streamAllWithDetails(rows -> { });
+        assertThat(replicaConnections()).isEqualTo(before);
+    }
+
+    @Test
+    void aReplicaBehindADeleteDoesNotRefillTheCache() {
+        readReplicas.checkLag();
+        String email = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Edsger", "Dijkstra", email));
+        PatientResponse patient = patientService.findByEmail(email);
+        // Replicated...
+        new JdbcTemplate(readReplicas.readers()).update(
+            "INSERT INTO patients (id, first_name, last_name, email) VALUES (?, ?, ?, ?)",
+            patient.id(), patient.firstName(), patient.lastName(), patient.email());
+
+        // ...but the delete isn't yet.
+        patientService.deletePatientById(patient.id().toString());
+
+        assertThatThrownBy(() -> patientService.findById(patient.id().toString()))
+            .isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> patientService.findByEmail(email)).isInstanceOf(ResourceNotFoundException.class);
+        assertThat(patientService.findAllByIdsMap(List.of(patient.id()))).isEmpty();
+    }
+
+    @Test
+    void nameIndexRebuildsReadThePrimary() {
+        readReplicas.checkLag();
+        // On the primary only: the replica hasn't replayed it.
+        String email = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Barbara", "Liskov", email));
+
+        long before = replicaConnections();
+        patientNameIndex.rebuild();
+
+        assertThat(replicaConnections()).isEqualTo(before);
+        assertThat(patientNameIndex.search("liskov", 10)).extracting(PatientNameMatch::getEmail).contains(email);
+    }
+
+    @Test
+    void fetchHelpersHoldAPrimaryConnectionBeforeTheyTakeAChunk() {
+        readReplicas.checkLag();
+        long replicaBefore = replicaConnections();
+
+        // Where a helper claims its first chunk: pinned, and already holding a primary connection.
+        Boolean pinned = primaryReads.connectedTx().execute(status -> readReplicas.pinned());
+        assertThat(pinned).isTrue();
+        long acquired = primaryAcquisitions();
+        Long acquiredInside = primaryReads.connectedTx().execute(status -> primaryAcquisitions());
+        assertThat(acquiredInside).isGreaterThan(acquired);
+
+        // Only on the primary, so every row coming back shows where the helpers read.
+        List<UUID> ids = IntStream.range(0, 10).mapToObj(i -> {
+            String email = UUID.randomUUID() + "@hospital.com";
+            patientService.createPatient(new PatientRequest("Frances", "Allen", email));
+            return patientService.findByEmail(email).id();
+        }).toList();
+        ChunkedLoader loader = new ChunkedLoader(2, 2, 10, 4, primaryReads.connectedTx());
+        try {
+            assertThat(loader.load(ids, chunk -> primaryReads.get(() -> patientRepository.findAllById(chunk))))
+                .extracting(Patient::getId).containsExactlyInAnyOrderElementsOf(ids);
+        } finally {
+            loader.destroy();
+        }
+        assertThat(replicaConnections()).isEqualTo(replicaBefore);
+    }
+
+    @Test
+    void perCallCredentialsGoToTheChosenPool() throws Exception {
+        HikariDataSource primary = h2("rr_creds_primary");
+        HikariDataSource replica = h2("rr_creds_replica");
+        new JdbcTemplate(replica).execute("CREATE TABLE replica_lag AS SELECT 0 AS seconds");
+        ReadReplicas replicas = new ReadReplicas(primary, List.of(replica), Duration.ofSeconds(1),
+            "SELECT seconds FROM replica_lag", new SimpleMeterRegistry());
+        replicas.checkLag();
+
+        // Hikari doesn't do per-call credentials. The replica says so, and stays in rotation.
+        assertThatThrownBy(() -> replicas.readers().getConnection("sa", ""))
+            .isInstanceOf(SQLFeatureNotSupportedException.class);
+        try (Connection connection = replicas.readers().getConnection()) {
+            assertThat(connection.getMetaData().getURL()).contains("rr_creds_replica");
+        }
+
+        replicas.destroy();
+        primary.close();
+    }
+
+    @Test
+    void laggingOrMissingReplicasFallBackToThePrimary() {
+        HikariDataSource primary = h2("rr_primary");
+        HikariDataSource replica = h2("rr_replica");
+        new JdbcTemplate(primary).execute("CREATE TABLE whoami AS SELECT 'primary' AS name");
+        JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("CREATE TABLE whoami AS SELECT 'replica' AS name");
+        replicaJdbc.execute("CREATE TABLE replica_lag (seconds DOUBLE PRECISION)");
+        replicaJdbc.execute("INSERT INTO replica_lag VALUES (0.2)");
+
+        ReadReplicas replicas = new ReadReplicas(primary, List.of(replica), Duration.ofSeconds(1),
+            "SELECT seconds FROM replica_lag", new SimpleMeterRegistry());
+        DataSource routing = replicas.routing();
+
+        // Out of rotation until the first check.
+        assertThat(read(routing, true)).isEqualTo("primary");
+        replicas.checkLag();
+        assertThat(read(routing, true)).isEqualTo("replica");
+        assertThat(read(routing, false)).isEqualTo("primary");
+        assertThat(replicas.onPrimary(() -> read(routing, true))).isEqualTo("primary");
+
+        replicaJdbc.execute("UPDATE replica_lag SET seconds = 5");
+        replicas.checkLag();
+        assertThat(read(routing, true)).isEqualTo("primary");
+
+        replicaJdbc.execute("UPDATE replica_lag SET seconds = 0");
+        replicas.checkLag();
+        assertThat(read(routing, true)).isEqualTo("replica");
+
+        replicas.destroy();
+        assertThat(read(routing, true)).isEqualTo("primary");
+        primary.close();
+    }
+
+    private static String read(DataSource routing, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> new JdbcTemplate(routing).queryForObject("SELECT name FROM whoami", String.class));
+    }
+
+    private static HikariDataSource h2(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName(name);
+        pool.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        pool.setConnectionTimeout(250);
+        return pool;
+    }
+
+    private long primaryAcquisitions() {
+        return meterRegistry.get("hikaricp.connections.acquire").tag("pool", primaryDataSource.getPoolName()).timer()
+            .count();
+    }
+
+    private long replicaConnections() {
+        return meterRegistry.get("hikaricp.connections.usage").tag("pool", "replica-1").timer().count();
+    }
+}
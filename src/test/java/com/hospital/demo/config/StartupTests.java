@@ -0,0 +1,112 @@
+package com.hospital.demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.health.contributor.Status;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StartupTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ConfigurableListableBeanFactory beanFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void readinessReportsTheSeederAndOnlyGatesOnItWhenAskedTo() throws Exception {
+        // Seeding is off in tests.
+        mockMvc.perform(get("/actuator/health/readiness"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.components.seed.details.state").value("disabled"));
+
+        SeedHealthIndicator informational = new SeedHealthIndicator(false);
+        informational.started();
+        assertThat(informational.health().getStatus()).isEqualTo(Status.UP);
+
+        SeedHealthIndicator gated = new SeedHealthIndicator(true);
+        gated.started();
+        assertThat(gated.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(gated.health().getDetails()).containsEntry("state", "running");
+        gated.done();
+        assertThat(gated.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(gated.health().getDetails()).containsEntry("state", "done").containsKey("elapsed");
+    }
+
+    @Test
+    void warmUpsRunInTheBackgroundAndGateLikeTheSeed() throws Exception {
+        mockMvc.perform(get("/actuator/health/readiness"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.components.seed.details.warmups['name-index'].state").exists())
+            .andExpect(jsonPath("$.components.seed.details.warmups['stats-rollup'].state").exists());
+
+        SeedHealthIndicator gated = new SeedHealthIndicator(true);
+        CountDownLatch release = new CountDownLatch(1);
+        gated.warmUp("slow", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        gated.warmUp("broken", () -> {
+            throw new IllegalStateException("no table");
+        });
+        assertThat(gated.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gated.health().getStatus() != Status.UP && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(gated.health().getStatus()).isEqualTo(Status.UP);
+        @SuppressWarnings("unchecked")
+        Map<String, Map<String, Object>> warmups =
+            (Map<String, Map<String, Object>>) gated.health().getDetails().get("warmups");
+        assertThat(warmups.get("slow")).containsEntry("state", "done").containsKey("elapsed");
+        assertThat(warmups.get("broken")).containsEntry("state", "failed")
+            .containsEntry("error", "java.lang.IllegalStateException: no table");
+    }
+
+    @Test
+    void springdocStartsLazilyAndStillServesTheApiDocs() throws Exception {
+        assertThat(Arrays.stream(beanFactory.getBeanDefinitionNames())
+            .map(beanFactory::getBeanDefinition)
+            .filter(definition -> definition.getResourceDescription() != null
+                && definition.getResourceDescription().contains("springdoc")))
+            .isNotEmpty()
+            .allMatch(definition -> definition.isLazyInit());
+
+        mockMvc.perform(get("/v3/api-docs"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.paths['/api/v1/appointments']").exists());
+    }
+
+    @Test
+    void timeToFirstRequestIsPublished() throws Exception {
+        mockMvc.perform(get("/api/v1/patients/stats"));
+
+        double millis = meterRegistry.get("application.first.request.time").timeGauge().value(TimeUnit.MILLISECONDS);
+        assertThat(millis).isPositive();
+    }
+}
@@ -0,0 +1,70 @@
+package com.hospital.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.service.AppointmentService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+// Against the real embedded Tomcat: what a client sees on the wire when a streamed report fails partway is decided
+// by the container, which MockMvc doesn't have.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class AppointmentControllerTests {
+
+    @LocalServerPort
+    int port;
+
+    @MockitoBean
+    JwtDecoder jwtDecoder;
+
+    @MockitoBean
+    AppointmentService appointmentService;
+
+    @Test
+    void reportThatFailsMidStreamEndsInABrokenTransferNotAShortValidBody() throws Exception {
+        given(jwtDecoder.decode(anyString()))
+            .willReturn(Jwt.withTokenValue("token").header("alg", "none").subject("tester").build());
+        given(appointmentService.versionTag(anyString())).willReturn("W/\"1\"");
+        willAnswer(invocation -> {
+            Consumer<List<AppointmentResponse>> sink = invocation.getArgument(0);
+            sink.accept(List.of(new AppointmentResponse(UUID.randomUUID(), "Ada Lovelace",
+                LocalDateTime.of(2030, 1, 1, 9, 0), null)));
+            throw new DataAccessResourceFailureException("Connection reset");
+        }).given(appointmentService).streamReport(any());
+
+        HttpResponse<InputStream> response = HttpClient.newHttpClient().send(
+            HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/appointments"))
+                .header(HttpHeaders.AUTHORIZATION, "Bearer token")
+                .build(),
+            HttpResponse.BodyHandlers.ofInputStream());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        try (InputStream body = response.body()) {
+            assertThatThrownBy(body::readAllBytes).isInstanceOf(IOException.class);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.hospital.demo.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.hospital.demo.dto.PatientRequest;
+import com.hospital.demo.model.Patient;
+import com.hospital.demo.repository.PatientRepository;
+import com.hospital.demo.service.PatientService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ChangeEventBusTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ChangeEventBus bus;
+
+    @Autowired
+    PatientService patientService;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void subscribersGetCommittedChangesOnlyAndATransactionsEventsTogether() throws Exception {
+        String first = email();
+        String second = email();
+        String rolledBack = email();
+        String last = email();
+        List<ChangeEvent> received = new CopyOnWriteArrayList<>();
+        try (ChangeSubscription subscription = bus.subscribe("bus-test", 100, received::addAll)) {
+            patientService.bulkRegister(List.of(
+                new PatientRequest("Ada", "Lovelace", first),
+                new PatientRequest("Grace", "Hopper", second)));
+            patientService.deletePatientByEmail(first);
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                patientRepository.saveAndFlush(Patient.builder().firstName("Never").lastName("Committed")
+                    .email(rolledBack).build());
+                status.setRollbackOnly();
+            });
+            patientService.createPatient(new PatientRequest("Alan", "Turing", last));
+
+            awaitTrue(() -> received.stream().anyMatch(e -> last.equals(email(e))));
+            List<ChangeEvent> mine = received.stream()
+                .filter(e -> Set.of(first, second, rolledBack, last).contains(email(e)))
+                .toList();
+            assertThat(mine).extracting(ChangeEvent::kind, ChangeEvent::type, this::email).containsExactly(
+                tuple(ChangeEvent.Kind.CREATED, ChangeEvent.Type.PATIENT, first),
+                tuple(ChangeEvent.Kind.CREATED, ChangeEvent.Type.PATIENT, second),
+                tuple(ChangeEvent.Kind.DELETED, ChangeEvent.Type.PATIENT, first),
+                tuple(ChangeEvent.Kind.CREATED, ChangeEvent.Type.PATIENT, last));
+            // One transaction, one run of sequence numbers.
+            assertThat(mine.get(1).sequence()).isEqualTo(mine.get(0).sequence() + 1);
+            assertThat(subscription.lag()).isZero();
+            assertThat(meterRegistry.get("changes.subscriber.delivered").tag("subscriber", "bus-test").counter()
+                .count()).isGreaterThanOrEqualTo(4);
+        }
+        // Closing takes the subscriber's meters with it, so the name can be used again.
+        assertThat(meterRegistry.find("changes.subscriber.lag").tag("subscriber", "bus-test").gauge()).isNull();
+        bus.subscribe("bus-test", 1, batch -> { }).close();
+    }
+
+    @Test
+    void streamSendsBatchesAsServerSentEventsAndResumesAfterLastEventId() throws Exception {
+        MvcResult stream = mockMvc.perform(get("/api/v1/changes/stream").param("types", "patient").with(jwt()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String first = email();
+        patientService.createPatient(new PatientRequest("Ada", "Lovelace", first));
+        String body = awaitBody(stream, first);
+        assertThat(body).contains("event:changes\n", "\"kind\":\"CREATED\"", "\"type\":\"PATIENT\"");
+        String lastEventId = body.lines().filter(line -> line.startsWith("id:")).reduce((a, b) -> b).orElseThrow()
+            .substring("id:".length());
+
+        // Right after the last id it saw: the first patient isn't sent again, the next one is.
+        MvcResult resumed = mockMvc.perform(get("/api/v1/changes/stream").header("Last-Event-ID", lastEventId)
+                .with(jwt()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String second = email();
+        patientService.createPatient(new PatientRequest("Grace", "Hopper", second));
+        assertThat(awaitBody(resumed, second)).doesNotContain(first).doesNotContain("event:reset");
+
+        // An id this JVM never handed out (e.g. from before a restart): start over.
+        MvcResult stale = mockMvc.perform(get("/api/v1/changes/stream").header("Last-Event-ID", "0-42").with(jwt()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        assertThat(awaitBody(stale, "event:reset")).contains("\"kind\":\"RESET\"");
+
+        mockMvc.perform(get("/api/v1/changes/stream").param("types", "doctor").with(jwt()))
+            .andExpect(status().isBadRequest());
+    }
+
+    private String email(ChangeEvent event) {
+        return event.row() instanceof Patient p ? p.getEmail() : null;
+    }
+
+    private static String email() {
+        return UUID.randomUUID() + "@hospital.com";
+    }
+
+    private static String awaitBody(MvcResult result, String expected) throws Exception {
+        awaitTrue(() -> {
+            try {
+                return result.getResponse().getContentAsString().contains(expected);
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        return result.getResponse().getContentAsString();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,162 @@
+package com.hospital.demo.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ChangeRingTests {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    SubscriberMeters meters = new SubscriberMeters(registry, "test", () -> 0);
+
+    @Test
+    void cursorHandsOutBatchesInSequenceOrder() {
+        ChangeRing ring = new ChangeRing(16);
+        ChangeCursor cursor = new ChangeCursor(ring, meters, 1, false);
+        assertThat(cursor.poll(10)).isEmpty();
+
+        ring.publish(staged(3), Instant.now());
+        ring.publish(staged(2), Instant.now());
+        assertThat(cursor.lag()).isEqualTo(5);
+
+        assertThat(cursor.poll(4)).extracting(ChangeEvent::sequence).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(cursor.poll(4)).extracting(ChangeEvent::sequence).containsExactly(5L);
+        assertThat(cursor.hasNext()).isFalse();
+        assertThat(cursor.position()).isEqualTo(5);
+        assertThat(registry.get("changes.subscriber.delivered").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    void lappedCursorGetsAResetAndCarriesOnFromTheOldestHeldEvent() {
+        ChangeRing ring = new ChangeRing(10);
+        assertThat(ring.capacity).isEqualTo(16);
+        ChangeCursor cursor = new ChangeCursor(ring, meters, 1, false);
+
+        ring.publish(staged(20), Instant.now());
+
+        List<ChangeEvent> reset = cursor.poll(100);
+        assertThat(reset).singleElement().satisfies(e -> {
+            assertThat(e.kind()).isEqualTo(ChangeEvent.Kind.RESET);
+            assertThat(e.sequence()).isEqualTo(4);
+        });
+        assertThat(cursor.poll(100)).extracting(ChangeEvent::sequence)
+            .containsExactlyElementsOf(IntStream.rangeClosed(5, 20).asLongStream().boxed().toList());
+        assertThat(registry.get("changes.subscriber.overruns").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void resetsComeOnTheirOwn() {
+        ChangeRing ring = new ChangeRing(16);
+        ChangeCursor cursor = new ChangeCursor(ring, meters, 1, false);
+        ring.publish(staged(2), Instant.now());
+        ring.publish(List.of(ChangeEvent.staged(ChangeEvent.Kind.RESET, null, null, null)), Instant.now());
+        ring.publish(staged(1), Instant.now());
+
+        assertThat(cursor.poll(10)).hasSize(2);
+        assertThat(cursor.poll(10)).singleElement().extracting(ChangeEvent::kind).isEqualTo(ChangeEvent.Kind.RESET);
+        assertThat(cursor.poll(10)).extracting(ChangeEvent::sequence).containsExactly(4L);
+    }
+
+    @Test
+    void aStalledPublishersGapIsSkippedWithAResetAfterMaxGapWait() throws Exception {
+        ChangeRing ring = new ChangeRing(16, Duration.ofMillis(200));
+        ChangeCursor cursor = new ChangeCursor(ring, meters, 1, false);
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        List<ChangeEvent> run = staged(2);
+        // Claims sequences 1 and 2, then stalls before storing either.
+        Thread stalled = Thread.ofPlatform().start(() -> ring.publish(new AbstractList<>() {
+            @Override
+            public ChangeEvent get(int index) {
+                claimed.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return run.get(index);
+            }
+
+            @Override
+            public int size() {
+                return run.size();
+            }
+        }, Instant.now()));
+        claimed.await();
+        ring.publish(staged(1), Instant.now());
+
+        assertThat(cursor.poll(10)).isEmpty();
+        assertThat(cursor.hasNext()).isFalse();
+        assertThat(cursor.untilGapSkipNanos()).isPositive().isLessThanOrEqualTo(Duration.ofMillis(200).toNanos());
+
+        // What ChangeEventBus.await parks for.
+        Thread.sleep(Duration.ofNanos(cursor.untilGapSkipNanos()));
+        assertThat(cursor.hasNext()).isTrue();
+        assertThat(cursor.poll(10)).singleElement().satisfies(e -> {
+            assertThat(e.kind()).isEqualTo(ChangeEvent.Kind.RESET);
+            assertThat(e.sequence()).isEqualTo(2);
+        });
+        assertThat(cursor.poll(10)).extracting(ChangeEvent::sequence).containsExactly(3L);
+        assertThat(registry.get("changes.subscriber.gap.skipped").counter().count()).isEqualTo(2);
+
+        // Filled in late: the cursor has moved on and doesn't go back.
+        resume.countDown();
+        stalled.join();
+        assertThat(cursor.poll(10)).isEmpty();
+    }
+
+    @Test
+    void concurrentPublishersNeverLoseOrReorderEvents() throws Exception {
+        ChangeRing ring = new ChangeRing(1 << 16);
+        int publishers = 4;
+        int transactions = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < publishers; p++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int t = 0; t < transactions; t++) {
+                    ring.publish(staged(1 + t % 3), Instant.now());
+                }
+            }));
+        }
+        ChangeCursor cursor = new ChangeCursor(ring, meters, 1, false);
+        long total = publishers * (long) IntStream.range(0, transactions).map(t -> 1 + t % 3).sum();
+        start.countDown();
+
+        // Read while they publish: every event exactly once, in sequence order, gaps waited out.
+        long expected = 1;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (expected <= total && System.nanoTime() < deadline) {
+            for (ChangeEvent event : cursor.poll(500)) {
+                assertThat(event.kind()).isEqualTo(ChangeEvent.Kind.CREATED);
+                assertThat(event.sequence()).isEqualTo(expected++);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(expected - 1).isEqualTo(ring.head()).isEqualTo(total);
+        assertThat(cursor.poll(500)).isEmpty();
+    }
+
+    private static List<ChangeEvent> staged(int n) {
+        return IntStream.range(0, n)
+            .mapToObj(i -> ChangeEvent.staged(ChangeEvent.Kind.CREATED, ChangeEvent.Type.PATIENT, UUID.randomUUID(), null))
+            .toList();
+    }
+}
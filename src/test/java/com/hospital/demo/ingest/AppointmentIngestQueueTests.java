@@ -0,0 +1,262 @@
+package com.hospital.demo.ingest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.hospital.demo.dto.PatientRequest;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.repository.AppointmentRepository;
+import com.hospital.demo.service.PatientService;
+import com.hospital.demo.stats.AppointmentRollup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+// Own context (the flush interval differs), so its POSTs stay out of the shared context's request metrics.
+@SpringBootTest(properties = "hospital.ingest.flush-interval=10ms")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AppointmentIngestQueueTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    PatientService patientService;
+
+    @Autowired
+    AppointmentRollup appointmentRollup;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    AppointmentIngestQueue ingestQueue;
+
+    // A spy so a test can hold a batch open while more bookings arrive.
+    @MockitoSpyBean
+    AppointmentRepository appointmentRepo;
+
+    @Test
+    void bookingsAreConfirmedOnceTheirBatchCommits() throws Exception {
+        String email = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Ada", "Lovelace", email));
+        UUID patientId = patientService.findByEmail(email).id();
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(post("/api/v1/appointments").with(jwt())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"patientId\":\"" + patientId + "\",\"appointmentTime\":\"2043-01-0" + (i + 1)
+                        + "T09:00:00\",\"notes\":\"checkup\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.data").isNotEmpty());
+        }
+        mockMvc.perform(post("/api/v1/appointments").with(jwt())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"patientId\":\"" + UUID.randomUUID() + "\",\"appointmentTime\":\"2043-01-01T09:00:00\"}"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/v1/appointments").with(jwt())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"patientId\":\"" + patientId + "\"}"))
+            .andExpect(status().isBadRequest());
+
+        // Each 201 came after its batch committed, so the rollup has counted them already.
+        assertThat(appointmentRollup.forPatient(patientId)).isEqualTo(3);
+        assertThat(meterRegistry.get("appointments.ingest.batch.size").summary().totalAmount()).isGreaterThanOrEqualTo(3);
+        assertThat(meterRegistry.get("appointments.ingest.queue.depth").gauge().value()).isZero();
+    }
+
+    @Test
+    void burstsSkipTheLimiterAndShareABatch() throws Exception {
+        String email = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Grace", "Hopper", email));
+        UUID patientId = patientService.findByEmail(email).id();
+        // More than the limiter's 8 permits (hospital.limiter.max-concurrent).
+        int bookings = 20;
+        CountDownLatch commit = new CountDownLatch(1);
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        // The spy wraps a JDK proxy, so the real call goes through the spy's delegating default answer.
+        Answer<?> real = mockingDetails(appointmentRepo).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            batchSizes.add(invocation.<List<?>>getArgument(0).size());
+            commit.await(5, TimeUnit.SECONDS);
+            return real.answer(invocation);
+        }).when(appointmentRepo).saveAll(anyList());
+
+        ExecutorService clients = Executors.newFixedThreadPool(bookings);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < bookings; i++) {
+                String time = LocalDateTime.of(2044, 1, 1, 9, 0).plusHours(i).toString();
+                statuses.add(clients.submit(() -> mockMvc.perform(post("/api/v1/appointments").with(jwt())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"patientId\":\"" + patientId + "\",\"appointmentTime\":\"" + time + "\"}"))
+                    .andReturn().getResponse().getStatus()));
+            }
+            // The first batch is held open, and every booking gets into the queue behind it at once.
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (ingestQueue.depth() < bookings && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(ingestQueue.depth()).isEqualTo(bookings);
+            commit.countDown();
+
+            for (Future<Integer> status : statuses) {
+                assertThat(status.get(10, TimeUnit.SECONDS)).isEqualTo(201);
+            }
+        } finally {
+            commit.countDown();
+            clients.shutdownNow();
+        }
+        assertThat(appointmentRollup.forPatient(patientId)).isEqualTo(bookings);
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(bookings);
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).max().orElse(0)).isGreaterThan(8);
+    }
+
+    @Test
+    void writesAsSoonAsABookingArrivesRefusesWhenFullAndDrainsOnStop() throws Exception {
+        AppointmentRepository repo = mock(AppointmentRepository.class);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        when(repo.saveAll(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            commit.await(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // An hour-long interval: only the booking itself can wake the flusher.
+        AppointmentIngestQueue queue = new AppointmentIngestQueue(repo, mock(PlatformTransactionManager.class),
+            registry, 2, 100, Duration.ofHours(1), Duration.ofSeconds(5), Duration.ofSeconds(5));
+        queue.start();
+
+        Appointment a = appointment();
+        Appointment b = appointment();
+        AppointmentIngestQueue.Booking first = queue.offer(a);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        // a is committing and b waits behind it: the queue is full.
+        AppointmentIngestQueue.Booking second = queue.offer(b);
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(queue.offer(appointment())).isNull();
+        assertThatThrownBy(() -> queue.submit(appointment())).isInstanceOf(RejectedExecutionException.class);
+        assertThat(registry.get("appointments.ingest.rejected").counter().count()).isEqualTo(2);
+
+        Thread stopping = new Thread(queue::stop);
+        stopping.start();
+        while (queue.isRunning()) {
+            Thread.onSpinWait();
+        }
+        assertThat(queue.offer(a)).isNull();
+        commit.countDown();
+        stopping.join(5000);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Appointment>> written = ArgumentCaptor.forClass(List.class);
+        verify(repo, times(2)).saveAll(written.capture());
+        assertThat(written.getAllValues()).containsExactly(List.of(a), List.of(b));
+        assertThat(first.stored).isCompletedWithValue(a);
+        assertThat(second.stored).isCompletedWithValue(b);
+        assertThat(queue.depth()).isZero();
+    }
+
+    @Test
+    void transientRowErrorsAreRetriedAndRefusedRowsFailTheirOwnRequest() {
+        AppointmentRepository repo = mock(AppointmentRepository.class);
+        Appointment good = appointment();
+        Appointment bad = appointment();
+        when(repo.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(repo.save(good)).thenThrow(new TransientDataAccessResourceException("connection reset")).thenReturn(good);
+        when(repo.save(bad)).thenThrow(new DataIntegrityViolationException("duplicate"));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AppointmentIngestQueue queue = new AppointmentIngestQueue(repo, mock(PlatformTransactionManager.class),
+            registry, 10, 2, Duration.ofMillis(10), Duration.ofSeconds(5), Duration.ofSeconds(5));
+        queue.start();
+        try {
+            AppointmentIngestQueue.Booking stored = queue.offer(good);
+            AppointmentIngestQueue.Booking refused = queue.offer(bad);
+
+            assertThat(stored.stored).succeedsWithin(Duration.ofSeconds(5)).isSameAs(good);
+            assertThat(refused.stored).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(DataIntegrityViolationException.class);
+            verify(repo, times(2)).save(good);
+            assertThat(registry.get("appointments.ingest.dropped").counter().count()).isEqualTo(1);
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void bookingsNotWrittenInTimeAreWithdrawnAndNeverWritten() {
+        AppointmentRepository repo = mock(AppointmentRepository.class);
+        AtomicBoolean databaseUp = new AtomicBoolean();
+        when(repo.saveAll(anyList())).thenAnswer(invocation -> {
+            if (!databaseUp.get()) {
+                throw new CannotCreateTransactionException("database down");
+            }
+            return invocation.getArgument(0);
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AppointmentIngestQueue queue = new AppointmentIngestQueue(repo, mock(PlatformTransactionManager.class),
+            registry, 10, 1, Duration.ofMillis(10), Duration.ofSeconds(5), Duration.ofMillis(200));
+        queue.start();
+        try {
+            assertThatThrownBy(() -> queue.submit(appointment())).isInstanceOf(RejectedExecutionException.class);
+            databaseUp.set(true);
+
+            Appointment later = appointment();
+            assertThat(queue.submit(later)).isSameAs(later);
+            @SuppressWarnings("unchecked")
+            ArgumentCaptor<List<Appointment>> written = ArgumentCaptor.forClass(List.class);
+            verify(repo, atLeastOnce()).saveAll(written.capture());
+            assertThat(written.getValue()).containsExactly(later);
+            assertThat(registry.get("appointments.ingest.withdrawn").counter().count()).isEqualTo(1);
+            assertThat(queue.depth()).isZero();
+        } finally {
+            queue.stop();
+        }
+    }
+
+    private static Appointment appointment() {
+        return Appointment.builder().patientId(UUID.randomUUID()).appointmentTime(LocalDateTime.now()).build();
+    }
+}
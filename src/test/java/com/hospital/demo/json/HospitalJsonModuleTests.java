@@ -0,0 +1,155 @@
+package com.hospital.demo.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hospital.demo.dto.ApiEnvelope;
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.metrics.MethodTimers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+class HospitalJsonModuleTests {
+
+    // Jackson's own bean serialization is the reference the hand-written serializers must match byte for byte.
+    JsonMapper reference = JsonMapper.builder().build();
+    JsonMapper fast = JsonMapper.builder().addModule(new HospitalJsonModule()).build();
+    CBORMapper cbor = CBORMapper.builder().addModule(new HospitalJsonModule()).build();
+    SmileMapper smile = SmileMapper.builder().addModule(new HospitalJsonModule()).build();
+    StreamingJsonWriter streaming = new StreamingJsonWriter(fast, cbor, smile,
+        new MethodTimers(new SimpleMeterRegistry()));
+
+    @Test
+    void envelopeMatchesBeanSerialization() {
+        List<AppointmentResponse> rows = List.of(
+            new AppointmentResponse(UUID.randomUUID(), "Ada Lovelace", LocalDateTime.of(2026, 3, 1, 9, 0), "Checkup"),
+            new AppointmentResponse(UUID.randomUUID(), "Alan \"Turing\"", LocalDateTime.of(2026, 3, 1, 9, 30, 5, 500_000_000), null),
+            new AppointmentResponse(UUID.randomUUID(), "Grace Hopper", LocalDateTime.of(2026, 12, 31, 23, 59, 59, 123_456_789), "x\ny"),
+            new AppointmentResponse(UUID.randomUUID(), "Edsger Dijkstra", LocalDateTime.of(2026, 1, 2, 3, 4, 5, 1_000), ""));
+
+        ApiEnvelope<List<AppointmentResponse>> success = ApiEnvelope.success(rows, "Report generated").getBody();
+        ApiEnvelope<Void> error = ApiEnvelope.<Void>builder()
+            .status(400)
+            .message("Validation Failed")
+            .errors(List.of("email: must be a well-formed email address"))
+            .timestamp(LocalDateTime.of(2026, 1, 1, 0, 0, 0, 10_000_000))
+            .build();
+
+        assertThat(fast.writeValueAsString(success)).isEqualTo(reference.writeValueAsString(success));
+        assertThat(fast.writeValueAsString(error)).isEqualTo(reference.writeValueAsString(error));
+    }
+
+    @Test
+    void streamedEnvelopeReadsTheSameAsABufferedOne() {
+        List<AppointmentResponse> first = List.of(
+            new AppointmentResponse(UUID.randomUUID(), "Ada Lovelace", LocalDateTime.of(2026, 3, 1, 9, 0), "Checkup"));
+        List<AppointmentResponse> second = List.of(
+            new AppointmentResponse(UUID.randomUUID(), "Alan Turing", LocalDateTime.of(2026, 3, 2, 9, 0), null),
+            new AppointmentResponse(UUID.randomUUID(), "Grace Hopper", LocalDateTime.of(2026, 3, 3, 9, 0), "Labs"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        streaming.writeEnvelope(out, "Report generated", AppointmentResponse.class, sink -> {
+            sink.accept(first);
+            sink.accept(second);
+        });
+
+        JsonNode streamed = fast.readTree(out.toByteArray());
+        JsonNode buffered = reference.valueToTree(ApiEnvelope.success(
+            List.of(first.get(0), second.get(0), second.get(1)), "Report generated").getBody());
+        assertThat(streamed.get("data")).isEqualTo(buffered.get("data"));
+        assertThat(streamed.get("status")).isEqualTo(buffered.get("status"));
+        assertThat(streamed.get("message")).isEqualTo(buffered.get("message"));
+        assertThat(streamed.get("timestamp").isString()).isTrue();
+    }
+
+    @Test
+    void binaryEnvelopesDecodeToTheJsonOne() {
+        List<AppointmentResponse> rows = List.of(
+            new AppointmentResponse(UUID.randomUUID(), "Ada Lovelace", LocalDateTime.of(2026, 3, 1, 9, 0), "Checkup"),
+            new AppointmentResponse(UUID.randomUUID(), "Alan Turing", LocalDateTime.of(2026, 3, 2, 9, 0, 1), null));
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        streaming.writeEnvelope(json, "Report generated", AppointmentResponse.class, sink -> sink.accept(rows));
+        JsonNode expected = fast.readTree(json.toByteArray());
+
+        for (WireFormat format : List.of(WireFormat.CBOR, WireFormat.SMILE)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            streaming.writeEnvelope(out, format, "Report generated", AppointmentResponse.class,
+                sink -> sink.accept(rows));
+            ObjectMapper mapper = format == WireFormat.CBOR ? cbor : smile;
+            JsonNode decoded = mapper.readTree(out.toByteArray());
+            assertThat(decoded.get("data")).isEqualTo(expected.get("data"));
+            assertThat(decoded.get("message")).isEqualTo(expected.get("message"));
+            assertThat(out.size()).isLessThan(json.size());
+        }
+    }
+
+    @Test
+    void ndjsonHasOneDocumentPerLine() {
+        AppointmentResponse a = new AppointmentResponse(UUID.randomUUID(), "Ada Lovelace", LocalDateTime.of(2026, 3, 1, 9, 0), "Checkup");
+        AppointmentResponse b = new AppointmentResponse(UUID.randomUUID(), "Alan Turing", LocalDateTime.of(2026, 3, 2, 9, 0), null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        streaming.writeLines(out, AppointmentResponse.class, sink -> {
+            sink.accept(List.of(a));
+            sink.accept(List.of(b));
+        });
+
+        assertThat(out.toString()).isEqualTo(reference.writeValueAsString(a) + "\n" + reference.writeValueAsString(b) + "\n");
+    }
+
+    @Test
+    void uuidAndDateFormattingMatchTheJdk() {
+        char[] buf = new char[36];
+        for (UUID id : List.of(new UUID(0, 0), new UUID(-1, -1), UUID.randomUUID(), UUID.randomUUID())) {
+            assertThat(new String(buf, 0, AppointmentResponseSerializer.fillUuid(buf, id))).isEqualTo(id.toString());
+        }
+        LocalDateTime time = LocalDateTime.of(2026, 7, 4, 0, 0, 0, 120_000);
+        assertThat(IsoDateTime.format(time)).isEqualTo(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(time));
+    }
+
+    @Test
+    void epochMicrosFormatLikeTheLocalDateTimeTheyStandFor() {
+        // Century and leap-day edges, then random instants across the four-digit years.
+        List<LocalDateTime> times = new ArrayList<>(List.of(
+            LocalDateTime.of(1970, 1, 1, 0, 0),
+            LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000),
+            LocalDateTime.of(1900, 2, 28, 12, 0),
+            LocalDateTime.of(1900, 3, 1, 0, 0),
+            LocalDateTime.of(2000, 2, 29, 23, 59, 59, 1_000),
+            LocalDateTime.of(2100, 3, 1, 8, 30, 5, 500_000_000),
+            LocalDateTime.of(1, 1, 1, 0, 0),
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59, 999_999_000)));
+        SplittableRandom random = new SplittableRandom(7);
+        long min = LocalDateTime.of(1, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+        long max = LocalDateTime.of(9999, 12, 31, 23, 59, 59).toEpochSecond(ZoneOffset.UTC);
+        for (int i = 0; i < 10_000; i++) {
+            times.add(LocalDateTime.ofEpochSecond(random.nextLong(min, max), random.nextInt(1_000_000) * 1000,
+                ZoneOffset.UTC));
+        }
+
+        char[] buf = new char[36];
+        for (LocalDateTime time : times) {
+            long micros = time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1000;
+            StringWriter out = new StringWriter();
+            try (JsonGenerator gen = fast.createGenerator(out)) {
+                IsoDateTime.writeEpochMicros(gen, micros, buf);
+            }
+            assertThat(out.toString()).isEqualTo("\"" + IsoDateTime.format(time) + "\"");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.hospital.demo.json;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.hospital.demo.dto.PatientRequest;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.dataformat.cbor.CBORMapper;
+import tools.jackson.dataformat.smile.SmileMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class WireFormatTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    CBORMapper cborMapper;
+
+    @Autowired
+    SmileMapper smileMapper;
+
+    @Test
+    void patientsRoundTripThroughSmileAndCbor() throws Exception {
+        String email = UUID.randomUUID() + "@hospital.com";
+        mockMvc.perform(post("/api/v1/patients").with(jwt())
+                .contentType(WireFormat.SMILE_VALUE)
+                .content(smileMapper.writeValueAsBytes(new PatientRequest("Ada", "Lovelace", email))))
+            .andExpect(status().isCreated());
+
+        byte[] body = mockMvc.perform(get("/api/v1/patients/search").param("email", email).with(jwt())
+                .accept(MediaType.APPLICATION_CBOR))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_CBOR_VALUE))
+            .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+            .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode envelope = cborMapper.readTree(body);
+        assertThat(envelope.get("message").asString()).isEqualTo("Patient found");
+        assertThat(envelope.get("data").get("email").asString()).isEqualTo(email);
+    }
+
+    @Test
+    void binaryFormatIsPickedByQuality() {
+        assertThat(WireFormat.fromAccept("application/cbor")).isEqualTo(WireFormat.CBOR);
+        assertThat(WireFormat.fromAccept("application/cbor;q=0.5, application/x-jackson-smile"))
+            .isEqualTo(WireFormat.SMILE);
+        assertThat(WireFormat.fromAccept("application/json")).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.fromAccept("not a media type")).isEqualTo(WireFormat.JSON);
+        assertThat(WireFormat.fromAccept(null)).isEqualTo(WireFormat.JSON);
+    }
+}
@@ -0,0 +1,123 @@
+package com.hospital.demo.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.hospital.demo.dto.PatientRequest;
+import com.hospital.demo.repository.PatientRepository;
+import com.hospital.demo.service.ChunkedLoader;
+import com.hospital.demo.service.PatientService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionOperations;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class LayerTimingTests {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    PatientService patientService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Test
+    void timesServiceAndRepositoryLayersSeparately() {
+        patientService.findAllByIdsMap(List.of(UUID.randomUUID()));
+
+        assertThat(timerCount("service", "PatientService", "findAllByIdsMap")).isEqualTo(1);
+        // Inherited from CrudRepository, still tagged with our repository.
+        assertThat(timerCount("repository", "PatientRepository", "findAllById")).isEqualTo(1);
+    }
+
+    @Test
+    void countsStatementsInsideAScope() {
+        String email = UUID.randomUUID() + "@hospital.com";
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            patientService.createPatient(new PatientRequest("Ada", "Lovelace", email));
+            patientService.findByEmail(email);
+            patientService.findByEmail(email);
+
+            // INSERT + one SELECT; the second lookup is served from the patient cache.
+            assertThat(scope.statements()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void statementsRunByChunkedLoaderHelpersCountAgainstTheScope() {
+        ChunkedLoader loader = new ChunkedLoader(2, 2, 10, 4, TransactionOperations.withoutTransaction());
+        List<UUID> ids = IntStream.range(0, 12).mapToObj(i -> UUID.randomUUID()).toList();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        try (StatementCounter.Scope scope = StatementCounter.open()) {
+            loader.load(ids, chunk -> {
+                threads.add(Thread.currentThread().getName());
+                // Slow enough that the helpers get chunks before the request thread has run them all.
+                pause(20);
+                return patientRepository.findAllById(chunk);
+            });
+
+            assertThat(scope.statements()).isEqualTo(6);
+        } finally {
+            loader.destroy();
+        }
+        assertThat(threads).anyMatch(name -> name.startsWith("report-fetch"));
+    }
+
+    @Test
+    void streamedReportStatementsAreCountedAgainstTheRequest() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/v1/appointments").with(jwt()))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get("http.server.requests.jdbc.statements")
+            .tag("uri", "/api/v1/appointments").summary();
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(statements.totalAmount()).isEqualTo(1.0);
+    }
+
+    @Test
+    void slowCallLogNeverPrintsValues() {
+        String redacted = LayerTimingAspect.redact(new Object[] {"jane@hospital.com", List.of(UUID.randomUUID()), 42, Limit.of(5)});
+
+        assertThat(redacted).doesNotContain("jane").contains("<String>", "(size=1)", "42");
+    }
+
+    private long timerCount(String layer, String owner, String method) {
+        return meterRegistry.get(MethodTimers.METRIC)
+            .tag("layer", layer).tag("class", owner).tag("method", method).tag("outcome", "success")
+            .timer().count();
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
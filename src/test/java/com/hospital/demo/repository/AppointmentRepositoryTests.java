@@ -0,0 +1,183 @@
+package com.hospital.demo.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.model.Patient;
+import jakarta.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "com.hospital.demo.repository.AppointmentRepositoryTests$CapturedSql")
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AppointmentRepositoryTests {
+
+    @Autowired
+    AppointmentRepository appointmentRepo;
+
+    @Autowired
+    PatientRepository patientRepo;
+
+    @Autowired
+    EntityManager entityManager;
+
+    Patient patient;
+
+    @BeforeEach
+    void seed() {
+        // Several appointments share a start time so the id tie-breaker has to do its job.
+        patient = patientRepo.save(Patient.builder()
+            .firstName("Grace")
+            .lastName("Hopper")
+            .email(UUID.randomUUID() + "@hospital.com")
+            .build());
+        LocalDateTime base = LocalDateTime.of(2030, 1, 1, 9, 0);
+        List<Appointment> rows = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            rows.add(Appointment.builder()
+                .patientId(patient.getId())
+                .appointmentTime(base.plusMinutes(i / 4 * 15))
+                .notes("slot " + i)
+                .build());
+        }
+        appointmentRepo.saveAll(rows);
+    }
+
+    @Test
+    void keysetPagesVisitEveryRowOnceInOrder() {
+        List<AppointmentResponse> expected = appointmentRepo.findFirstPageWithPatientName(Limit.of(100));
+
+        List<AppointmentResponse> seen = new ArrayList<>();
+        List<AppointmentResponse> page = appointmentRepo.findFirstPageWithPatientName(Limit.of(7));
+        while (!page.isEmpty()) {
+            seen.addAll(page);
+            AppointmentResponse last = page.get(page.size() - 1);
+            page = appointmentRepo.findPageAfterWithPatientName(last.getStartTime(), last.getId(), Limit.of(7));
+        }
+
+        assertThat(seen).hasSize(25);
+        assertThat(seen).extracting(AppointmentResponse::getId)
+            .containsExactlyElementsOf(expected.stream().map(AppointmentResponse::getId).toList());
+        assertThat(seen).extracting(AppointmentResponse::getPatientFullName).containsOnly("Grace Hopper");
+    }
+
+    @Test
+    void streamReturnsSameOrderAsPages() {
+        List<UUID> paged = appointmentRepo.findFirstPageWithPatientName(Limit.of(100)).stream()
+            .map(AppointmentResponse::getId)
+            .toList();
+
+        try (Stream<AppointmentResponse> rows = appointmentRepo.streamAllWithPatientName()) {
+            assertThat(rows.map(AppointmentResponse::getId).toList()).containsExactlyElementsOf(paged);
+        }
+    }
+
+    @Test
+    void windowAndPatientQueriesSeekWithTheSameCursor() {
+        Patient other = patientRepo.save(Patient.builder()
+            .firstName("Alan")
+            .lastName("Turing")
+            .email(UUID.randomUUID() + "@hospital.com")
+            .build());
+        appointmentRepo.save(Appointment.builder()
+            .patientId(other.getId())
+            .appointmentTime(LocalDateTime.of(2030, 1, 1, 9, 15))
+            .notes("other")
+            .build());
+
+        // 09:15 up to (not including) 10:00: slots 4..15 plus the other patient's, 13 rows.
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 9, 15);
+        LocalDateTime to = LocalDateTime.of(2030, 1, 1, 10, 0);
+        List<AppointmentResponse> first = appointmentRepo.findWindowWithPatientName(from, to, Limit.of(5));
+        AppointmentResponse last = first.get(first.size() - 1);
+        List<AppointmentResponse> rest = appointmentRepo.findWindowAfterWithPatientName(
+            to, last.getStartTime(), last.getId(), Limit.of(100));
+        assertThat(first).hasSize(5);
+        assertThat(rest).hasSize(8);
+        assertThat(rest).allSatisfy(r -> assertThat(r.getStartTime()).isBefore(to));
+
+        List<AppointmentResponse> history = appointmentRepo.findByPatientWithPatientName(other.getId(), Limit.of(100));
+        assertThat(history).extracting(AppointmentResponse::getNotes).containsExactly("other");
+        assertThat(appointmentRepo.findByPatientWithPatientName(patient.getId(), Limit.of(100))).hasSize(25);
+    }
+
+    // EXPLAIN the SQL Hibernate actually sends (captured by CapturedSql), bound to the same values as the call.
+    @Test
+    void windowAndPatientQueriesUseTheCompositeIndexes() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 9, 0);
+        LocalDateTime to = LocalDateTime.of(2030, 1, 2, 0, 0);
+        LocalDateTime cursorTime = LocalDateTime.of(2030, 1, 1, 9, 15);
+        UUID cursorId = UUID.randomUUID();
+
+        String window = explain(
+            sqlOf(() -> appointmentRepo.findWindowWithPatientName(from, to, Limit.of(100))),
+            from, to, 100);
+        String windowAfter = explain(
+            sqlOf(() -> appointmentRepo.findWindowAfterWithPatientName(to, cursorTime, cursorId, Limit.of(100))),
+            to, cursorTime, cursorId, 100);
+        String history = explain(
+            sqlOf(() -> appointmentRepo.findByPatientWithPatientName(patient.getId(), Limit.of(100))),
+            patient.getId(), 100);
+        String historyAfter = explain(
+            sqlOf(() -> appointmentRepo.findByPatientAfterWithPatientName(patient.getId(), cursorTime, cursorId,
+                Limit.of(100))),
+            patient.getId(), cursorTime, cursorId, 100);
+
+        assertThat(window).containsIgnoringCase("idx_appointment_time_id");
+        assertThat(windowAfter).containsIgnoringCase("idx_appointment_time_id");
+        assertThat(history).containsIgnoringCase("idx_appointment_patient_time");
+        assertThat(historyAfter).containsIgnoringCase("idx_appointment_patient_time");
+    }
+
+    private String sqlOf(Runnable query) {
+        // Flush the seeded inserts first so the only statement captured is the query's.
+        entityManager.flush();
+        CapturedSql.STATEMENTS.clear();
+        query.run();
+        assertThat(CapturedSql.STATEMENTS).hasSize(1);
+        return CapturedSql.STATEMENTS.get(0);
+    }
+
+    private String explain(String sql, Object... params) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    explain.setObject(i + 1, params[i]);
+                }
+                try (ResultSet plan = explain.executeQuery()) {
+                    plan.next();
+                    return plan.getString(1);
+                }
+            }
+        });
+    }
+
+    public static class CapturedSql implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.hospital.demo.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hospital.demo.dto.PatientNameMatch;
+import com.hospital.demo.model.Patient;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NameIndexTests {
+
+    NameIndex index = new NameIndex();
+    Patient john = patient("John", "Smith");
+    Patient joan = patient("Joan", "Smithers");
+    Patient jose = patient("José", "O'Brien");
+    Patient mary = patient("Mary", "Johnson");
+
+    @BeforeEach
+    void fill() {
+        List.of(john, joan, jose, mary).forEach(index::add);
+    }
+
+    @Test
+    void prefixMatchesRankExactWordsFirst() {
+        assertThat(ids(index.search("smith", 10))).containsExactly(john.getId(), joan.getId());
+        assertThat(ids(index.search("jo", 10))).containsExactlyInAnyOrder(
+            john.getId(), joan.getId(), jose.getId(), mary.getId());
+        assertThat(ids(index.search("jo", 2))).hasSize(2);
+    }
+
+    @Test
+    void everyQueryWordHasToMatch() {
+        assertThat(ids(index.search("jo smi", 10))).containsExactly(john.getId(), joan.getId());
+        assertThat(ids(index.search("Smith, John", 10))).containsExactly(john.getId());
+        assertThat(index.search("john zzz", 10)).isEmpty();
+    }
+
+    @Test
+    void toleratesTyposAccentsAndPunctuation() {
+        assertThat(ids(index.search("smiht", 10))).first().isEqualTo(john.getId());
+        assertThat(ids(index.search("johnn", 10))).first().isEqualTo(john.getId());
+        assertThat(ids(index.search("jose obrien", 10))).containsExactly(jose.getId());
+        assertThat(ids(index.search("o'bri", 10))).containsExactly(jose.getId());
+        assertThat(ids(index.search("JOSE", 10))).containsExactly(jose.getId());
+        assertThat(ids(index.search(john.getEmail().substring(0, 8), 10))).containsExactly(john.getId());
+    }
+
+    @Test
+    void removedAndRenamedPatientsStopMatching() {
+        index.remove(joan.getId());
+        john.setLastName("Doe");
+        index.add(john);
+
+        assertThat(index.search("smith", 10)).isEmpty();
+        assertThat(ids(index.search("doe", 10))).containsExactly(john.getId());
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    @Test
+    void trigramsOfTokensNoPatientHasAnyMoreAreDropped() {
+        int before = index.trigramPostings();
+        john.setLastName("Smithers");
+        index.add(john);
+        assertThat(index.trigramPostings()).isLessThan(before);
+
+        List.of(john, joan, jose, mary).forEach(p -> index.remove(p.getId()));
+        assertThat(index.trigramPostings()).isZero();
+    }
+
+    @Test
+    void candidatesMatchEveryWordBeforeTheCapApplies() {
+        for (int i = 0; i < 10 * NameIndex.MAX_CANDIDATES; i++) {
+            index.add(patient("Bob", "Smithson"));
+        }
+        Patient ann = patient("Ann", "Smithson");
+        index.add(ann);
+
+        assertThat(ids(index.search("smithson ann", 10))).containsExactly(ann.getId());
+    }
+
+    private static List<UUID> ids(List<PatientNameMatch> matches) {
+        return matches.stream().map(PatientNameMatch::getId).toList();
+    }
+
+    private static Patient patient(String first, String last) {
+        UUID id = UUID.randomUUID();
+        return new Patient(id, first, last, id + "@hospital.com");
+    }
+}
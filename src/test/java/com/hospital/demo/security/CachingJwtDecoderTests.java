@@ -0,0 +1,140 @@
+package com.hospital.demo.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.util.Resource;
+import com.nimbusds.jose.util.ResourceRetriever;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+class CachingJwtDecoderTests {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RSAKey signingKey;
+    LocalJwks jwks;
+
+    @BeforeEach
+    void setUp() throws JOSEException {
+        signingKey = new RSAKeyGenerator(2048).keyID("test-key").generate();
+        jwks = new LocalJwks(new JWKSet(signingKey.toPublicJWK()).toString());
+    }
+
+    @Test
+    void verifiesEachTokenOnceAndFetchesKeysOnce() throws Exception {
+        CachingJwtDecoder decoder = decoder(Duration.ofMinutes(15));
+        String token = sign(signingKey, Instant.now().plusSeconds(300));
+
+        Jwt first = decoder.decode(token);
+        Jwt second = decoder.decode(token);
+        decoder.decode(sign(signingKey, Instant.now().plusSeconds(300)));
+
+        assertThat(second).isSameAs(first);
+        assertThat(jwks.fetches.get()).isEqualTo(1);
+        assertThat(registry.get("security.jwt.verify").tag("outcome", "success").timer().count()).isEqualTo(2);
+        assertThat(registry.get("cache.gets").tag("cache", "security.jwt").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void forgedTokensAreRejectedEveryTime() throws Exception {
+        CachingJwtDecoder decoder = decoder(Duration.ofMinutes(15));
+        RSAKey attacker = new RSAKeyGenerator(2048).keyID("test-key").generate();
+        String forged = sign(attacker, Instant.now().plusSeconds(300));
+
+        assertThatThrownBy(() -> decoder.decode(forged)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> decoder.decode(forged)).isInstanceOf(JwtException.class);
+
+        assertThat(registry.get("security.jwt.verify").tag("outcome", "failure").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    void keepsServingCachedKeysWhileJwksEndpointIsDown() throws Exception {
+        CachingJwtDecoder decoder = decoder(Duration.ofMillis(300));
+        decoder.decode(sign(signingKey, Instant.now().plusSeconds(300)));
+
+        jwks.down.set(true);
+        Thread.sleep(400);
+
+        Jwt jwt = decoder.decode(sign(signingKey, Instant.now().plusSeconds(300)));
+        assertThat(jwt.getSubject()).isEqualTo("nurse");
+        assertThat(jwks.fetches.get()).isGreaterThan(1);
+    }
+
+    @Test
+    void cachedEntryNeverOutlivesTokenExpiry() {
+        Instant now = Instant.parse("2026-01-01T00:00:00Z");
+        Duration max = Duration.ofMinutes(5);
+
+        assertThat(CachingJwtDecoder.ttl(jwt(now.plusSeconds(30)), now, max)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(CachingJwtDecoder.ttl(jwt(now.plusSeconds(3600)), now, max)).isEqualTo(max);
+        assertThat(CachingJwtDecoder.ttl(jwt(now.minusSeconds(1)), now, max)).isZero();
+    }
+
+    private CachingJwtDecoder decoder(Duration jwksTtl) {
+        NimbusJwtDecoder nimbus = NimbusJwtDecoder.withJwkSource(RefreshingJwkSource.create(
+            "http://localhost/certs", jwks, jwksTtl, Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMinutes(10))).build();
+        return new CachingJwtDecoder(nimbus, registry, 100, Duration.ofMinutes(5), Clock.systemUTC());
+    }
+
+    private static String sign(RSAKey key, Instant expiresAt) throws JOSEException {
+        SignedJWT jwt = new SignedJWT(
+            new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+            new JWTClaimsSet.Builder()
+                .subject("nurse")
+                .jwtID(UUID.randomUUID().toString())
+                .issueTime(new Date())
+                .expirationTime(Date.from(expiresAt))
+                .build());
+        jwt.sign(new RSASSASigner(key));
+        return jwt.serialize();
+    }
+
+    private static Jwt jwt(Instant expiresAt) {
+        return Jwt.withTokenValue("t").header("alg", "RS256").subject("nurse")
+            .issuedAt(expiresAt.minusSeconds(7200)).expiresAt(expiresAt).build();
+    }
+
+    // Stands in for Keycloak's certs endpoint.
+    static class LocalJwks implements ResourceRetriever {
+
+        final String body;
+        final AtomicInteger fetches = new AtomicInteger();
+        final AtomicBoolean down = new AtomicBoolean();
+
+        LocalJwks(String body) {
+            this.body = body;
+        }
+
+        @Override
+        public Resource retrieveResource(URL url) throws IOException {
+            fetches.incrementAndGet();
+            if (down.get()) {
+                throw new IOException("connection refused");
+            }
+            return new Resource(body, "application/json");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.hospital.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.util.UuidMap;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class AppointmentServiceTests {
+
+    @Test
+    void distinctPatientIdsKeepsFirstSeenOrder() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID sameAsA = new UUID(a.getMostSignificantBits(), a.getLeastSignificantBits());
+        List<Appointment> rows = List.of(appt(b), appt(a), appt(b), appt(null), appt(sameAsA));
+
+        UuidMap<String> seen = new UuidMap<>(rows.size());
+        assertThat(AppointmentService.distinctPatientIds(rows, seen)).containsExactly(b, a);
+        assertThat(seen.size()).isEqualTo(2);
+        assertThat(seen.get(a)).isNull();
+    }
+
+    private static Appointment appt(UUID patientId) {
+        return Appointment.builder().id(UUID.randomUUID()).patientId(patientId).build();
+    }
+}
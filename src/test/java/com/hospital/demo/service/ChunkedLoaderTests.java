@@ -0,0 +1,116 @@
+package com.hospital.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+class ChunkedLoaderTests {
+
+    static final TransactionOperations NO_TX = TransactionOperations.withoutTransaction();
+
+    @Test
+    void splitsIntoBoundedChunks() {
+        ChunkedLoader loader = new ChunkedLoader(100, 3, 10, 4, NO_TX);
+        List<Integer> keys = IntStream.range(0, 1050).boxed().toList();
+        List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+
+        List<String> rows = loader.load(keys, chunk -> {
+            chunkSizes.add(chunk.size());
+            return chunk.stream().map(k -> "row-" + k).toList();
+        });
+
+        assertThat(rows).containsExactlyInAnyOrderElementsOf(keys.stream().map(k -> "row-" + k).toList());
+        assertThat(chunkSizes).hasSize(11).allMatch(size -> size <= 100);
+        loader.destroy();
+    }
+
+    @Test
+    void requestThreadRetriesWhatAHelperDroppedAndReportsItsOwnFailures() {
+        ChunkedLoader loader = new ChunkedLoader(10, 2, 10, 4, NO_TX);
+        Thread caller = Thread.currentThread();
+        List<Integer> keys = IntStream.range(0, 100).boxed().toList();
+
+        // Helpers can't get a connection: the request thread ends up doing everything.
+        List<Integer> rows = loader.load(keys, chunk -> {
+            if (Thread.currentThread() != caller) {
+                throw new IllegalStateException("Connection is not available");
+            }
+            return chunk;
+        });
+        assertThat(rows).containsExactlyInAnyOrderElementsOf(keys);
+
+        // A chunk that fails everywhere fails the load on the request thread.
+        assertThatThrownBy(() -> loader.load(keys, chunk -> {
+            throw new IllegalStateException("boom");
+        })).hasMessage("boom");
+        loader.destroy();
+    }
+
+    @Test
+    void helpersOnlyGetTheConnectionsThePermitsLeaveOver() {
+        assertThat(new ChunkedLoader(100, 0, 10, 8, NO_TX).parallelism()).isEqualTo(2);
+        assertThat(new ChunkedLoader(100, 5, 10, 8, NO_TX).parallelism()).isEqualTo(2);
+        assertThat(new ChunkedLoader(100, 0, 20, 8, NO_TX).parallelism()).isEqualTo(10);
+
+        ChunkedLoader none = new ChunkedLoader(10, 0, 10, 10, NO_TX);
+        assertThat(none.parallelism()).isZero();
+        Thread caller = Thread.currentThread();
+        List<Integer> keys = IntStream.range(0, 100).boxed().toList();
+        assertThat(none.load(keys, chunk -> {
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            return chunk;
+        })).containsExactlyInAnyOrderElementsOf(keys);
+        none.destroy();
+    }
+
+    @Test
+    void helpersStillWaitingForAConnectionAreLeftBehind() {
+        CountDownLatch waiting = new CountDownLatch(2);
+        AtomicInteger interrupted = new AtomicInteger();
+        // The pool is exhausted: opening the helpers' transaction blocks until they're interrupted.
+        TransactionOperations exhausted = new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                waiting.countDown();
+                try {
+                    Thread.sleep(Duration.ofMinutes(1));
+                } catch (InterruptedException ex) {
+                    interrupted.incrementAndGet();
+                    throw new CannotCreateTransactionException("Interrupted during connection acquisition", ex);
+                }
+                return action.doInTransaction(null);
+            }
+        };
+        ChunkedLoader loader = new ChunkedLoader(10, 2, 10, 4, exhausted);
+        List<Integer> keys = IntStream.range(0, 100).boxed().toList();
+
+        long started = System.nanoTime();
+        assertThat(loader.load(keys, chunk -> {
+            await(() -> waiting.getCount() == 0);
+            return chunk;
+        })).containsExactlyInAnyOrderElementsOf(keys);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+        await(() -> interrupted.get() == 2);
+        loader.destroy();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,135 @@
+package com.hospital.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.hospital.demo.config.LowercaseEmailMigration;
+import com.hospital.demo.dto.BulkRegistrationResponse;
+import com.hospital.demo.dto.BulkRegistrationResult.Status;
+import com.hospital.demo.dto.PatientBatchLookupRequest;
+import com.hospital.demo.dto.PatientBatchLookupResponse;
+import com.hospital.demo.dto.PatientNameMatch;
+import com.hospital.demo.dto.PatientRequest;
+import com.hospital.demo.dto.PatientResponse;
+import com.hospital.demo.exception.BadRequestException;
+import com.hospital.demo.exception.ResourceNotFoundException;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PatientServiceTests {
+
+    @Autowired
+    PatientService patientService;
+
+    @Autowired
+    LowercaseEmailMigration lowercaseEmailMigration;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void negativeCacheEntryIsDroppedWhenPatientRegisters() {
+        String email = UUID.randomUUID() + "@hospital.com";
+
+        // First lookup caches the miss.
+        assertThatThrownBy(() -> patientService.findByEmail(email)).isInstanceOf(ResourceNotFoundException.class);
+
+        patientService.createPatient(new PatientRequest("Ada", "Lovelace", email.toUpperCase()));
+
+        PatientResponse found = patientService.findByEmail(email);
+        assertThat(found.firstName()).isEqualTo("Ada");
+        assertThat(patientService.findAllByIdsMap(List.of(found.id()))).containsKey(found.id());
+    }
+
+    @Test
+    void deletedPatientIsNotServedFromCache() {
+        String email = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Alan", "Turing", email));
+        PatientResponse cached = patientService.findByEmail(email);
+        patientService.findById(cached.id().toString());
+
+        patientService.deletePatientByEmail(email);
+
+        assertThatThrownBy(() -> patientService.findByEmail(email)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> patientService.findById(cached.id().toString()))
+            .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void bulkRegisterReportsPerItemStatusAndLookupFindsTheRows() {
+        String existing = UUID.randomUUID() + "@hospital.com";
+        String fresh = UUID.randomUUID() + "@hospital.com";
+        patientService.createPatient(new PatientRequest("Grace", "Hopper", existing));
+        // Cache a miss for the fresh email so the bulk insert has to evict it.
+        assertThatThrownBy(() -> patientService.findByEmail(fresh)).isInstanceOf(ResourceNotFoundException.class);
+
+        BulkRegistrationResponse response = patientService.bulkRegister(List.of(
+            new PatientRequest("Edsger", "Dijkstra", fresh),
+            new PatientRequest("Edsger", "Dijkstra", fresh.toUpperCase()),
+            new PatientRequest("Grace", "Hopper", existing),
+            new PatientRequest("", "NoFirstName", "not-an-email")
+        ));
+
+        assertThat(response.getCreated()).isEqualTo(1);
+        assertThat(response.getDuplicates()).isEqualTo(2);
+        assertThat(response.getInvalid()).isEqualTo(1);
+        assertThat(response.getResults()).extracting(r -> r.getStatus())
+            .containsExactly(Status.CREATED, Status.DUPLICATE, Status.DUPLICATE, Status.INVALID);
+        assertThat(response.getResults().get(3).getErrors()).isNotEmpty();
+
+        UUID createdId = response.getResults().get(0).getId();
+        PatientBatchLookupResponse lookup = patientService.batchLookup(PatientBatchLookupRequest.builder()
+            .emails(List.of(fresh, "nobody-" + fresh))
+            .ids(List.of(createdId.toString()))
+            .build());
+
+        assertThat(lookup.getFound()).extracting(PatientResponse::id).containsExactly(createdId);
+        assertThat(lookup.getMissing()).containsExactly("nobody-" + fresh);
+    }
+
+    @Test
+    void nameSearchFollowsRegistrationsAndDeletes() {
+        String email = UUID.randomUUID() + "@hospital.com";
+        String lastName = "Zwicky" + UUID.randomUUID().toString().substring(0, 8).replaceAll("[0-9-]", "q");
+        patientService.createPatient(new PatientRequest("Fritz", lastName, email));
+
+        assertThat(patientService.searchByName("fritz " + lastName.substring(0, 6), 10))
+            .extracting(PatientNameMatch::getEmail)
+            .contains(email);
+
+        patientService.deletePatientByEmail(email);
+
+        assertThat(patientService.searchByName(lastName, 10)).extracting(PatientNameMatch::getEmail)
+            .doesNotContain(email);
+        assertThatThrownBy(() -> patientService.searchByName("  ", 10)).isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void mixedCaseEmailsFromBeforeNormalizationAreLowerCasedAndFound() {
+        String email = UUID.randomUUID() + "@hospital.com";
+        String clash = UUID.randomUUID().toString();
+        insertRaw("Mary", "Shelley", email.toUpperCase());
+        // Two spellings of one address: neither can be lower-cased without breaking the unique constraint.
+        insertRaw("Percy", "Shelley", clash + "@Hospital.com");
+        insertRaw("Percy", "Shelley", clash + "@HOSPITAL.COM");
+
+        lowercaseEmailMigration.migrate();
+
+        assertThat(patientService.findByEmail(email.toUpperCase()).firstName()).isEqualTo("Mary");
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM patients WHERE email <> lower(email) AND lower(email) = ?", Long.class,
+            clash + "@hospital.com"))
+            .isEqualTo(2);
+    }
+
+    private void insertRaw(String firstName, String lastName, String email) {
+        jdbc.update("INSERT INTO patients (id, first_name, last_name, email) VALUES (?, ?, ?, ?)",
+            UUID.randomUUID(), firstName, lastName, email);
+    }
+}
@@ -0,0 +1,155 @@
+package com.hospital.demo.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.reset;
+
+import com.hospital.demo.dto.AppointmentCountBucket;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.model.Patient;
+import com.hospital.demo.repository.AppointmentRepository;
+import com.hospital.demo.repository.PatientRepository;
+import com.hospital.demo.stats.AppointmentRollup.Granularity;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AppointmentRollupTests {
+
+    // Far enough out that nothing else in the suite books into these buckets.
+    static final LocalDateTime DAY = LocalDateTime.of(2041, 3, 14, 0, 0);
+
+    @Autowired
+    AppointmentRollup rollup;
+
+    // A spy so a test can commit a write in the middle of a rebuild's scans.
+    @MockitoSpyBean
+    AppointmentRepository appointmentRepo;
+
+    @Autowired
+    PatientRepository patientRepo;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Autowired
+    TransactionTemplate tx;
+
+    Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        patient = patientRepo.save(Patient.builder()
+            .firstName("Ada")
+            .lastName("Lovelace")
+            .email(UUID.randomUUID() + "@hospital.com")
+            .build());
+        rollup.reconcile();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM appointments WHERE patient_id = ?", patient.getId());
+        patientRepo.delete(patient);
+        rollup.reconcile();
+    }
+
+    @Test
+    void committedWritesMoveTheCountsWithoutARebuild() {
+        Appointment morning = book(DAY.plusHours(9).plusMinutes(15));
+        book(DAY.plusHours(9).plusMinutes(45));
+        book(DAY.plusDays(1).plusHours(14));
+
+        assertThat(rollup.buckets(Granularity.HOUR, DAY, DAY.plusDays(2))).containsExactly(
+            new AppointmentCountBucket(DAY.plusHours(9), 2),
+            new AppointmentCountBucket(DAY.plusDays(1).plusHours(14), 1));
+        assertThat(rollup.buckets(Granularity.DAY, DAY, DAY.plusDays(2))).containsExactly(
+            new AppointmentCountBucket(DAY, 2),
+            new AppointmentCountBucket(DAY.plusDays(1), 1));
+        assertThat(rollup.forPatient(patient.getId())).isEqualTo(3);
+
+        morning.setAppointmentTime(DAY.plusDays(1).plusHours(14).plusMinutes(30));
+        appointmentRepo.save(morning);
+        assertThat(rollup.buckets(Granularity.DAY, DAY, DAY.plusDays(2))).containsExactly(
+            new AppointmentCountBucket(DAY, 1),
+            new AppointmentCountBucket(DAY.plusDays(1), 2));
+
+        appointmentRepo.delete(morning);
+        assertThat(rollup.buckets(Granularity.DAY, DAY, DAY.plusDays(2))).containsExactly(
+            new AppointmentCountBucket(DAY, 1),
+            new AppointmentCountBucket(DAY.plusDays(1), 1));
+        assertThat(rollup.forPatient(patient.getId())).isEqualTo(2);
+    }
+
+    @Test
+    void rolledBackWritesAreNotCounted() {
+        tx.executeWithoutResult(status -> {
+            appointmentRepo.saveAndFlush(appointment(DAY.plusHours(10)));
+            status.setRollbackOnly();
+        });
+
+        assertThat(rollup.buckets(Granularity.HOUR, DAY, DAY.plusDays(1))).isEmpty();
+        assertThat(rollup.forPatient(patient.getId())).isZero();
+    }
+
+    @Test
+    void reconcilePicksUpRowsWrittenBehindHibernatesBack() {
+        jdbc.update("INSERT INTO appointments (id, patient_id, appointment_time, notes) VALUES (?, ?, ?, ?)",
+            UUID.randomUUID(), patient.getId(), DAY.plusHours(8), "copied in");
+        assertThat(rollup.forPatient(patient.getId())).isZero();
+
+        rollup.reconcile();
+
+        assertThat(rollup.buckets(Granularity.HOUR, DAY.plusHours(7).plusMinutes(30), DAY.plusHours(8).plusMinutes(1)))
+            .containsExactly(new AppointmentCountBucket(DAY.plusHours(8), 1));
+        assertThat(rollup.forPatient(patient.getId())).isEqualTo(1);
+        assertThat(rollup.reconciledAt()).isNotNull();
+    }
+
+    @Test
+    void writesCommittedDuringARebuildSurviveTheSwap() {
+        // The spy wraps a JDK proxy, so the real call goes through the spy's delegating default answer.
+        Answer<?> real = mockingDetails(appointmentRepo).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            Object counted = real.answer(invocation);
+            // Another thread, so the write commits on its own while the rebuild's transaction is still open.
+            CompletableFuture.runAsync(() -> book(DAY.plusHours(11))).join();
+            return counted;
+        }).when(appointmentRepo).countByPatient();
+
+        try {
+            rollup.reconcile();
+        } finally {
+            reset(appointmentRepo);
+        }
+
+        assertThat(rollup.buckets(Granularity.HOUR, DAY, DAY.plusDays(1)))
+            .containsExactly(new AppointmentCountBucket(DAY.plusHours(11), 1));
+        assertThat(rollup.forPatient(patient.getId())).isEqualTo(1);
+    }
+
+    private Appointment book(LocalDateTime time) {
+        return appointmentRepo.save(appointment(time));
+    }
+
+    private Appointment appointment(LocalDateTime time) {
+        return Appointment.builder()
+            .patientId(patient.getId())
+            .appointmentTime(time)
+            .notes("check-up")
+            .build();
+    }
+}
@@ -0,0 +1,149 @@
+package com.hospital.demo.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.hospital.demo.dto.AppointmentCursor;
+import com.hospital.demo.dto.AppointmentResponse;
+import com.hospital.demo.model.Appointment;
+import com.hospital.demo.model.Patient;
+import com.hospital.demo.repository.AppointmentRepository;
+import com.hospital.demo.repository.PatientRepository;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tools.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = "hospital.report.snapshot.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AppointmentSnapshotTests {
+
+    // Far enough out that nothing else in the suite books into this window.
+    static final LocalDateTime DAY = LocalDateTime.of(2043, 5, 6, 0, 0);
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    AppointmentSnapshot snapshot;
+
+    @Autowired
+    AppointmentRepository appointmentRepo;
+
+    @Autowired
+    PatientRepository patientRepo;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // The first build runs in the background once the context is ready.
+    @BeforeEach
+    void awaitFirstBuild() throws InterruptedException {
+        awaitTrue(snapshot::isServing);
+    }
+
+    @Test
+    void followsCommittedWritesAndAnswersLikeTheDatabase() throws Exception {
+        Patient ada = patient("Ada", "Lovelace");
+        Patient grace = patient("Grace", "Hopper");
+        Appointment checkup = book(ada, DAY.plusHours(9).plusNanos(123_456_000), "Checkup");
+        Appointment early = book(grace, DAY.plusHours(9), "Checkup");
+        Appointment labs = book(ada, DAY.plusDays(1).plusHours(14).plusNanos(500_000_000), null);
+
+        awaitTrue(() -> window().size() == 3);
+        assertThat(window()).extracting(AppointmentResponse::getId)
+            .containsExactly(early.getId(), checkup.getId(), labs.getId());
+        assertThat(window()).containsExactlyElementsOf(
+            appointmentRepo.findWindowWithPatientName(DAY, DAY.plusDays(2), Limit.of(10)));
+        assertThat(snapshot.window(DAY, DAY.plusDays(2),
+            new AppointmentCursor(early.getAppointmentTime(), early.getId()), 10))
+            .extracting(AppointmentResponse::getId).containsExactly(checkup.getId(), labs.getId());
+        assertThat(snapshot.forPatient(ada.getId(), null, 10)).containsExactlyElementsOf(
+            appointmentRepo.findByPatientWithPatientName(ada.getId(), Limit.of(10)));
+
+        // Moved, renamed, cancelled and a deleted patient: each one lands as a new version, no rebuild.
+        labs.setAppointmentTime(DAY.plusHours(8));
+        appointmentRepo.save(labs);
+        ada.setLastName("King");
+        patientRepo.save(ada);
+        appointmentRepo.delete(checkup);
+        patientRepo.delete(grace);
+
+        awaitTrue(() -> window().size() == 1 && window().getFirst().getPatientFullName().equals("Ada King"));
+        assertThat(window()).containsExactlyElementsOf(
+            appointmentRepo.findWindowWithPatientName(DAY, DAY.plusDays(2), Limit.of(10)));
+        assertThat(window().getFirst().getStartTime()).isEqualTo(DAY.plusHours(8));
+        assertThat(snapshot.forPatient(grace.getId(), null, 10)).isEmpty();
+
+        // A rebuild from the database agrees with what the changes built.
+        List<AppointmentResponse> incremental = window();
+        snapshot.rebuild();
+        assertThat(window()).isEqualTo(incremental);
+    }
+
+    @Test
+    void reportIsWrittenFromTheColumnsAndTaggedWithTheSnapshotVersion() throws Exception {
+        Patient alan = patient("Alan", "Turing");
+        book(alan, DAY.plusDays(3).plusHours(10).plusNanos(5_000), "x\ny");
+        book(alan, DAY.plusDays(3).plusHours(11), null);
+        awaitTrue(() -> snapshot.forPatient(alan.getId(), null, 10).size() == 2);
+
+        MvcResult started = mockMvc.perform(get("/api/v1/appointments").with(jwt())).andReturn();
+        MvcResult report = mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+        String etag = report.getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).startsWith("W/\"s-");
+
+        // Byte for byte what the DTO path writes for the same rows.
+        List<AppointmentResponse> expected = appointmentRepo.findFirstPageWithPatientName(Limit.of(1000));
+        assertThat(objectMapper.readTree(report.getResponse().getContentAsString()).get("data").toString())
+            .isEqualTo(objectMapper.writeValueAsString(expected));
+
+        mockMvc.perform(get("/api/v1/appointments").header(HttpHeaders.IF_NONE_MATCH, etag).with(jwt()))
+            .andExpect(status().isNotModified());
+        assertThat(snapshot.footprintBytes()).isPositive();
+    }
+
+    private List<AppointmentResponse> window() {
+        return snapshot.window(DAY, DAY.plusDays(2), null, 10);
+    }
+
+    private Patient patient(String firstName, String lastName) {
+        return patientRepo.save(Patient.builder()
+            .firstName(firstName)
+            .lastName(lastName)
+            .email(UUID.randomUUID() + "@hospital.com")
+            .build());
+    }
+
+    private Appointment book(Patient patient, LocalDateTime time, String notes) {
+        return appointmentRepo.save(Appointment.builder()
+            .patientId(patient.getId())
+            .appointmentTime(time)
+            .notes(notes)
+            .build());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
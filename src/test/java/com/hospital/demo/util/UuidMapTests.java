@@ -0,0 +1,55 @@
+package com.hospital.demo.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class UuidMapTests {
+
+    @Test
+    void behavesLikeAHashMapThroughGrowth() {
+        Random random = new Random(42);
+        UuidMap<Integer> map = new UuidMap<>(4);
+        Map<UUID, Integer> reference = new HashMap<>();
+        List<UUID> keys = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Half of them time-ordered-ish (shared high bits), half random.
+            UUID key = i % 2 == 0 ? new UUID(0x0190_0000_0000_7000L + i, random.nextLong()) : UUID.randomUUID();
+            keys.add(key);
+            assertThat(map.put(key, i)).isEqualTo(reference.put(key, i));
+        }
+        assertThat(map.put(keys.get(7), -7)).isEqualTo(reference.put(keys.get(7), -7));
+        assertThat(map.putIfAbsent(keys.get(8), -8)).isEqualTo(8);
+
+        assertThat(map.size()).isEqualTo(reference.size());
+        for (UUID key : keys) {
+            assertThat(map.get(key)).isEqualTo(reference.get(key));
+        }
+        assertThat(map.get(UUID.randomUUID())).isNull();
+        assertThatThrownBy(() -> map.put(UUID.randomUUID(), null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void keysAddedWithoutAValueReadAsAbsentUntilOneIsPut() {
+        UUID a = UUID.randomUUID();
+        UUID sameAsA = new UUID(a.getMostSignificantBits(), a.getLeastSignificantBits());
+        UuidMap<String> seen = new UuidMap<>(4);
+        assertThat(seen.add(a)).isTrue();
+        assertThat(seen.add(sameAsA)).isFalse();
+
+        assertThat(seen.size()).isEqualTo(1);
+        assertThat(seen.get(a)).isNull();
+        assertThat(seen.putIfAbsent(a, "a")).isNull();
+        assertThat(seen.putIfAbsent(sameAsA, "again")).isEqualTo("a");
+        assertThat(seen.add(a)).isFalse();
+        assertThat(seen.get(sameAsA)).isEqualTo("a");
+        assertThat(seen.size()).isEqualTo(1);
+    }
+}
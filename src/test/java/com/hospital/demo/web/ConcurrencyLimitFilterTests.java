@@ -0,0 +1,91 @@
+package com.hospital.demo.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import tools.jackson.databind.json.JsonMapper;
+
+class ConcurrencyLimitFilterTests {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(
+        registry, JsonMapper.builder().build(), 1, 0, Duration.ofMillis(50));
+
+    @Test
+    void shedsWith503WhenAllPermitsAreTakenAndQueueIsFull() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                filter.doFilter(apiRequest(), new MockHttpServletResponse(), (req, res) -> {
+                    entered.countDown();
+                    await(finish);
+                });
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        holder.start();
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(apiRequest(), rejected, new MockFilterChain());
+
+        assertThat(rejected.getStatus()).isEqualTo(503);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(registry.get("http.limiter.in-flight").gauge().value()).isEqualTo(1.0);
+        assertThat(registry.get("http.limiter.rejected").tag("reason", "queue_full").counter().count()).isEqualTo(1.0);
+
+        finish.countDown();
+        holder.join();
+
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        filter.doFilter(apiRequest(), accepted, new MockFilterChain());
+        assertThat(accepted.getStatus()).isEqualTo(200);
+        assertThat(registry.get("http.limiter.in-flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void leavesNonApiTrafficAlone() throws Exception {
+        ConcurrencyLimitFilter closed = new ConcurrencyLimitFilter(
+            new SimpleMeterRegistry(), JsonMapper.builder().build(), 0, 0, Duration.ZERO);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        closed.doFilter(new MockHttpServletRequest("GET", "/actuator/prometheus"), response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void leavesBookingsToTheIngestQueue() throws Exception {
+        ConcurrencyLimitFilter closed = new ConcurrencyLimitFilter(
+            new SimpleMeterRegistry(), JsonMapper.builder().build(), 0, 0, Duration.ZERO);
+        MockHttpServletResponse booking = new MockHttpServletResponse();
+        MockHttpServletResponse read = new MockHttpServletResponse();
+
+        closed.doFilter(new MockHttpServletRequest("POST", StreamingEndpoints.BOOKINGS), booking, new MockFilterChain());
+        closed.doFilter(new MockHttpServletRequest("GET", StreamingEndpoints.BOOKINGS), read, new MockFilterChain());
+
+        assertThat(booking.getStatus()).isEqualTo(200);
+        assertThat(read.getStatus()).isEqualTo(503);
+    }
+
+    private static MockHttpServletRequest apiRequest() {
+        return new MockHttpServletRequest("GET", "/api/v1/patients/search");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.hospital.demo.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.luben.zstd.Zstd;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+class ZstdCompressionFilterTests {
+
+    ZstdCompressionFilter filter = new ZstdCompressionFilter(true, 3, DataSize.ofKilobytes(2),
+        List.of("application/json", "application/cbor"));
+
+    @Test
+    void compressesLargeBodiesWrittenInPieces() throws Exception {
+        String row = "{\"id\":\"7c0e5f3a\",\"patientFullName\":\"Ada Lovelace\",\"notes\":\"Checkup\"},";
+        String body = row.repeat(500);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("gzip, deflate, zstd"), response, (req, res) -> {
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            for (int i = 0; i < 500; i++) {
+                res.getOutputStream().write(row.getBytes(StandardCharsets.UTF_8));
+                if (i % 100 == 99) {
+                    // Like StreamingJsonWriter's per-chunk flush.
+                    res.getOutputStream().flush();
+                }
+            }
+        });
+
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("zstd");
+        assertThat(response.getHeaders(HttpHeaders.VARY)).contains(HttpHeaders.ACCEPT_ENCODING);
+        byte[] compressed = response.getContentAsByteArray();
+        assertThat(compressed.length).isLessThan(body.length() / 10);
+        byte[] restored = Zstd.decompress(compressed, body.length());
+        assertThat(new String(restored, StandardCharsets.UTF_8)).isEqualTo(body);
+    }
+
+    @Test
+    void leavesSmallAndUnlistedBodiesAlone() throws Exception {
+        MockHttpServletResponse small = new MockHttpServletResponse();
+        filter.doFilter(request("zstd"), small, (req, res) -> {
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            res.getWriter().write("{\"status\":200}");
+        });
+        assertThat(small.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(small.getContentAsString()).isEqualTo("{\"status\":200}");
+        assertThat(small.getContentLength()).isEqualTo(14);
+
+        MockHttpServletResponse png = new MockHttpServletResponse();
+        filter.doFilter(request("zstd"), png, (req, res) -> {
+            res.setContentType(MediaType.IMAGE_PNG_VALUE);
+            res.getOutputStream().write(new byte[8192]);
+        });
+        assertThat(png.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(png.getContentAsByteArray()).hasSize(8192);
+
+        // Held back, then passed through: the first piece isn't the whole body, so it mustn't become the length.
+        MockHttpServletResponse pieces = new MockHttpServletResponse();
+        filter.doFilter(request("zstd"), pieces, (req, res) -> {
+            res.setContentType(MediaType.IMAGE_PNG_VALUE);
+            res.getOutputStream().write(new byte[100]);
+            res.getOutputStream().write(new byte[8192]);
+        });
+        assertThat(pieces.getHeader(HttpHeaders.CONTENT_LENGTH)).isNull();
+        assertThat(pieces.getContentAsByteArray()).hasSize(8292);
+    }
+
+    @Test
+    void nonBlockingWritesGoToTheContainerUncompressed() throws Exception {
+        String body = "{\"id\":\"7c0e5f3a\",\"notes\":\"Checkup\"},".repeat(500);
+        MockHttpServletResponse mock = new MockHttpServletResponse();
+        AtomicReference<WriteListener> registered = new AtomicReference<>();
+        ServletOutputStream container = new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                mock.getOutputStream().write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return registered.get() != null;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                registered.set(listener);
+            }
+        };
+        WriteListener listener = new WriteListener() {
+            @Override
+            public void onWritePossible() {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+
+        filter.doFilter(request("zstd"), new HttpServletResponseWrapper(mock) {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return container;
+            }
+        }, (req, res) -> {
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            ServletOutputStream out = res.getOutputStream();
+            assertThat(out.isReady()).isTrue();
+            out.setWriteListener(listener);
+            assertThat(out.isReady()).isTrue();
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        });
+
+        assertThat(registered.get()).isSameAs(listener);
+        assertThat(mock.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(mock.getContentAsString()).isEqualTo(body);
+    }
+
+    @Test
+    void onlyWhenTheClientAsksForIt() {
+        assertThat(ZstdCompressionFilter.acceptsZstd("gzip, zstd")).isTrue();
+        assertThat(ZstdCompressionFilter.acceptsZstd("zstd;q=0.5")).isTrue();
+        assertThat(ZstdCompressionFilter.acceptsZstd("zstd;q=0")).isFalse();
+        assertThat(ZstdCompressionFilter.acceptsZstd("gzip")).isFalse();
+        assertThat(ZstdCompressionFilter.acceptsZstd(null)).isFalse();
+    }
+
+    private static MockHttpServletRequest request(String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/appointments");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        return request;
+    }
+}
@@ -0,0 +1,13 @@
+-- The tables the app reads, for a "replica" that only gets the rows a test copies over by hand.
+CREATE TABLE IF NOT EXISTS patients (
+    id UUID PRIMARY KEY,
+    first_name VARCHAR(255),
+    last_name VARCHAR(255),
+    email VARCHAR(255) NOT NULL UNIQUE
+);
+CREATE TABLE IF NOT EXISTS appointments (
+    id UUID PRIMARY KEY,
+    patient_id UUID,
+    appointment_time TIMESTAMP(6),
+    notes VARCHAR(255)
+);